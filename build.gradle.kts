@@ -1,6 +1,7 @@
 plugins {
     application
     id("com.gradleup.shadow") version "8.3.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 application.mainClass = "dev.iseal.SSB.SSBMain"
@@ -27,6 +28,7 @@ dependencies {
     implementation("com.github.simplix-softworks:simplixstorage:3.2.7")
     implementation("com.github.docker-java:docker-java:3.5.1")
     implementation("com.github.docker-java:docker-java-transport-httpclient5:3.5.1")
+    implementation("org.xerial:sqlite-jdbc:3.46.1.3")
 }
 
 tasks.withType<JavaCompile> {
@@ -35,4 +37,26 @@ tasks.withType<JavaCompile> {
 
     // min Java version
     sourceCompatibility = "21"
-}
\ No newline at end of file
+}
+
+// benchmarks live in src/jmh/java, run them with ./gradlew jmh -Pjmh.includes=<regex>
+jmh {
+    warmupIterations = 2
+    iterations = 5
+    fork = 1
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+}
+
+tasks.register<JavaExec>("atomicWriteCrashCheck") {
+    group = "verification"
+    description = "Kills a process mid-write and checks data files are never left torn."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "dev.iseal.SSB.utils.utils.AtomicWriteCrashCheck"
+}
+
+tasks.register<JavaExec>("similarityEquivalenceCheck") {
+    group = "verification"
+    description = "Compares StringSimilarity with the old implementation on random strings."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "dev.iseal.SSB.utils.utils.StringSimilarityEquivalenceCheck"
+}
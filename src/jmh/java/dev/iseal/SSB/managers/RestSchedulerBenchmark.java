@@ -0,0 +1,146 @@
+package dev.iseal.SSB.managers;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Measures the {@link RestScheduler} with fake actions that complete after a fixed latency instead of calling Discord.
+ * <p>
+ * {@code submitAndComplete} is the scheduling overhead per action, with actions spread over many buckets.
+ * The latency benchmarks submit one 1ms moderation or DM action at a time while 50 sticky channels are kept
+ * backlogged with actions that take 50ms each, like channels stuck in a rate limit. Anything above the 1ms
+ * is time spent waiting behind the stickies.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=RestSchedulerBenchmark}
+ */
+@State(Scope.Benchmark)
+public class RestSchedulerBenchmark {
+
+    private static final RestScheduler.Priority[] BACKGROUND = {
+            RestScheduler.Priority.STICKY, RestScheduler.Priority.DM, RestScheduler.Priority.PROGRESS
+    };
+
+    private final RestScheduler scheduler = RestScheduler.getInstance();
+    // completes the fake actions, JDA never completes a submitted action on the calling thread either
+    private final ScheduledExecutorService completer = Executors.newScheduledThreadPool(4);
+
+    static class FakeAction implements RestAction<Void> {
+        private final ScheduledExecutorService completer;
+        private final long latencyMicros;
+
+        FakeAction(ScheduledExecutorService completer, long latencyMicros) {
+            this.completer = completer;
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public JDA getJDA() {
+            return null;
+        }
+
+        @Override
+        public RestAction<Void> setCheck(BooleanSupplier checks) {
+            return this;
+        }
+
+        @Override
+        public void queue(Consumer<? super Void> success, Consumer<? super Throwable> failure) {
+            submit(true).whenComplete((result, error) -> {
+                if (error != null) {
+                    failure.accept(error);
+                } else {
+                    success.accept(result);
+                }
+            });
+        }
+
+        @Override
+        public Void complete(boolean shouldQueue) {
+            return submit(shouldQueue).join();
+        }
+
+        @Override
+        public CompletableFuture<Void> submit(boolean shouldQueue) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            completer.schedule(() -> future.complete(null), latencyMicros, TimeUnit.MICROSECONDS);
+            return future;
+        }
+    }
+
+    /**
+     * Keeps 50 sticky channels backlogged with slow actions for the whole trial.
+     */
+    @State(Scope.Benchmark)
+    public static class StickyBacklog {
+
+        private static final int CHANNELS = 50;
+        private static final int QUEUED = 400;
+        private static final long LATENCY_MICROS = 50_000;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean running = true;
+        private Thread feeder;
+
+        @Setup(Level.Trial)
+        public void setUp(RestSchedulerBenchmark benchmark) {
+            feeder = new Thread(() -> {
+                while (running) {
+                    if (outstanding.get() >= QUEUED) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                        continue;
+                    }
+                    outstanding.incrementAndGet();
+                    long channelID = ThreadLocalRandom.current().nextInt(CHANNELS);
+                    benchmark.scheduler.submit(new FakeAction(benchmark.completer, LATENCY_MICROS),
+                                    RestScheduler.Priority.STICKY, RestScheduler.channelBucket(channelID))
+                            .whenComplete((result, error) -> outstanding.decrementAndGet());
+                }
+            }, "sticky-backlog");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            running = false;
+            feeder.join();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        completer.shutdownNow();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(4)
+    public Void submitAndComplete() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        RestScheduler.Priority priority = BACKGROUND[random.nextInt(BACKGROUND.length)];
+        return scheduler.submit(new FakeAction(completer, 0), priority, RestScheduler.channelBucket(random.nextInt(1000))).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Void moderationLatencyUnderStickyBacklog(StickyBacklog backlog) {
+        return scheduler.submit(new FakeAction(completer, 1000), RestScheduler.Priority.MODERATION, RestScheduler.guildBucket(1)).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Void dmLatencyUnderStickyBacklog(StickyBacklog backlog) {
+        long userID = ThreadLocalRandom.current().nextInt(1000);
+        return scheduler.submit(new FakeAction(completer, 1000), RestScheduler.Priority.DM, RestScheduler.dmBucket(userID)).join();
+    }
+}
@@ -0,0 +1,122 @@
+package dev.iseal.SSB.storage;
+
+import dev.iseal.SSB.storage.json.JsonStorageBackend;
+import dev.iseal.SSB.storage.sql.SqliteStorageBackend;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the JSON and SQLite backends on the lookups the bot does per event
+ * ({@code hasOpenAd}, {@code getStickiesByGuild}), on the periodic scans and on startup.
+ * <p>
+ * About 1 in 20 ads is still pending, the rest are closed. There is one sticky per 10 ads, spread over
+ * {@value #GUILDS} guilds.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=StorageBackendBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageBackendBenchmark {
+
+    private static final int GUILDS = 100;
+
+    @Param({"json", "sqlite"})
+    public String backendName;
+
+    @Param({"10000", "100000"})
+    public int records;
+
+    private Path dataDirectory;
+    private StorageBackend backend;
+    private AdStore adStore;
+    private StickyStore stickyStore;
+    private long users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("ssb-storage-bench");
+        users = Math.max(1, records / 4);
+        long now = System.currentTimeMillis();
+        try (StorageBackend populate = open()) {
+            AdStore ads = populate.getAdStore();
+            for (int i = 0; i < records; i++) {
+                AdSubmission ad = AdSubmission.submitted(UUID.randomUUID().toString(), i % users, "ad number " + i, now)
+                        .pending(1_000_000L + i, now);
+                if (i % 20 != 0) {
+                    ad = ad.reviewed(i % 3 == 0 ? AdSubmission.Status.DENIED : AdSubmission.Status.APPROVED, 42L, null, now);
+                }
+                ads.saveAd(ad);
+            }
+            StickyStore stickies = populate.getStickyStore();
+            for (int i = 0; i < records / 10; i++) {
+                stickies.putSticky(new StickyStore.StickyMessage(2_000_000L + i, i % GUILDS, "sticky number " + i));
+            }
+        }
+        // reopen so the measured state is what the bot sees after a restart
+        backend = open();
+        adStore = backend.getAdStore();
+        stickyStore = backend.getStickyStore();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        backend.close();
+        try (Stream<Path> paths = Files.walk(dataDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private StorageBackend open() {
+        return switch (backendName) {
+            case JsonStorageBackend.NAME -> new JsonStorageBackend(dataDirectory.toString(), false);
+            case SqliteStorageBackend.NAME -> new SqliteStorageBackend(dataDirectory.toString());
+            default -> throw new IllegalArgumentException("Unknown backend " + backendName);
+        };
+    }
+
+    @Benchmark
+    public boolean hasOpenAd() {
+        return adStore.hasOpenAd(ThreadLocalRandom.current().nextLong(users));
+    }
+
+    @Benchmark
+    public List<StickyStore.StickyMessage> getStickiesByGuild() {
+        return stickyStore.getStickiesByGuild(ThreadLocalRandom.current().nextInt(GUILDS));
+    }
+
+    @Benchmark
+    public List<AdSubmission> getPendingAds() {
+        return adStore.getAdsByStatus(AdSubmission.Status.PENDING);
+    }
+
+    @Benchmark
+    public void saveAd() {
+        long now = System.currentTimeMillis();
+        adStore.saveAd(AdSubmission.submitted(UUID.randomUUID().toString(), ThreadLocalRandom.current().nextLong(users), "new ad", now));
+    }
+
+    /**
+     * Opening the backend and loading both stores, as done once on startup.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public int openAndLoad() {
+        try (StorageBackend reopened = open()) {
+            return reopened.getAdStore().getAdsByStatus(AdSubmission.Status.PENDING).size()
+                    + reopened.getStickyStore().getAllStickies().size();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package dev.iseal.SSB.systems.moderation;
+
+import dev.iseal.SSB.utils.utils.LongHashSet;
+import net.dv8tion.jda.api.entities.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks a realistic message mix against the reply-ping rule, once as the old {@code StopReplyPing} did it
+ * (boxed ID sets, role bypass computed with streams before anything else) and once through the
+ * {@link ModerationRuleEngine}, alone and together with a mention, regex and attachment rule.
+ * <p>
+ * 70% of the messages are plain messages, the rest are replies of which 1 in 10 goes to a protected user.
+ * Authors have 10 roles. The JDA entities are {@link Proxy} stubs, which adds the same call overhead to both sides.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=ModerationRuleEngineBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModerationRuleEngineBenchmark {
+
+    private static final int MESSAGES = 1024;
+    private static final long PROTECTED_BASE = 1_000L;
+    private static final long ROLE_BASE = 5_000L;
+
+    private final Random random = new Random(42);
+    private Member[] authors;
+    private Message[] messages;
+    private int next;
+
+    private Set<Long> protectedIDs;
+    private Set<Long> bypassIDs;
+    private Set<Long> bypassRoleIDs;
+    private ModerationRuleEngine replyPingOnly;
+    private ModerationRuleEngine allRules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Set<Long> protectedSet = new HashSet<>();
+        for (long i = 0; i < 20; i++) {
+            protectedSet.add(PROTECTED_BASE + i);
+        }
+        Set<Long> bypassRoleSet = new HashSet<>();
+        for (long i = 0; i < 5; i++) {
+            bypassRoleSet.add(ROLE_BASE + i);
+        }
+        protectedIDs = Set.copyOf(protectedSet);
+        bypassIDs = Set.of();
+        bypassRoleIDs = Set.copyOf(bypassRoleSet);
+
+        ModerationRule replyPing = ModerationRule.replyPing(LongHashSet.of(protectedIDs), LongHashSet.of(bypassIDs), LongHashSet.of(bypassRoleIDs), 120);
+        replyPingOnly = new ModerationRuleEngine(List.of(replyPing));
+        allRules = new ModerationRuleEngine(List.of(
+                replyPing,
+                ModerationRule.fromMap("massMention", Map.of("minMentions", 5, "actions", List.of("delete", "log"))),
+                ModerationRule.fromMap("noInvites", Map.of("contentRegex", "discord(\\.gg|\\.com/invite)/", "actions", List.of("delete"))),
+                ModerationRule.fromMap("noExecutables", Map.of("attachmentTypes", List.of("exe", "bat", "scr"), "actions", List.of("delete", "log")))
+        ));
+
+        authors = new Member[MESSAGES];
+        messages = new Message[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            User user = user(10_000L + i);
+            List<Role> roles = new ArrayList<>();
+            for (int r = 0; r < 10; r++) {
+                // the last of the bypass roles is common enough to matter
+                long roleID = r == 0 && i % 8 == 0 ? ROLE_BASE + 4 : 20_000L + random.nextInt(200);
+                roles.add(proxy(Role.class, Map.of("getIdLong", roleID)));
+            }
+            authors[i] = proxy(Member.class, Map.of("getIdLong", user.getIdLong(), "getUser", user, "getUnsortedRoles", Set.copyOf(roles)));
+            messages[i] = message(user);
+        }
+        // both sides must do the same job, or the comparison means nothing
+        for (int i = 0; i < MESSAGES; i++) {
+            if (baselineMatches(i) == replyPingOnly.evaluate(authors[i], messages[i]).isEmpty()) {
+                throw new IllegalStateException("The rule engine and the old check disagree on message " + i);
+            }
+        }
+    }
+
+    private Message message(User author) {
+        String content = "just chatting about the server update number " + random.nextInt(1000);
+        if (random.nextInt(10) < 7) {
+            return proxy(Message.class, Map.of(
+                    "getType", MessageType.DEFAULT,
+                    "getReferencedMessage", Optional.empty(),
+                    "getContentRaw", content,
+                    "getAttachments", List.of(),
+                    "getMentions", mentions(List.of()),
+                    "getAuthor", author));
+        }
+        boolean toProtected = random.nextInt(10) == 0;
+        User repliedTo = user(toProtected ? PROTECTED_BASE + random.nextInt(20) : 30_000L + random.nextInt(1000));
+        Message referenced = proxy(Message.class, Map.of("getAuthor", repliedTo));
+        List<User> pinged = random.nextBoolean() ? List.of(repliedTo) : List.of();
+        return proxy(Message.class, Map.of(
+                "getType", MessageType.INLINE_REPLY,
+                "getReferencedMessage", referenced,
+                "getContentRaw", content,
+                "getAttachments", List.of(),
+                "getMentions", mentions(pinged),
+                "getAuthor", author));
+    }
+
+    private static User user(long id) {
+        return proxy(User.class, Map.of("getIdLong", id, "isBot", false));
+    }
+
+    private static Mentions mentions(List<User> users) {
+        return proxy(Mentions.class, Map.of("getUsers", users, "getRoles", List.of()));
+    }
+
+    // Optional.empty() stands in for null, Map.of doesn't take null values
+    private static <T> T proxy(Class<T> type, Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                case "toString":
+                    return type.getSimpleName() + values;
+            }
+            if (!values.containsKey(method.getName())) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            Object value = values.get(method.getName());
+            return value instanceof Optional<?> optional ? optional.orElse(null) : value;
+        }));
+    }
+
+    /**
+     * The decision the old {@code StopReplyPing.handleMessage} made, without its side effects.
+     */
+    @Benchmark
+    public boolean baselineStreams() {
+        return baselineMatches(next++ & (MESSAGES - 1));
+    }
+
+    private boolean baselineMatches(int index) {
+        Message message = messages[index];
+        Member member = authors[index];
+        Message referenced = message.getReferencedMessage();
+        if (referenced == null) {
+            return false;
+        }
+        long originalAuthorId = referenced.getAuthor().getIdLong();
+        boolean isProtectedUser = protectedIDs.contains(originalAuthorId);
+        boolean isBypassUser = bypassIDs.contains(originalAuthorId);
+        boolean hasBypassRole = member.getUnsortedRoles()
+                .stream()
+                .map(Role::getIdLong)
+                .anyMatch(bypassRoleIDs::contains);
+        if (!isProtectedUser) {
+            return false;
+        }
+        boolean includesPing = message.getMentions().getUsers().stream()
+                .anyMatch(user -> user.getIdLong() == originalAuthorId);
+        if (!includesPing) {
+            return false;
+        }
+        return !(member.getUser().isBot() || isBypassUser || hasBypassRole);
+    }
+
+    @Benchmark
+    public List<ModerationRule> ruleEngineReplyPing() {
+        int index = next++ & (MESSAGES - 1);
+        return replyPingOnly.evaluate(authors[index], messages[index]);
+    }
+
+    @Benchmark
+    public List<ModerationRule> ruleEngineFourRules() {
+        int index = next++ & (MESSAGES - 1);
+        return allRules.evaluate(authors[index], messages[index]);
+    }
+}
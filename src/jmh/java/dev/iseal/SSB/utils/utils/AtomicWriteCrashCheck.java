@@ -0,0 +1,116 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Kills a process that keeps rewriting a data file at a random point, then checks whether the file
+ * that is left is complete. This is repeated for the old in-place writes and for {@link GroupCommitWriter}.
+ * <p>
+ * Every version of the file starts with a header holding its length, so a truncated or half-overwritten
+ * file is detected. A process kill keeps the page cache, so this checks atomicity, not fsync.
+ * <p>
+ * {@code ./gradlew atomicWriteCrashCheck}, exits with 1 if a group committed file was ever torn.
+ */
+public class AtomicWriteCrashCheck {
+
+    private static final int ROUNDS = 40;
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("child")) {
+            runChild(args[1], Path.of(args[2]));
+            return;
+        }
+        int legacyTorn = check("in-place");
+        int atomicTorn = check("group-commit");
+        System.out.printf("In-place writes: %d/%d torn files, group commit: %d/%d torn files%n", legacyTorn, ROUNDS, atomicTorn, ROUNDS);
+        System.exit(atomicTorn == 0 ? 0 : 1);
+    }
+
+    private static int check(String mode) throws Exception {
+        Path directory = Files.createTempDirectory("ssb-crash-check");
+        Path file = directory.resolve("data.json");
+        int torn = 0;
+        int written = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Process child = new ProcessBuilder(
+                        ProcessHandle.current().info().command().orElse("java"),
+                        "-cp", System.getProperty("java.class.path"),
+                        AtomicWriteCrashCheck.class.getName(), "child", mode, file.toString())
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                Thread.sleep(ThreadLocalRandom.current().nextLong(300, 800));
+                child.destroyForcibly().waitFor();
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                written++;
+                if (!isComplete(Files.readAllBytes(file))) {
+                    torn++;
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.printf("%s: %d rounds killed after the first write, %d torn%n", mode, written, torn);
+        return torn;
+    }
+
+    private static void runChild(String mode, Path file) throws IOException {
+        if (mode.equals("in-place")) {
+            for (long version = 0; ; version++) {
+                Files.write(file, content(version));
+            }
+        }
+        GroupCommitWriter writer = new GroupCommitWriter("crash-check", false);
+        for (long version = 0; ; version++) {
+            long current = version;
+            writer.submit(file, () -> content(current)).join();
+        }
+    }
+
+    private static byte[] content(long version) {
+        byte[] header = ("v" + version + " " + FILE_SIZE + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] content = Arrays.copyOf(header, header.length + FILE_SIZE);
+        Arrays.fill(content, header.length, content.length, (byte) ('0' + version % 10));
+        return content;
+    }
+
+    private static boolean isComplete(byte[] data) {
+        int newline = 0;
+        while (newline < data.length && data[newline] != '\n') {
+            newline++;
+        }
+        if (newline == data.length || data[0] != 'v') {
+            return false;
+        }
+        long version;
+        try {
+            String[] header = new String(data, 1, newline - 1, StandardCharsets.US_ASCII).split(" ");
+            version = Long.parseLong(header[0]);
+            if (header.length != 2 || data.length - newline - 1 != Integer.parseInt(header[1])) {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        byte expected = (byte) ('0' + version % 10);
+        for (int i = newline + 1; i < data.length; i++) {
+            if (data[i] != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package dev.iseal.SSB.utils.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Downloads a file from a local {@link HttpServer}, standing in for a server archive host,
+ * once with {@link DownloadUtils} and once with the copy loop it replaced
+ * (a 4KB buffer into a {@link FileOutputStream}, checking the clock on every chunk).
+ * <p>
+ * Loopback is far faster than any real host, so this shows the copy overhead, not a real download time.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=DownloadUtilsBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DownloadUtilsBenchmark {
+
+    private static final int LEGACY_BUFFER_SIZE = 4096;
+    private static final long LEGACY_PROGRESS_INTERVAL_MS = 1500;
+
+    @Param({"16", "256"})
+    public int sizeMB;
+
+    private HttpServer server;
+    private String url;
+    private File legacyDestination;
+    private long progressCalls;
+    private final BiConsumer<Long, Long> progress = (downloaded, total) -> progressCalls++;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] content = new byte[sizeMB * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/server.zip", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/zip");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/server.zip";
+        legacyDestination = Files.createTempFile("ssb-download-bench", ".zip").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        legacyDestination.delete();
+    }
+
+    @Benchmark
+    public long downloadUtils() throws IOException {
+        File file = DownloadUtils.downloadUrlToTempDir(url, "benchmark", progress);
+        long length = file.length();
+        file.delete();
+        return length;
+    }
+
+    @Benchmark
+    public long legacyStreamCopy() throws Exception {
+        URLConnection connection = URI.create(url).toURL().openConnection();
+        long totalSize = connection.getContentLengthLong();
+        try (InputStream source = connection.getInputStream();
+             FileOutputStream destination = new FileOutputStream(legacyDestination)) {
+            progress.accept(0L, totalSize);
+            byte[] buffer = new byte[LEGACY_BUFFER_SIZE];
+            int bytesRead;
+            long downloadedBytes = 0;
+            long lastProgressCallbackTime = System.currentTimeMillis();
+            while ((bytesRead = source.read(buffer)) != -1) {
+                destination.write(buffer, 0, bytesRead);
+                downloadedBytes += bytesRead;
+                long currentTime = System.currentTimeMillis();
+                if (currentTime - lastProgressCallbackTime > LEGACY_PROGRESS_INTERVAL_MS || downloadedBytes == totalSize) {
+                    progress.accept(downloadedBytes, totalSize);
+                    lastProgressCallbackTime = currentTime;
+                }
+            }
+            progress.accept(downloadedBytes, totalSize);
+            destination.flush();
+            return downloadedBytes;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package dev.iseal.SSB.utils.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Many threads making small updates to a few data files, written either the old way
+ * (every set rewrites its file in place, like SimplixStorage does) or through a {@link GroupCommitWriter}.
+ * <p>
+ * The {@code durable} benchmarks only return once the update is on disk, which is what matters for
+ * crash safety. {@code groupCommitQueued} is what the stores actually do: queue the write and move on.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=GroupCommitWriterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class GroupCommitWriterBenchmark {
+
+    private static final int FILES = 4;
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    @Param({"16384"})
+    public int fileSize;
+
+    private Path directory;
+    private Path[] files;
+    private Object[] fileLocks;
+    private byte[] content;
+    private GroupCommitWriter writer;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private static int nextID;
+        int id;
+
+        @Setup
+        public void setUp() {
+            synchronized (Caller.class) {
+                id = nextID++;
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ssb-group-commit-bench");
+        files = new Path[FILES];
+        fileLocks = new Object[FILES];
+        for (int i = 0; i < FILES; i++) {
+            files[i] = directory.resolve("data" + i + ".json");
+            fileLocks[i] = new Object();
+        }
+        content = new byte[fileSize];
+        Arrays.fill(content, (byte) 'x');
+        writer = new GroupCommitWriter("benchmark", fsync);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void writePerSetDurable(Caller caller) throws IOException {
+        int file = caller.id % FILES;
+        // Simplix synchronizes per file and truncates it before writing the new content
+        synchronized (fileLocks[file]) {
+            try (FileChannel channel = FileChannel.open(files[file], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void atomicWritePerSetDurable(Caller caller) throws IOException {
+        int file = caller.id % FILES;
+        synchronized (fileLocks[file]) {
+            AtomicFileWriter.write(files[file], content, fsync);
+        }
+    }
+
+    @Benchmark
+    public void groupCommitDurable(Caller caller) {
+        writer.submit(files[caller.id % FILES], () -> content).join();
+    }
+
+    @Benchmark
+    public Object groupCommitQueued(Caller caller) {
+        return writer.submit(files[caller.id % FILES], () -> content);
+    }
+}
@@ -0,0 +1,70 @@
+package dev.iseal.SSB.utils.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link StringSimilarity} with the implementation it replaced, on pairs of ad-like texts.
+ * Half the pairs are near duplicates (a few edits and case changes apart), half are unrelated,
+ * which is what the duplicate ad check sees.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=StringSimilarityBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringSimilarityBenchmark {
+
+    private static final int PAIRS = 256;
+    private static final double MIN_SIMILARITY = 0.8;
+
+    @Param({"16", "60", "250", "1000"})
+    public int length;
+
+    private String[] first;
+    private String[] second;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        first = new String[PAIRS];
+        second = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            first[i] = StringSimilarityEquivalenceCheck.randomText(random, length);
+            second[i] = i % 2 == 0
+                    ? StringSimilarityEquivalenceCheck.mutate(random, first[i], Math.max(1, length / 20))
+                    : StringSimilarityEquivalenceCheck.randomText(random, length);
+        }
+    }
+
+    private int nextPair() {
+        return next++ & (PAIRS - 1);
+    }
+
+    @Benchmark
+    public int legacyEditDistance() {
+        int pair = nextPair();
+        return LegacyStringSimilarity.editDistance(first[pair], second[pair]);
+    }
+
+    @Benchmark
+    public int editDistance() {
+        int pair = nextPair();
+        return StringSimilarity.editDistance(first[pair], second[pair]);
+    }
+
+    @Benchmark
+    public boolean legacyIsSimilar() {
+        int pair = nextPair();
+        return LegacyStringSimilarity.similarity(first[pair], second[pair]) >= MIN_SIMILARITY;
+    }
+
+    @Benchmark
+    public boolean isSimilar() {
+        int pair = nextPair();
+        return StringSimilarity.isSimilar(first[pair], second[pair], MIN_SIMILARITY);
+    }
+}
@@ -0,0 +1,97 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.util.Random;
+
+/**
+ * Checks {@link StringSimilarity} against the implementation it replaced on random string pairs,
+ * including every limit of the thresholded variants.
+ * <p>
+ * The alphabet avoids characters whose lower case depends on context or changes the length of the string
+ * (like the capital sigma or the dotted capital I), the old implementation lowercased whole strings, the new one folds per character.
+ * <p>
+ * {@code ./gradlew similarityEquivalenceCheck [--args="<pairs> <seed>"]}, exits with 1 on the first mismatch.
+ */
+public class StringSimilarityEquivalenceCheck {
+
+    private static final String ALPHABET = "abcdeABCDE xyzXYZ 0123.,!?-_:/ \u00e4\u00c4\u00f6\u00d6\u00e9\u00c9\u0434\u0414\u03b1\u0391";
+
+    public static void main(String[] args) {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Random random = new Random(seed);
+        for (int i = 0; i < pairs; i++) {
+            // mostly short texts, some long enough to need several 64 character blocks
+            int length = random.nextInt(10) == 0 ? random.nextInt(400) : random.nextInt(80);
+            String s1 = randomText(random, length);
+            String s2 = random.nextBoolean() ? mutate(random, s1, random.nextInt(Math.max(1, length / 4) + 1)) : randomText(random, random.nextInt(80));
+            String mismatch = compare(s1, s2);
+            if (mismatch != null) {
+                System.out.printf("Mismatch after %d pairs (seed %d): %s%n  s1=\"%s\"%n  s2=\"%s\"%n", i, seed, mismatch, s1, s2);
+                System.exit(1);
+            }
+        }
+        System.out.printf("%d random pairs matched the old implementation (seed %d)%n", pairs, seed);
+    }
+
+    private static String compare(String s1, String s2) {
+        int expected = LegacyStringSimilarity.editDistance(s1, s2);
+        int actual = StringSimilarity.editDistance(s1, s2);
+        if (actual != expected) {
+            return "editDistance " + actual + ", expected " + expected;
+        }
+        if (StringSimilarity.editDistance(s2, s1) != expected) {
+            return "editDistance is not symmetric";
+        }
+        for (int max = 0; max <= expected + 1; max++) {
+            int limited = StringSimilarity.editDistance(s1, s2, max);
+            if (limited != Math.min(expected, max + 1)) {
+                return "editDistance with limit " + max + " returned " + limited + ", expected " + Math.min(expected, max + 1);
+            }
+        }
+        double similarity = LegacyStringSimilarity.similarity(s1, s2);
+        if (StringSimilarity.similarity(s1, s2) != similarity) {
+            return "similarity " + StringSimilarity.similarity(s1, s2) + ", expected " + similarity;
+        }
+        for (double min = 0; min <= 1.0; min += 0.05) {
+            if (StringSimilarity.isSimilar(s1, s2, min) != (similarity >= min - 1e-9)) {
+                return "isSimilar(" + min + ") disagrees with similarity " + similarity;
+            }
+        }
+        return null;
+    }
+
+    static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Applies random substitutions, insertions, deletions and case flips.
+     */
+    static String mutate(Random random, String text, int edits) {
+        StringBuilder mutated = new StringBuilder(text);
+        for (int i = 0; i < edits; i++) {
+            int position = mutated.isEmpty() ? 0 : random.nextInt(mutated.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    if (!mutated.isEmpty()) mutated.setCharAt(position, c);
+                }
+                case 1 -> mutated.insert(position, c);
+                case 2 -> {
+                    if (!mutated.isEmpty()) mutated.deleteCharAt(position);
+                }
+                default -> {
+                    if (!mutated.isEmpty()) {
+                        char original = mutated.charAt(position);
+                        mutated.setCharAt(position, Character.isUpperCase(original) ? Character.toLowerCase(original) : Character.toUpperCase(original));
+                    }
+                }
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package dev.iseal.SSB.utils.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Soak test of sticky debouncing: 4 threads deliver messages to random channels out of 10k+,
+ * and every message pushes that channel's sticky back by the debounce delay.
+ * <p>
+ * {@code cancelAndReschedule} is how StickyManager used to do it: cancel the channel's
+ * {@link ScheduledFuture} and schedule a new one on a single threaded executor.
+ * {@code timingWheel} only moves the deadline on a {@link TimingWheel} set up like the sticky one.
+ * Each measurement iteration runs for 10 seconds so cancelled tasks pile up in the executor queue the way they
+ * do on a busy bot. Add {@code -prof gc} to also compare allocation per message.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=TimingWheelBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(4)
+public class TimingWheelBenchmark {
+
+    @Param({"10000", "50000"})
+    public int channels;
+
+    // short enough that quiet channels actually fire during the run
+    @Param({"2000"})
+    public long debounceMillis;
+
+    private final LongAdder fired = new LongAdder();
+    private Channel[] state;
+    private TimingWheel<Channel> wheel;
+    private ScheduledThreadPoolExecutor executor;
+
+    static class Channel extends TimingWheel.Timer {
+        final AtomicReference<ScheduledFuture<?>> pendingTask = new AtomicReference<>();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = new Channel[channels];
+        for (int i = 0; i < channels; i++) {
+            state[i] = new Channel();
+        }
+        wheel = new TimingWheel<>("benchmark", 50, 512, this::onDue);
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nFired %d debounced tasks, %d tasks left in the executor queue%n", fired.sum(), executor.getQueue().size());
+        wheel.stop();
+        executor.shutdownNow();
+    }
+
+    private void onDue(List<Channel> due) {
+        fired.add(due.size());
+    }
+
+    private Channel randomChannel() {
+        return state[ThreadLocalRandom.current().nextInt(channels)];
+    }
+
+    @Benchmark
+    public void cancelAndReschedule() {
+        Channel channel = randomChannel();
+        ScheduledFuture<?> task = executor.schedule(fired::increment, debounceMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = channel.pendingTask.getAndSet(task);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    @Benchmark
+    public void timingWheel() {
+        wheel.schedule(randomChannel(), System.currentTimeMillis() + debounceMillis);
+    }
+}
@@ -5,6 +5,8 @@ import dev.iseal.SSB.listeners.MessageListener;
 import dev.iseal.SSB.listeners.ModalInteractionListener;
 import dev.iseal.SSB.listeners.SlashCommandHandler;
 import dev.iseal.SSB.managers.AdDataManager;
+import dev.iseal.SSB.managers.DirectMessageService;
+import dev.iseal.SSB.managers.RestInstrumentation;
 import dev.iseal.SSB.registries.CommandRegistry;
 import dev.iseal.SSB.registries.FeatureRegistry;
 import dev.iseal.SSB.registries.MessageListenerRegistry;
@@ -13,9 +15,8 @@ import dev.iseal.SSB.utils.Utils;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
-import net.dv8tion.jda.api.entities.User;
-import net.dv8tion.jda.api.entities.channel.concrete.PrivateChannel;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.slf4j.Logger;
 
@@ -24,6 +25,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class SSBMain {
 
@@ -36,6 +38,10 @@ public class SSBMain {
         JDA api = JDABuilder.createDefault(token)
                 .enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.MESSAGE_CONTENT)
 
+                // per route and per feature REST metrics
+                .setRestConfig(RestInstrumentation.createRestConfig())
+                .setCallbackPool(RestInstrumentation.wrapCallbackPool(ForkJoinPool.commonPool()), false)
+
                 //listeners
                 .addEventListeners(new SlashCommandHandler())
                 .addEventListeners(ButtonClickListener.getInstance())
@@ -117,16 +123,14 @@ public class SSBMain {
         if (time == null || time == 0L) {
             return;
         }
-        // get user and channel
-        User user = jda.retrieveUserById(id).complete();
-        PrivateChannel channel = user.openPrivateChannel().complete();
+        long userID = Long.parseLong(id);
         // check if the reboot was requested more than 5 minutes ago
         if (now - time > 5 * 60 * 1000) {
             log.error("Reboot requested by {} was more than 5 minutes ago.", id);
             log.error("There might be an issue with the bot.");
 
             // dm the user
-            channel.sendMessage("The reboot requested was more than 5 minutes ago!").queue();
+            DirectMessageService.getInstance().send(userID, MessageCreateData.fromContent("The reboot requested was more than 5 minutes ago!"));
             return;
         }
 
@@ -136,7 +140,7 @@ public class SSBMain {
         Utils.removeTempFileData("root-reboot-requested-at");
         log.debug("Reboot requested by {} complete! It took {} seconds ({} minutes). Requested at {}", id, secondsTaken, minutesTaken, time);
         // dm the user
-        channel.sendMessage("The reboot requested <t:"+time+":F> has been completed. It took "+secondsTaken+" seconds ("+minutesTaken+" minutes).").queue();
+        DirectMessageService.getInstance().send(userID, MessageCreateData.fromContent("The reboot requested <t:"+time+":F> has been completed. It took "+secondsTaken+" seconds ("+minutesTaken+" minutes)."));
         log.info("Reboot requested by {} complete!", id);
     }
 
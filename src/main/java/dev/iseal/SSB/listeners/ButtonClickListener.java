@@ -1,5 +1,6 @@
 package dev.iseal.SSB.listeners;
 
+import dev.iseal.SSB.managers.RestInstrumentation;
 import dev.iseal.SSB.utils.Utils;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -39,7 +40,7 @@ public class ButtonClickListener extends ListenerAdapter {
         if (consumer != null) {
             messageThreadPool.execute(() -> {
                 try {
-                    consumer.accept(event);
+                    RestInstrumentation.runAs("button." + id, () -> consumer.accept(event));
                 } catch (Exception e) {
                     log.error("Failed to handle button interaction {}: {}", id, e.getMessage());
                     event.reply("An error occurred while processing your button interaction.").setEphemeral(true).queue();
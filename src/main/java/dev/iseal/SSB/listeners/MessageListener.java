@@ -1,5 +1,7 @@
 package dev.iseal.SSB.listeners;
 
+import dev.iseal.SSB.managers.RecentMessageStore;
+import dev.iseal.SSB.managers.RestInstrumentation;
 import dev.iseal.SSB.registries.FeatureRegistry;
 import dev.iseal.SSB.utils.abstracts.AbstractMessageListener;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
@@ -23,6 +25,7 @@ public class MessageListener extends ListenerAdapter {
     private final Logger log = JDALogger.getLog(getClass());
     private final List<AbstractMessageListener> consumerList = new ArrayList<>();
     private final FeatureRegistry featureRegistry = FeatureRegistry.getInstance();
+    private final RecentMessageStore recentMessageStore = RecentMessageStore.getInstance();
     private MessageListener() {
         // private constructor to prevent instantiation
     }
@@ -30,11 +33,13 @@ public class MessageListener extends ListenerAdapter {
 
     @Override
     public void onMessageReceived(MessageReceivedEvent event) {
+        // on the event thread, so a reply handled on the pool always finds the messages before it
+        recentMessageStore.record(event.getMessage());
         messageThreadPool.execute(() -> {
             try {
                 consumerList.forEach(consumer -> {
                     if (featureRegistry.isFeatureEnabled(consumer.getFeatureName())) {
-                        consumer.handleMessage(event);
+                        RestInstrumentation.runAs(consumer.getFeatureName(), () -> consumer.handleMessage(event));
                     } else {
                         log.info("Feature {} is disabled. Skipping message handling.", consumer.getFeatureName());
                     }
@@ -1,5 +1,6 @@
 package dev.iseal.SSB.listeners;
 
+import dev.iseal.SSB.managers.RestInstrumentation;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -35,7 +36,7 @@ public class ModalInteractionListener extends ListenerAdapter {
         if (consumer != null) {
             modalThreadPool.execute(() -> {
                 try {
-                    consumer.accept(event);
+                    RestInstrumentation.runAs("modal." + id, () -> consumer.accept(event));
                 } catch (Exception e) {
                     log.error("Failed to handle modal interaction {}: {}", id, e.getMessage());
                     event.reply("An error occurred while processing your modal interaction.").setEphemeral(true).queue();
@@ -1,8 +1,11 @@
 package dev.iseal.SSB.listeners;
 
+import dev.iseal.SSB.managers.RestInstrumentation;
 import dev.iseal.SSB.registries.CommandRegistry;
 import dev.iseal.SSB.registries.FeatureRegistry;
+import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractCommand;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.internal.utils.JDALogger;
@@ -27,26 +30,45 @@ public class SlashCommandHandler extends ListenerAdapter {
         String userDisplayName = event.getUser().getName();
         log.info("Received command {} by {}", commandString, userDisplayName);
         log.debug("Checking if command {} is registered and enabled.", commandName);
+        if (!registry.isCommandRegistered(commandName)) {
+            // e.g. a command still registered with Discord by an older build
+            event.reply("Unknown command: " + commandName + "." + Utils.didYouMean(registry.suggestCommands(commandName, 3)))
+                    .setEphemeral(true).queue();
+            return;
+        }
         if (!featureRegistry.isFeatureEnabled("feature.command." + commandName)) {
             log.debug("Command {} is disabled.", commandName);
             event.reply("This command is disabled. Ask an admin for more info.").setEphemeral(true).queue();
             return;
         }
 
-        // Check if the command is registered and handle it
+        // Hand the command to its handler
         AbstractCommand command = registry.getCommand(commandName);
-        if (command != null) {
-            commandThreadPool.execute(() -> {
-                try {
-                    command.handleCommand(event);
-                } catch (Exception e) {
-                    log.error("Failed to handle command {}: {}", commandString, e.getMessage());
-                    Arrays.stream(e.getStackTrace()).forEach(element -> log.error(element.toString()));
-                    event.getHook().editOriginal("An error occurred while processing your command.").queue();
-                }
-            });
-        } else {
-            event.reply("Unknown command: " + commandName).setEphemeral(true).queue();
+        commandThreadPool.execute(() -> {
+            try {
+                RestInstrumentation.runAs(command.getFeatureName(), () -> command.handleCommand(event));
+            } catch (Exception e) {
+                log.error("Failed to handle command {}: {}", commandString, e.getMessage());
+                Arrays.stream(e.getStackTrace()).forEach(element -> log.error(element.toString()));
+                event.getHook().editOriginal("An error occurred while processing your command.").queue();
+            }
+        });
+    }
+
+    @Override
+    public void onCommandAutoCompleteInteraction(CommandAutoCompleteInteractionEvent event) {
+        // answered right here instead of on the pool, sources only read precomputed data
+        String commandName = event.getName();
+        AbstractCommand command = registry.isCommandRegistered(commandName) ? registry.getCommand(commandName) : null;
+        if (command == null || !featureRegistry.isFeatureEnabled("feature.command." + commandName)) {
+            event.replyChoices().queue();
+            return;
+        }
+        try {
+            RestInstrumentation.runAs(command.getFeatureName(), () -> command.handleAutocomplete(event));
+        } catch (Exception e) {
+            log.error("Failed to autocomplete option {} of command {}: {}", event.getFocusedOption().getName(), commandName, e.getMessage());
+            event.replyChoices().queue();
         }
     }
 }
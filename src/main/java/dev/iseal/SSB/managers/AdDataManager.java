@@ -1,26 +1,42 @@
 package dev.iseal.SSB.managers;
 
 import de.leonhard.storage.Config;
-import de.leonhard.storage.Json;
 import dev.iseal.SSB.SSBMain;
 import dev.iseal.SSB.listeners.ButtonClickListener;
+import dev.iseal.SSB.registries.MetricsRegistry;
+import dev.iseal.SSB.systems.ads.AdConfig;
+import dev.iseal.SSB.storage.AdStore;
+import dev.iseal.SSB.storage.AdSubmission;
 import dev.iseal.SSB.systems.ads.modals.AdDenialModal;
 import dev.iseal.SSB.utils.Utils;
+import dev.iseal.SSB.utils.utils.LiveConfig;
+import dev.iseal.SSB.utils.utils.MinHashIndex;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
 
 import java.awt.*;
 import java.io.File;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class AdDataManager {
 
@@ -32,38 +48,40 @@ public class AdDataManager {
         return instance;
     }
 
-    private final Json registeredAdUUIDs;
-    private final Json cooldowns;
+    private final Logger log = JDALogger.getLog(getClass());
+    private final ScheduledExecutorService maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SSB-AdMaintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AdStore adStore;
+    private final MinHashIndex<String> duplicateIndex = new MinHashIndex<>();
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
     private final Config config;
-
-    private final long adChannelID;
-    private final long pendingApprovalID;
-    private final long adCooldownInHours;
+    private final LiveConfig<AdConfig> adConfig;
 
     private AdDataManager() {
-        cooldowns = new Json("adCooldowns.json", System.getProperty("user.dir")+ File.separator + "data" + File.separator + "ads");
-        // scan through the cooldowns file and remove any that are older than the current time
-        cooldowns.keySet().forEach(
-                uuid -> {
-                    long cooldown = cooldowns.getLong(uuid);
-                    if (System.currentTimeMillis() > cooldown) {
-                        cooldowns.remove(uuid);
-                    }
-                }
-        );
+        adStore = StorageManager.getInstance().getBackend().getAdStore();
+        // remove any cooldowns that are older than the current time
+        adStore.removeExpiredCooldowns(System.currentTimeMillis());
 
-        registeredAdUUIDs = new Json("registeredAdUUIDs.json",System.getProperty("user.dir")+ File.separator + "data" + File.separator + "ads");
-        config = new Config("adConfig.yml",System.getProperty("user.dir")+ File.separator + "config");
+        config = ConfigManager.getInstance().openConfig("adConfig.yml",System.getProperty("user.dir")+ File.separator + "config");
         config.setDefault("adChannelId", "0");
         config.setDefault("pendingApprovalId", "0");
         config.setDefault("adCooldownInHours", 24);
+        config.setDefault("adExpiryInDays", 7);
+        config.setDefault("duplicateWindowInDays", 30);
+        config.setDefault("duplicateFlagSimilarity", 0.6);
+        config.setDefault("duplicateRejectSimilarity", 0.9);
 
-        adChannelID = config.getLong("adChannelId");
-        pendingApprovalID = config.getLong("pendingApprovalId");
-        adCooldownInHours = config.getLong("adCooldownInHours");
+        adConfig = ConfigManager.getInstance().watch(config, AdConfig::fromYaml);
 
         ButtonClickListener.getInstance().registerButtonConsumer("approveAd", this::approveAd);
         ButtonClickListener.getInstance().registerButtonConsumer("denyAd", this::denyAd);
+
+        loadDuplicateIndex();
+        rebuildReviewQueue();
+        maintenanceScheduler.scheduleAtFixedRate(this::expireStaleAds, 0, 1, TimeUnit.HOURS);
     }
 
 
@@ -77,52 +95,240 @@ public class AdDataManager {
     public String addPendingAd(String ad, User sender) {
 
         long userID = sender.getIdLong();
+        AdConfig currentConfig = adConfig.get();
 
-        // check for pending ads
-        if (registeredAdUUIDs.getData().containsValue(userID)) {
+        // check for ads still waiting for review
+        if (adStore.hasOpenAd(userID)) {
             return "You already have an ad registered. Please wait until it is approved or denied.";
         }
 
         // check for cooldown
-        if (cooldowns.contains(String.valueOf(userID))) {
-            long cooldown = cooldowns.getLong(String.valueOf(userID));
-            if (System.currentTimeMillis() < cooldown) {
-                return "You are on cooldown for this ad. Please wait " + (cooldown - System.currentTimeMillis()) / 1000 + " seconds. (" + (cooldown - System.currentTimeMillis()) / 1000 / 60 / 60+ " hours)";
-            }
+        long existingCooldown = adStore.getCooldown(userID);
+        if (System.currentTimeMillis() < existingCooldown) {
+            return "You are on cooldown for this ad. Please wait " + (existingCooldown - System.currentTimeMillis()) / 1000 + " seconds. (" + (existingCooldown - System.currentTimeMillis()) / 1000 / 60 / 60+ " hours)";
         }
 
-        UUID adID = UUID.randomUUID();
+        // catch resubmissions with small edits. Copies of someone else's ad and of a denied ad are rejected,
+        // reposting your own approved ad after the cooldown is the normal flow and only gets flagged
+        long[] signature = MinHashIndex.signature(ad);
+        Optional<MinHashIndex.Match<String>> rejected = duplicateIndex.findMostSimilar(signature,
+                currentConfig.duplicateRejectSimilarity(), adID -> isRejectableDuplicate(adID, userID));
+        if (rejected.isPresent()) {
+            metrics.increment("ads.duplicates.rejected");
+            log.info("Rejected ad by {} as a duplicate of ad {} ({}% similar).", userID, rejected.get().key(), Math.round(rejected.get().similarity() * 100));
+            return "Your ad is too similar to a recently submitted ad. Please submit a new ad instead of resubmitting an old one.";
+        }
+        Optional<MinHashIndex.Match<String>> duplicate = duplicateIndex.findMostSimilar(signature,
+                Math.min(currentConfig.duplicateFlagSimilarity(), currentConfig.duplicateRejectSimilarity()));
 
-        // add the ad to the pending ads
-        registeredAdUUIDs.set(adID.toString(), userID);
+        // store the ad before anything else, so it survives a restart even if posting it fails
+        AdSubmission submission = AdSubmission.submitted(UUID.randomUUID().toString(), userID, ad, System.currentTimeMillis());
+        adStore.saveAd(submission);
+        duplicateIndex.add(submission.adID(), signature, submission.submittedAt());
 
         // set the cooldown
-        long cooldown = System.currentTimeMillis() + adCooldownInHours * 60 * 60 * 1000;
-        cooldowns.set(String.valueOf(userID), cooldown);
+        long cooldown = System.currentTimeMillis() + currentConfig.adCooldownInHours() * 60 * 60 * 1000;
+        adStore.setCooldown(userID, cooldown);
 
         // check if the channel is set
-        if (pendingApprovalID == 0) {
+        if (currentConfig.pendingApprovalID() == 0) {
             return "No channel set for pending ads. Please contact an admin.";
         }
 
         // send the ad to the channel
-        TextChannel pendingChannel = SSBMain.getJDA().getTextChannelById(pendingApprovalID);
+        TextChannel pendingChannel = SSBMain.getJDA().getTextChannelById(currentConfig.pendingApprovalID());
 
         if (pendingChannel == null) {
             return "The channel for pending ads is invalid. Please contact an admin.";
         }
 
+        String duplicateNote = duplicate.map(this::describeDuplicate).orElse(null);
+        if (duplicateNote != null) {
+            metrics.increment("ads.duplicates.flagged");
+        }
+        postForReview(submission, sender.getName(), pendingChannel, duplicateNote);
+
+        return "Your ad has been sent for approval. Please wait for an admin to approve or deny it.";
+    }
+
+    /**
+     * Posts an ad to the pending approval channel and marks it as pending once the message is sent.
+     *
+     * @param ad             The ad to post.
+     * @param authorName     The name of the user that submitted it.
+     * @param pendingChannel The pending approval channel.
+     * @param duplicateNote  Describes the ad this one may be a duplicate of, or null.
+     */
+    private void postForReview(AdSubmission ad, String authorName, TextChannel pendingChannel, String duplicateNote) {
         EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("New ad by " + sender.getName() +" pending approval");
-        embed.setDescription(ad);
-        embed.setColor(Color.GRAY);
-        embed.setFooter("Ad ID: " + adID);
+        embed.setTitle("New ad by " + authorName +" pending approval");
+        embed.setDescription(ad.content());
+        embed.setColor(duplicateNote == null ? Color.GRAY : Color.ORANGE);
+        if (duplicateNote != null) {
+            embed.addField("Possible duplicate", duplicateNote, false);
+        }
+        embed.setFooter("Ad ID: " + ad.adID());
         List<Button> buttons = new ArrayList<>();
         buttons.add(Button.success("approveAd", "Approve"));
         buttons.add(Button.danger("denyAd", "Deny"));
-        pendingChannel.sendMessageEmbeds(embed.build()).addActionRow(buttons).queue();
+        pendingChannel.sendMessageEmbeds(embed.build()).addActionRow(buttons).queue(
+                message -> adStore.saveAd(ad.pending(message.getIdLong(), System.currentTimeMillis())),
+                error -> log.error("Failed to post ad {} for review: {}", ad.adID(), error.getMessage())
+        );
+    }
 
-        return "Your ad has been sent for approval. Please wait for an admin to approve or deny it.";
+    /**
+     * Brings the pending approval channel back in line with the stored ads after a restart.
+     * Ads that were never posted get posted, and pending ads whose review message was deleted get posted again.
+     */
+    private void rebuildReviewQueue() {
+        long pendingApprovalID = adConfig.get().pendingApprovalID();
+        TextChannel pendingChannel = pendingApprovalID == 0 ? null : SSBMain.getJDA().getTextChannelById(pendingApprovalID);
+        if (pendingChannel == null) {
+            log.warn("The channel for pending ads is not set or invalid, not rebuilding the review queue.");
+            return;
+        }
+
+        List<AdSubmission> submitted = adStore.getAdsByStatus(AdSubmission.Status.SUBMITTED);
+        submitted.forEach(ad -> repost(ad, pendingChannel));
+
+        int checked = 0;
+        for (AdSubmission ad : adStore.getAdsByStatus(AdSubmission.Status.PENDING)) {
+            // ads imported from before contents were stored have nothing to repost
+            if (ad.reviewMessageID() == 0 || ad.content().isEmpty()) {
+                continue;
+            }
+            checked++;
+            pendingChannel.retrieveMessageById(ad.reviewMessageID()).queue(
+                    null,
+                    new ErrorHandler().handle(ErrorResponse.UNKNOWN_MESSAGE, e -> repost(ad, pendingChannel))
+            );
+        }
+        log.info("Rebuilding ad review queue: posting {} submitted ads, checking {} pending ads.", submitted.size(), checked);
+    }
+
+    private void repost(AdSubmission ad, TextChannel pendingChannel) {
+        UserResolver.getInstance().resolveUser(ad.userID()).whenComplete((user, error) -> postForReview(
+                ad,
+                user != null && user.isPresent() ? user.get().getName() : String.valueOf(ad.userID()),
+                pendingChannel,
+                null
+        ));
+    }
+
+    /**
+     * Indexes every ad submitted within {@code duplicateWindowInDays}, whatever its status,
+     * so denied ads can't be resubmitted with small edits either.
+     */
+    private void loadDuplicateIndex() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(adConfig.get().duplicateWindowInDays());
+        for (AdSubmission ad : adStore.getAllAds()) {
+            if (ad.submittedAt() >= cutoff && !ad.content().isEmpty()) {
+                duplicateIndex.add(ad.adID(), MinHashIndex.signature(ad.content()), ad.submittedAt());
+            }
+        }
+        metrics.registerGauge("ads.duplicates.indexed", duplicateIndex::size);
+        log.info("Indexed {} recent ads for duplicate detection.", duplicateIndex.size());
+    }
+
+    /**
+     * @param adID   An ad similar enough to be rejected.
+     * @param userID The user submitting the new ad.
+     * @return true if the new ad should be rejected for it: it belongs to another user, or it was denied.
+     */
+    private boolean isRejectableDuplicate(String adID, long userID) {
+        // the submitter's cooldown was already checked, so their own ads are all outside of it
+        return adStore.getAd(adID)
+                .map(original -> original.userID() != userID || original.status() == AdSubmission.Status.DENIED)
+                .orElse(false);
+    }
+
+    private String describeDuplicate(MinHashIndex.Match<String> match) {
+        String similarity = Math.round(match.similarity() * 100) + "% similar";
+        return adStore.getAd(match.key())
+                .map(original -> "Ad " + original.adID() + " by <@" + original.userID() + ">, " + original.status().name().toLowerCase() + ", " + similarity)
+                .orElse("Ad " + match.key() + ", " + similarity);
+    }
+
+    /**
+     * Expires every ad that has been waiting for review longer than {@code adExpiryInDays},
+     * and removes its review message.
+     */
+    private void expireStaleAds() {
+        // an exception escaping here would cancel every later run of the sweep
+        try {
+            long now = System.currentTimeMillis();
+            long cutoff = now - adConfig.get().adExpiryInDays() * 24 * 60 * 60 * 1000;
+            TextChannel pendingChannel = SSBMain.getJDA().getTextChannelById(adConfig.get().pendingApprovalID());
+
+            int expired = 0;
+            for (AdSubmission.Status status : List.of(AdSubmission.Status.SUBMITTED, AdSubmission.Status.PENDING)) {
+                for (AdSubmission ad : adStore.getAdsByStatus(status)) {
+                    if (ad.updatedAt() >= cutoff) {
+                        continue;
+                    }
+                    // a review may have come in since the ads were listed
+                    if (!adStore.transition(status, ad.expired(now))) {
+                        continue;
+                    }
+                    if (pendingChannel != null && ad.reviewMessageID() != 0) {
+                        pendingChannel.deleteMessageById(ad.reviewMessageID()).queue(null, new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE));
+                    }
+                    expired++;
+                }
+            }
+            if (expired > 0) {
+                log.info("Expired {} ads that were not reviewed in time.", expired);
+            }
+            duplicateIndex.removeOlderThan(now - TimeUnit.DAYS.toMillis(adConfig.get().duplicateWindowInDays()));
+        } catch (RuntimeException e) {
+            log.error("Failed to expire stale ads: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds the ad a review message belongs to.
+     *
+     * @param reviewMessage The message in the pending approval channel.
+     * @return The ad, or null if the message doesn't belong to a known ad.
+     */
+    public AdSubmission findAdForReview(Message reviewMessage) {
+        Optional<AdSubmission> ad = adStore.getAdByReviewMessage(reviewMessage.getIdLong());
+        if (ad.isPresent()) {
+            return ad.get();
+        }
+
+        // ads imported from before submissions were stored in full don't know their review message or content,
+        // for those (and only those) the ID and text still have to come from the embed
+        if (reviewMessage.getEmbeds().isEmpty() || reviewMessage.getEmbeds().get(0).getFooter() == null) {
+            return null;
+        }
+        MessageEmbed embed = reviewMessage.getEmbeds().get(0);
+        String adID = embed.getFooter().getText().replace("Ad ID: ", "");
+        return adStore.getAd(adID)
+                .filter(legacyAd -> legacyAd.reviewMessageID() == 0)
+                .map(legacyAd -> {
+                    AdSubmission updated = new AdSubmission(legacyAd.adID(), legacyAd.userID(),
+                            Objects.requireNonNullElse(embed.getDescription(), ""), legacyAd.status(),
+                            legacyAd.submittedAt(), legacyAd.updatedAt(), 0L, reviewMessage.getIdLong(), null);
+                    adStore.saveAd(updated);
+                    return updated;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * Records the result of a review, if the ad is still pending. Nothing may be posted or sent for the review
+     * before this succeeded, another moderator or the expiry may have handled the ad in the meantime.
+     *
+     * @param ad         The reviewed ad.
+     * @param result     {@link AdSubmission.Status#APPROVED} or {@link AdSubmission.Status#DENIED}.
+     * @param reviewerID The moderator that reviewed the ad.
+     * @param note       The denial reason, or null.
+     * @return true if this review was recorded, false if the ad was no longer pending.
+     */
+    public boolean markReviewed(AdSubmission ad, AdSubmission.Status result, long reviewerID, String note) {
+        return adStore.transition(AdSubmission.Status.PENDING, ad.reviewed(result, reviewerID, note, System.currentTimeMillis()));
     }
 
     private void approveAd(ButtonInteractionEvent event) {
@@ -131,19 +337,39 @@ public class AdDataManager {
             return;
         }
 
-        // this code is quite shit.
-        MessageEmbed embed = event.getMessage().getEmbeds().get(0);
-        String adID = embed.getFooter().getText().replace("Ad ID: ", "");
-        String ad = embed.getDescription();
-        User adCreator = Utils.getUserFromCacheOrFetch(getUserIDbyAdID(adID));
+        AdSubmission ad = findAdForReview(event.getMessage());
+        if (ad == null || ad.status() != AdSubmission.Status.PENDING) {
+            event.reply("This ad is no longer waiting for review.").setEphemeral(true).queue();
+            return;
+        }
+        // the author may have to be fetched, which can take longer than an interaction may stay unanswered
+        event.deferReply(true).queue();
+        UserResolver.getInstance().resolveUser(ad.userID()).whenComplete((adCreator, error) -> {
+            if (error != null) {
+                log.warn("Failed to fetch the author {} of ad {}: {}", ad.userID(), ad.adID(), error.getMessage());
+                event.getHook().editOriginal("Could not fetch the author of this ad, try again later.").queue();
+            } else if (adCreator.isEmpty()) {
+                event.getHook().editOriginal("The author of this ad no longer exists, deny it instead.").queue();
+            } else {
+                postApprovedAd(event, ad, adCreator.get());
+            }
+        });
+    }
+
+    private void postApprovedAd(ButtonInteractionEvent event, AdSubmission ad, User adCreator) {
+        // another reviewer may have been faster while the author was fetched, only the one that records the review posts it
+        if (!markReviewed(ad, AdSubmission.Status.APPROVED, event.getUser().getIdLong(), null)) {
+            event.getHook().editOriginal("This ad is no longer waiting for review.").queue();
+            return;
+        }
 
         // send ad to channel
         EmbedBuilder embedBuilder = new EmbedBuilder();
         embedBuilder.setTitle("Ad by "+adCreator.getEffectiveName());
-        embedBuilder.setDescription(ad);
+        embedBuilder.setDescription(ad.content());
         embedBuilder.setFooter("The ad is not official and is not endorsed by the server staff. For more info, contact an admin.\n"
         + "Actual sender username: "+adCreator.getName());
-        TextChannel channel = event.getGuild().getTextChannelById(adChannelID);
+        TextChannel channel = event.getGuild().getTextChannelById(adConfig.get().adChannelID());
         channel.sendMessageEmbeds(embedBuilder.build()).queue();
 
         // send confirmation to user
@@ -152,11 +378,13 @@ public class AdDataManager {
         builder.setColor(Color.GREEN);
         builder.setDescription("Your ad in the "+event.getGuild().getName()+" server has been accepted!\n"
         + "Check in the "+channel.getName()+" channel for the posted ad.");
-        Utils.sendEmbed(adCreator.getIdLong(), builder);
-
         event.getMessage().delete().queue();
-        removeAdID(adID);
-        event.reply("Ad sent successfully!").setEphemeral(true).queue();
+        event.getHook().editOriginal("Ad sent successfully!").queue();
+        Utils.sendEmbed(adCreator.getIdLong(), builder).thenAccept(result -> {
+            if (result != DirectMessageService.DeliveryResult.SENT) {
+                event.getHook().editOriginal("Ad sent successfully! The author could not be notified, their DMs are closed or unreachable.").queue();
+            }
+        });
     }
 
     private void denyAd(ButtonInteractionEvent event) {
@@ -168,30 +396,23 @@ public class AdDataManager {
     }
 
     private boolean checkForPermissions(ButtonInteractionEvent event) {
-        User user = event.getUser();
+        // interactions carry the member, no need to look it up
+        Member member = event.getMember();
         Guild guild = event.getGuild();
-        if (guild == null) {
+        if (guild == null || member == null) {
             return false;
         }
-        GuildChannel channel = guild.getTextChannelById(adChannelID);
+        GuildChannel channel = guild.getTextChannelById(adConfig.get().adChannelID());
 
         if (channel == null) {
             event.reply("The channel for ads is invalid. Please contact an admin.").setEphemeral(true).queue();
             return false;
         }
 
-        boolean hasPerms = Utils.getGuildMemberFromCacheOrFetch(user, guild).hasPermission(channel, Permission.MESSAGE_SEND);
+        boolean hasPerms = member.hasPermission(channel, Permission.MESSAGE_SEND);
 
         //TODO: add further permissions checks in the future
         return hasPerms;
     }
 
-    public long getUserIDbyAdID(String adID) {
-        return registeredAdUUIDs.getLong(adID);
-    }
-
-    public void removeAdID(String adID) {
-        registeredAdUUIDs.remove(adID);
-    }
-
 }
@@ -0,0 +1,199 @@
+package dev.iseal.SSB.managers;
+
+import de.leonhard.storage.Config;
+import de.leonhard.storage.Yaml;
+import dev.iseal.SSB.utils.utils.AtomicFileWriter;
+import dev.iseal.SSB.utils.utils.LiveConfig;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Turns Simplix config files into hot-reloadable {@link LiveConfig} snapshots.
+ * A single daemon thread watches the directories of all registered files and
+ * reloads the matching snapshots when a file is modified.
+ * <p>
+ * Every config that loads or reloads successfully is also copied to a {@code .bak} file next to it.
+ * If a config is ever left broken (for example truncated by a crash while Simplix was writing it),
+ * {@link #openYaml(String, String)} restores that last known good copy instead of failing to boot.
+ */
+public class ConfigManager {
+
+    private static final ConfigManager instance = new ConfigManager();
+    public static ConfigManager getInstance() {
+        return instance;
+    }
+
+    // editors usually write a file more than once when saving
+    private static final long RELOAD_DEBOUNCE_MS = 250;
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final Map<Path, List<LiveConfig<?>>> watchedFiles = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    private ConfigManager() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread watcherThread = new Thread(this::watchLoop, "SSB-ConfigWatcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        } catch (IOException e) {
+            log.error("Failed to start the config watcher. Config hot reloading is disabled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Opens a Simplix {@link Yaml} file, restoring its last known good copy if it is broken.
+     *
+     * @param name      The file name.
+     * @param directory The directory of the file.
+     * @return The opened file.
+     */
+    public Yaml openYaml(String name, String directory) {
+        return open(name, directory, Yaml::new);
+    }
+
+    /**
+     * Opens a Simplix {@link Config} file, restoring its last known good copy if it is broken.
+     *
+     * @param name      The file name.
+     * @param directory The directory of the file.
+     * @return The opened file.
+     */
+    public Config openConfig(String name, String directory) {
+        return open(name, directory, Config::new);
+    }
+
+    private <Y extends Yaml> Y open(String name, String directory, BiFunction<String, String, Y> constructor) {
+        Path path = Path.of(directory, name).toAbsolutePath().normalize();
+        Path backup = backupPath(path);
+        boolean restore = Files.exists(backup) && isEmpty(path);
+        if (!restore) {
+            try {
+                Y yaml = constructor.apply(name, directory);
+                backup(path);
+                return yaml;
+            } catch (RuntimeException e) {
+                if (!Files.exists(backup)) {
+                    throw e;
+                }
+                log.error("Config {} is unreadable: {}", path, e.getMessage());
+            }
+        }
+
+        log.warn("Restoring config {} from its last known good copy.", path);
+        try {
+            Files.copy(backup, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Failed to restore config {}: {}", path, e.getMessage());
+        }
+        return constructor.apply(name, directory);
+    }
+
+    private static boolean isEmpty(Path path) {
+        try {
+            return !Files.exists(path) || Files.size(path) == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Path backupPath(Path path) {
+        return path.resolveSibling(path.getFileName() + BACKUP_SUFFIX);
+    }
+
+    private void backup(Path path) {
+        // an empty file is never worth keeping, it is what a crash mid-write leaves behind
+        if (isEmpty(path)) {
+            return;
+        }
+        try {
+            AtomicFileWriter.write(backupPath(path), Files.readAllBytes(path), true);
+        } catch (IOException e) {
+            log.warn("Failed to back up config {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a config file into a typed snapshot and reloads it whenever the file changes.
+     * Defaults should be set on the {@link Yaml} before calling this.
+     *
+     * @param yaml   The config file.
+     * @param parser Converts the file into an immutable snapshot.
+     * @param <T>    The snapshot type.
+     * @return The live config holding the current snapshot.
+     */
+    public <T> LiveConfig<T> watch(Yaml yaml, Function<Yaml, T> parser) {
+        LiveConfig<T> config = new LiveConfig<>(yaml, parser);
+        Path path = config.getPath();
+        watchedFiles.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(config);
+        registerDirectory(path.getParent());
+        return config;
+    }
+
+    private void registerDirectory(Path directory) {
+        if (watchService == null || directory == null || watchedDirectories.containsValue(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            watchedDirectories.put(key, directory);
+            log.debug("Watching config directory {}", directory);
+        } catch (IOException e) {
+            log.warn("Failed to watch config directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+                Thread.sleep(RELOAD_DEBOUNCE_MS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                log.info("Config watcher stopped.");
+                return;
+            }
+
+            Path directory = watchedDirectories.get(key);
+            Set<Path> changedFiles = new HashSet<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    continue;
+                }
+                changedFiles.add(directory.resolve((Path) event.context()).toAbsolutePath().normalize());
+            }
+
+            changedFiles.forEach(path -> {
+                List<LiveConfig<?>> configs = watchedFiles.get(path);
+                if (configs == null) {
+                    return;
+                }
+                boolean reloaded = false;
+                for (LiveConfig<?> config : configs) {
+                    reloaded |= config.reload();
+                }
+                if (reloaded) {
+                    backup(path);
+                }
+            });
+
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+                log.warn("Config directory {} is no longer accessible. Stopped watching it.", directory);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package dev.iseal.SSB.managers;
+
+import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.registries.MetricsRegistry;
+import dev.iseal.SSB.storage.KeyValueStore;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.PrivateChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers direct messages through the {@link RestScheduler}, so they never hold up interaction replies.
+ * <p>
+ * Private channels are opened once per user and kept, so a later DM to the same user is a single request.
+ * Failed deliveries are retried with a growing delay, up to {@code RETRY_DELAYS_SECONDS.length} times,
+ * unless the failure can't go away by itself. Users that don't accept DMs from the bot (error 50007)
+ * are remembered in the "closedDMs" namespace and skipped for {@code CLOSED_RECHECK_DAYS}, after which
+ * the next DM tries again in case they opened them.
+ */
+public class DirectMessageService {
+
+    private static DirectMessageService instance;
+    public static synchronized DirectMessageService getInstance() {
+        if (instance == null) {
+            instance = new DirectMessageService();
+        }
+        return instance;
+    }
+
+    private static final int MAX_CACHED_CHANNELS = 5000;
+    private static final long[] RETRY_DELAYS_SECONDS = {5, 30, 120};
+    private static final long CLOSED_RECHECK_DAYS = 7;
+
+    /**
+     * The outcome of a delivery.
+     */
+    public enum DeliveryResult {
+        SENT,
+        /**
+         * The user doesn't accept DMs from the bot, now or within the last {@code CLOSED_RECHECK_DAYS}.
+         */
+        DMS_CLOSED,
+        /**
+         * The DM failed for another reason, after all retries.
+         */
+        FAILED
+    }
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final KeyValueStore closedStore = StorageManager.getInstance().getBackend().getKeyValueStore("closedDMs");
+    // user ID to when their DMs were found closed, in epoch millis
+    private final Map<Long, Long> closedSince = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Long, PrivateChannel> channels = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PrivateChannel> eldest) {
+            return size() > MAX_CACHED_CHANNELS;
+        }
+    };
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SSB-DMRetry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DirectMessageService() {
+        closedStore.getAll().forEach((userID, since) -> {
+            try {
+                closedSince.put(Long.parseLong(userID), KeyValueStore.convert(since, 0L));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid closed DM entry {}", userID);
+            }
+        });
+        metrics.registerGauge("dm.closedUsers", closedSince::size);
+        metrics.registerGauge("dm.cachedChannels", () -> {
+            synchronized (channels) {
+                return channels.size();
+            }
+        });
+    }
+
+    private static final class Delivery {
+        private final long userID;
+        private final MessageCreateData message;
+        private final RestScheduler.Priority priority;
+        // retries run on the retry thread, they are still counted for the feature that sent the DM
+        private final String feature = RestInstrumentation.currentFeature();
+        private final CompletableFuture<DeliveryResult> result = new CompletableFuture<>();
+        private int attempts;
+
+        private Delivery(long userID, MessageCreateData message, RestScheduler.Priority priority) {
+            this.userID = userID;
+            this.message = message;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Sends a DM.
+     *
+     * @param userID  The recipient.
+     * @param message The message. It is sent again on retries, so it must not have file uploads.
+     * @return A future completed once the DM was delivered or given up on. Never completes exceptionally.
+     */
+    public CompletableFuture<DeliveryResult> send(long userID, MessageCreateData message) {
+        return send(userID, message, RestScheduler.Priority.DM);
+    }
+
+    /**
+     * Sends the same DM to many users, below every other kind of request, so interaction replies,
+     * moderation and single DMs go first.
+     *
+     * @param userIDs The recipients.
+     * @param message The message. It is sent again on retries, so it must not have file uploads.
+     * @return A future completed with the number of recipients per result, once every DM was delivered or given up on.
+     */
+    public CompletableFuture<Map<DeliveryResult, Integer>> sendToAll(Collection<Long> userIDs, MessageCreateData message) {
+        List<CompletableFuture<DeliveryResult>> deliveries = new ArrayList<>(userIDs.size());
+        for (long userID : userIDs) {
+            deliveries.add(send(userID, message, RestScheduler.Priority.BULK));
+        }
+        return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<DeliveryResult, Integer> counts = new EnumMap<>(DeliveryResult.class);
+            deliveries.forEach(delivery -> counts.merge(delivery.join(), 1, Integer::sum));
+            return counts;
+        });
+    }
+
+    /**
+     * @param userID The user.
+     * @return true if the user's DMs were found closed within the last {@code CLOSED_RECHECK_DAYS}.
+     */
+    public boolean hasClosedDMs(long userID) {
+        Long since = closedSince.get(userID);
+        return since != null && System.currentTimeMillis() - since < TimeUnit.DAYS.toMillis(CLOSED_RECHECK_DAYS);
+    }
+
+    private CompletableFuture<DeliveryResult> send(long userID, MessageCreateData message, RestScheduler.Priority priority) {
+        Delivery delivery = new Delivery(userID, message, priority);
+        if (hasClosedDMs(userID)) {
+            metrics.increment("dm.skippedClosed");
+            delivery.result.complete(DeliveryResult.DMS_CLOSED);
+        } else {
+            attempt(delivery);
+        }
+        return delivery.result;
+    }
+
+    private void attempt(Delivery delivery) {
+        delivery.attempts++;
+        PrivateChannel cached;
+        synchronized (channels) {
+            cached = channels.get(delivery.userID);
+        }
+        RestAction<Message> action = cached != null
+                ? cached.sendMessage(delivery.message)
+                : SSBMain.getJDA().openPrivateChannelById(delivery.userID)
+                        .map(channel -> {
+                            synchronized (channels) {
+                                channels.put(delivery.userID, channel);
+                            }
+                            return channel;
+                        })
+                        .flatMap(channel -> channel.sendMessage(delivery.message));
+        try {
+            RestScheduler.getInstance().submit(action, delivery.priority, RestScheduler.dmBucket(delivery.userID))
+                    .whenComplete((sent, error) -> handleResult(delivery, error));
+        } catch (Exception e) {
+            handleResult(delivery, e);
+        }
+    }
+
+    private void handleResult(Delivery delivery, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            if (closedSince.remove(delivery.userID) != null) {
+                closedStore.remove(String.valueOf(delivery.userID));
+            }
+            metrics.increment("dm.sent");
+            delivery.result.complete(DeliveryResult.SENT);
+            return;
+        }
+
+        boolean retry;
+        if (cause instanceof ErrorResponseException response) {
+            ErrorResponse errorResponse = response.getErrorResponse();
+            if (errorResponse == ErrorResponse.CANNOT_SEND_TO_USER) {
+                markClosed(delivery.userID);
+                delivery.result.complete(DeliveryResult.DMS_CLOSED);
+                return;
+            }
+            if (errorResponse == ErrorResponse.UNKNOWN_CHANNEL) {
+                // the cached channel is gone, the retry opens a new one
+                synchronized (channels) {
+                    channels.remove(delivery.userID);
+                }
+            }
+            retry = errorResponse == ErrorResponse.UNKNOWN_CHANNEL || response.isServerError();
+        } else {
+            // timeouts and connection errors
+            retry = true;
+        }
+
+        if (retry && delivery.attempts <= RETRY_DELAYS_SECONDS.length) {
+            long delay = RETRY_DELAYS_SECONDS[delivery.attempts - 1];
+            log.debug("DM to {} failed, retrying in {} seconds: {}", delivery.userID, delay, cause.getMessage());
+            metrics.increment("dm.retries");
+            retryScheduler.schedule(() -> RestInstrumentation.runAs(delivery.feature, () -> attempt(delivery)), delay, TimeUnit.SECONDS);
+            return;
+        }
+        log.warn("Failed to DM user {} after {} attempts: {}", delivery.userID, delivery.attempts, cause.getMessage());
+        metrics.increment("dm.failed");
+        delivery.result.complete(DeliveryResult.FAILED);
+    }
+
+    private void markClosed(long userID) {
+        long now = System.currentTimeMillis();
+        closedSince.put(userID, now);
+        closedStore.set(String.valueOf(userID), now);
+        metrics.increment("dm.closed");
+        log.debug("User {} doesn't accept DMs, skipping them for {} days.", userID, CLOSED_RECHECK_DAYS);
+    }
+}
@@ -0,0 +1,195 @@
+package dev.iseal.SSB.managers;
+
+import dev.iseal.SSB.registries.MetricsRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.utils.TimeUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers who sent the last {@code MESSAGES_PER_CHANNEL} messages of each channel, so listeners can resolve
+ * reply authors and channel activity without a REST call or JDA's message cache.
+ * <p>
+ * Each channel has a ring buffer of primitive arrays, roughly 17 bytes per message. The message timestamp is not
+ * stored, it is part of the snowflake. At most {@code MAX_CHANNELS} channels are kept, the least recently active
+ * ones are dropped first, which caps the memory used at a few megabytes however many channels the bot sees.
+ * Messages are recorded by {@link dev.iseal.SSB.listeners.MessageListener} before any feature sees them.
+ */
+public class RecentMessageStore {
+
+    private static final RecentMessageStore instance = new RecentMessageStore();
+    public static RecentMessageStore getInstance() {
+        return instance;
+    }
+
+    public static final byte FLAG_BOT = 1;
+    public static final byte FLAG_WEBHOOK = 1 << 1;
+    public static final byte FLAG_REPLY = 1 << 2;
+    public static final byte FLAG_ATTACHMENTS = 1 << 3;
+
+    private static final int MESSAGES_PER_CHANNEL = 64;
+    private static final int MAX_CHANNELS = 4096;
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final LinkedHashMap<Long, ChannelMessages> channels = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ChannelMessages> eldest) {
+            return size() > MAX_CHANNELS;
+        }
+    };
+
+    private RecentMessageStore() {
+        metrics.registerGauge("recentMessages.channels", () -> {
+            synchronized (channels) {
+                return channels.size();
+            }
+        });
+    }
+
+    /**
+     * A message as the store remembers it.
+     *
+     * @param messageID The message.
+     * @param authorID  Its author.
+     * @param flags     A combination of the {@code FLAG_} constants.
+     */
+    public record RecentMessage(long messageID, long authorID, byte flags) {
+        /**
+         * @return When the message was sent, in epoch millis.
+         */
+        public long timestamp() {
+            return TimeUtil.getTimeCreated(messageID).toInstant().toEpochMilli();
+        }
+
+        public boolean hasFlag(byte flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    private static class ChannelMessages {
+        private final long[] messageIDs = new long[MESSAGES_PER_CHANNEL];
+        private final long[] authorIDs = new long[MESSAGES_PER_CHANNEL];
+        private final byte[] flags = new byte[MESSAGES_PER_CHANNEL];
+        // index of the next write, the newest message is at next - 1
+        private int next;
+        private int size;
+
+        private synchronized void add(long messageID, long authorID, byte messageFlags) {
+            messageIDs[next] = messageID;
+            authorIDs[next] = authorID;
+            flags[next] = messageFlags;
+            next = (next + 1) % MESSAGES_PER_CHANNEL;
+            size = Math.min(size + 1, MESSAGES_PER_CHANNEL);
+        }
+
+        // newest first, replies are usually to recent messages
+        private synchronized int indexOf(long messageID) {
+            for (int i = 1; i <= size; i++) {
+                int index = (next - i + MESSAGES_PER_CHANNEL) % MESSAGES_PER_CHANNEL;
+                if (messageIDs[index] == messageID) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private synchronized long newestMessageID() {
+            return size == 0 ? 0 : messageIDs[(next - 1 + MESSAGES_PER_CHANNEL) % MESSAGES_PER_CHANNEL];
+        }
+
+        private synchronized int countSince(long sinceMessageID) {
+            int count = 0;
+            for (int i = 1; i <= size; i++) {
+                if (messageIDs[(next - i + MESSAGES_PER_CHANNEL) % MESSAGES_PER_CHANNEL] < sinceMessageID) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Records a received message.
+     *
+     * @param message The message.
+     */
+    public void record(Message message) {
+        byte messageFlags = 0;
+        if (message.getAuthor().isBot()) messageFlags |= FLAG_BOT;
+        if (message.isWebhookMessage()) messageFlags |= FLAG_WEBHOOK;
+        if (message.getMessageReference() != null) messageFlags |= FLAG_REPLY;
+        if (!message.getAttachments().isEmpty()) messageFlags |= FLAG_ATTACHMENTS;
+
+        ChannelMessages channelMessages;
+        synchronized (channels) {
+            channelMessages = channels.computeIfAbsent(message.getChannel().getIdLong(), id -> new ChannelMessages());
+        }
+        channelMessages.add(message.getIdLong(), message.getAuthor().getIdLong(), messageFlags);
+    }
+
+    /**
+     * Looks up a recent message.
+     *
+     * @param channelID The channel.
+     * @param messageID The message.
+     * @return The message, or null if it is older than what the store keeps or was sent while the bot was offline.
+     */
+    public RecentMessage find(long channelID, long messageID) {
+        ChannelMessages channelMessages = getChannel(channelID);
+        if (channelMessages == null) {
+            metrics.increment("recentMessages.misses");
+            return null;
+        }
+        synchronized (channelMessages) {
+            int index = channelMessages.indexOf(messageID);
+            if (index < 0) {
+                metrics.increment("recentMessages.misses");
+                return null;
+            }
+            metrics.increment("recentMessages.hits");
+            return new RecentMessage(messageID, channelMessages.authorIDs[index], channelMessages.flags[index]);
+        }
+    }
+
+    /**
+     * Gets the author of a recent message, for example the user a reply went to.
+     *
+     * @param channelID The channel.
+     * @param messageID The message.
+     * @return The author ID, or 0 if the message is unknown.
+     */
+    public long getAuthorID(long channelID, long messageID) {
+        RecentMessage message = find(channelID, messageID);
+        return message == null ? 0 : message.authorID();
+    }
+
+    /**
+     * @param channelID The channel.
+     * @return When the last message seen in the channel was sent, in epoch millis, or 0 if none was seen.
+     */
+    public long getLastMessageTime(long channelID) {
+        ChannelMessages channelMessages = getChannel(channelID);
+        long newest = channelMessages == null ? 0 : channelMessages.newestMessageID();
+        return newest == 0 ? 0 : TimeUtil.getTimeCreated(newest).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Counts the recent messages of a channel. The count can't exceed the number of messages kept per channel.
+     *
+     * @param channelID   The channel.
+     * @param sinceMillis The start of the period, in epoch millis.
+     * @return The number of messages seen in the channel since then.
+     */
+    public int countMessagesSince(long channelID, long sinceMillis) {
+        ChannelMessages channelMessages = getChannel(channelID);
+        return channelMessages == null ? 0 : channelMessages.countSince(TimeUtil.getDiscordTimestamp(sinceMillis));
+    }
+
+    private ChannelMessages getChannel(long channelID) {
+        synchronized (channels) {
+            return channels.get(channelID);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package dev.iseal.SSB.managers;
+
+import dev.iseal.SSB.registries.MetricsRegistry;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.requests.RestConfig;
+import net.dv8tion.jda.api.requests.RestRateLimiter;
+import net.dv8tion.jda.api.requests.Route;
+import net.dv8tion.jda.api.requests.SequentialRestRateLimiter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import okhttp3.Response;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records every REST request JDA makes, per route and per feature, in {@link MetricsRegistry}.
+ * <p>
+ * JDA's own rate limiter is wrapped, so every request is seen, including the ones not made through the
+ * {@link RestScheduler}. Per route (method and path template, like {@code POST channels/{channel_id}/messages})
+ * and per feature it publishes:
+ * <ul>
+ *     <li>{@code .requests}, the number of HTTP attempts</li>
+ *     <li>{@code .rateLimited}, the number of 429 responses</li>
+ *     <li>{@code .latency}, the duration of each attempt</li>
+ *     <li>{@code .wait}, the time a request spent in its rate limit bucket before the first attempt</li>
+ * </ul>
+ * under {@code restRoute.<route>} and {@code restFeature.<feature>}.
+ * <p>
+ * The feature is whatever {@link #runAs(String, Runnable)} set on the thread that queued the request.
+ * It is kept while the request runs and passed on through JDA's callback pool, so the follow-up requests
+ * of {@code flatMap} chains and callbacks are counted for the same feature. Requests from untagged code
+ * are counted as {@code untagged}.
+ * <p>
+ * While debug logging is enabled for this class, requests made with a blocking {@code complete()} from a
+ * dispatch thread are logged with their caller and counted in {@code rest.blockingCalls}. Dispatch threads
+ * are JDA's own threads and any thread running tagged feature code, like the command pool or the sticky
+ * timer, none of which should be parked on network I/O. Threads started for long running work, like test
+ * server creation, aren't tagged and may block.
+ */
+public class RestInstrumentation {
+
+    private static final String UNTAGGED = "untagged";
+    private static final String JDA_PACKAGE = "net.dv8tion.jda.";
+    private static final Logger log = JDALogger.getLog(RestInstrumentation.class);
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+    private static final ThreadLocal<String> currentFeature = new ThreadLocal<>();
+    private static final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+    private RestInstrumentation() {}
+
+    /**
+     * @return The feature REST requests queued on this thread are counted for.
+     */
+    public static String currentFeature() {
+        String feature = currentFeature.get();
+        return feature == null ? UNTAGGED : feature;
+    }
+
+    /**
+     * Runs code with REST requests counted for a feature.
+     *
+     * @param feature The feature name, like {@code feature.command.root}. Null counts requests as untagged.
+     * @param task    The code.
+     */
+    public static void runAs(String feature, Runnable task) {
+        callAs(feature, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs code with REST requests counted for a feature.
+     *
+     * @param feature The feature name. Null counts requests as untagged.
+     * @param task    The code.
+     * @param <T>     The result type.
+     * @return The result of the code.
+     */
+    public static <T> T callAs(String feature, Supplier<T> task) {
+        String previous = currentFeature.get();
+        currentFeature.set(feature);
+        try {
+            return task.get();
+        } finally {
+            currentFeature.set(previous);
+        }
+    }
+
+    /**
+     * @return A rest config that records every request, to be passed to {@code JDABuilder#setRestConfig}.
+     */
+    public static RestConfig createRestConfig() {
+        return new RestConfig().setRateLimiterFactory(config -> new InstrumentedRateLimiter(new SequentialRestRateLimiter(config)));
+    }
+
+    /**
+     * Wraps JDA's callback pool, so callbacks run with the feature of the request that triggered them.
+     * To be passed to {@code JDABuilder#setCallbackPool}.
+     *
+     * @param pool The pool that actually runs the callbacks.
+     * @return The wrapped pool. Shutting it down shuts down {@code pool}.
+     */
+    public static ExecutorService wrapCallbackPool(ExecutorService pool) {
+        return new FeaturePropagatingExecutor(pool);
+    }
+
+    private static String routeName(Route.CompiledRoute route) {
+        Route baseRoute = route.getBaseRoute();
+        return baseRoute.getMethod() + " " + baseRoute.getRoute();
+    }
+
+    /**
+     * Logs the request if it was made with {@code complete()} on a dispatch thread. Requests are enqueued on the
+     * thread that made them, so the stack still shows whether they were queued or completed.
+     */
+    private static void detectBlockingCall(Route.CompiledRoute route) {
+        // walking the stack on every request isn't free, only done while debugging
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        if (currentFeature.get() == null && !thread.getName().startsWith("JDA")) {
+            return;
+        }
+        StackWalker.StackFrame caller = stackWalker.walk(frames -> frames
+                .dropWhile(frame -> !(frame.getMethodName().equals("complete") && frame.getClassName().startsWith(JDA_PACKAGE)))
+                .filter(frame -> !frame.getClassName().startsWith(JDA_PACKAGE))
+                .findFirst()
+                .orElse(null));
+        if (caller == null) {
+            return;
+        }
+        metrics.increment("rest.blockingCalls");
+        log.warn("Blocking complete() of {} on dispatch thread {} for {}, called at {}",
+                routeName(route), thread.getName(), currentFeature(), caller);
+    }
+
+    private static void record(String route, String feature, String metric, long millis) {
+        metrics.recordTime("restRoute." + route + "." + metric, millis);
+        metrics.recordTime("restFeature." + feature + "." + metric, millis);
+    }
+
+    private static void count(String route, String feature, String metric) {
+        metrics.increment("restRoute." + route + "." + metric);
+        metrics.increment("restFeature." + feature + "." + metric);
+    }
+
+    private record InstrumentedRateLimiter(RestRateLimiter delegate) implements RestRateLimiter {
+        @Override
+        public void enqueue(Work task) {
+            detectBlockingCall(task.getRoute());
+            delegate.enqueue(new InstrumentedWork(task, currentFeature(), System.currentTimeMillis()));
+        }
+
+        @Override
+        public void stop(boolean shutdown, Runnable callback) {
+            delegate.stop(shutdown, callback);
+        }
+
+        @Override
+        public boolean isStopped() {
+            return delegate.isStopped();
+        }
+
+        @Override
+        public int cancelRequests() {
+            return delegate.cancelRequests();
+        }
+    }
+
+    private static final class InstrumentedWork implements RestRateLimiter.Work {
+        private final RestRateLimiter.Work delegate;
+        private final String feature;
+        private final String route;
+        private final long enqueuedAt;
+        private volatile boolean attempted;
+
+        private InstrumentedWork(RestRateLimiter.Work delegate, String feature, long enqueuedAt) {
+            this.delegate = delegate;
+            this.feature = feature;
+            this.route = routeName(delegate.getRoute());
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public Route.CompiledRoute getRoute() {
+            return delegate.getRoute();
+        }
+
+        @Override
+        public JDA getJDA() {
+            return delegate.getJDA();
+        }
+
+        @Override
+        public Response execute() {
+            long start = System.currentTimeMillis();
+            if (!attempted) {
+                attempted = true;
+                record(route, feature, "wait", start - enqueuedAt);
+            }
+            // callbacks are handed to the callback pool from within execute, they pick the feature up from here
+            Response response = callAs(feature, delegate::execute);
+            count(route, feature, "requests");
+            record(route, feature, "latency", System.currentTimeMillis() - start);
+            if (response != null && response.code() == 429) {
+                count(route, feature, "rateLimited");
+            }
+            return response;
+        }
+
+        @Override
+        public boolean isSkipped() {
+            return delegate.isSkipped();
+        }
+
+        @Override
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        @Override
+        public boolean isPriority() {
+            return delegate.isPriority();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return delegate.isCancelled();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+    }
+
+    private static final class FeaturePropagatingExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+
+        private FeaturePropagatingExecutor(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            String feature = currentFeature.get();
+            delegate.execute(feature == null ? command : () -> runAs(feature, command));
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package dev.iseal.SSB.managers;
+
+import dev.iseal.SSB.registries.MetricsRegistry;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules outbound {@link RestAction}s by priority, so background traffic can't delay what users are waiting on.
+ * <p>
+ * Actions are queued per bucket (usually a channel, see {@link #channelBucket(long)}). A bucket runs one action
+ * at a time, in priority order and then in submission order. Actions of the same priority on the same target
+ * never overtake each other, but a higher priority action overtakes lower priority ones still queued in its
+ * bucket. Across buckets the highest priority head runs first, within the limits of its priority:
+ * every priority may only have {@link Priority#maxInFlight} actions running, and only {@link Priority#MODERATION}
+ * may use the last {@code RESERVED_FOR_MODERATION} of the {@code MAX_IN_FLIGHT} request slots. A slot is held
+ * until JDA is done with the action, including JDA's own rate limit backoff, so without these limits a few
+ * rate limited sticky channels could hold every slot and keep timeouts and DMs in other buckets waiting.
+ * JDA still does the actual rate limit handling, this only decides what is handed to it first.
+ * <p>
+ * Interaction replies don't go through here, they have to be answered within seconds and are handed to JDA right away.
+ * <p>
+ * Actions submitted with a coalescing key replace a queued action with the same key in the same bucket,
+ * for edits where only the latest content matters. The replaced action's future is cancelled.
+ * <p>
+ * Queue depth, running actions and wait time per priority are published to {@link MetricsRegistry} as
+ * {@code rest.<priority>.queued}, {@code rest.<priority>.inFlight} and {@code rest.<priority>.wait}.
+ */
+public class RestScheduler {
+
+    private static final RestScheduler instance = new RestScheduler();
+    public static RestScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Priority classes, highest first.
+     */
+    public enum Priority {
+        MODERATION(MAX_IN_FLIGHT),
+        STICKY(3),
+        DM(3),
+        PROGRESS(2),
+        BULK(2);
+
+        /**
+         * The most actions of this priority that may run at the same time.
+         */
+        private final int maxInFlight;
+        private final String metricPrefix = "rest." + name().toLowerCase();
+
+        Priority(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final int RESERVED_FOR_MODERATION = 2;
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    // buckets that can start their head, by the priority of the head, oldest head first
+    private final List<PriorityQueue<Bucket>> readyBuckets = new ArrayList<>();
+    private final AtomicInteger[] queuedByPriority = new AtomicInteger[Priority.values().length];
+    private final int[] inFlightByPriority = new int[Priority.values().length];
+    private long nextSequence;
+    private int inFlight;
+    // actions whose future is already complete finish inside start(), their pump() is folded into the running one
+    private boolean pumping;
+    private boolean pumpAgain;
+
+    private RestScheduler() {
+        for (Priority priority : Priority.values()) {
+            AtomicInteger queued = new AtomicInteger();
+            queuedByPriority[priority.ordinal()] = queued;
+            metrics.registerGauge(priority.metricPrefix + ".queued", queued::get);
+            metrics.registerGauge(priority.metricPrefix + ".inFlight", () -> {
+                synchronized (this) {
+                    return inFlightByPriority[priority.ordinal()];
+                }
+            });
+            readyBuckets.add(new PriorityQueue<>(Comparator.comparingLong(bucket -> bucket.queue.peek().sequence)));
+        }
+        metrics.registerGauge("rest.inFlight", () -> {
+            synchronized (this) {
+                return inFlight;
+            }
+        });
+    }
+
+    private static class Bucket {
+        private final String key;
+        private final PriorityQueue<Job<?>> queue = new PriorityQueue<>();
+        private final Map<String, Job<?>> coalescable = new HashMap<>();
+        private boolean running;
+        // the priority queue of readyBuckets the bucket is in, null while it isn't ready
+        private Priority readyAs;
+
+        private Bucket(String key) {
+            this.key = key;
+        }
+    }
+
+    private static class Job<T> implements Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final long queuedAt = System.currentTimeMillis();
+        private final String coalesceKey;
+        // captured at submit time, the action may be started from another feature's callback
+        private final String feature = RestInstrumentation.currentFeature();
+        private RestAction<T> action;
+        private CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Job(Priority priority, long sequence, String coalesceKey, RestAction<T> action) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.coalesceKey = coalesceKey;
+            this.action = action;
+        }
+
+        private void run(Runnable done) {
+            CompletableFuture<T> target = future;
+            RestInstrumentation.callAs(feature, action::submit).whenComplete((result, error) -> {
+                done.run();
+                if (error != null) {
+                    target.completeExceptionally(error);
+                } else {
+                    target.complete(result);
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * @param channelID The channel.
+     * @return The bucket for actions on a channel and its messages.
+     */
+    public static String channelBucket(long channelID) {
+        return "channel:" + channelID;
+    }
+
+    /**
+     * @param userID The user.
+     * @return The bucket for direct messages to a user.
+     */
+    public static String dmBucket(long userID) {
+        return "dm:" + userID;
+    }
+
+    /**
+     * @param guildID The guild.
+     * @return The bucket for member actions like timeouts in a guild.
+     */
+    public static String guildBucket(long guildID) {
+        return "guild:" + guildID;
+    }
+
+    /**
+     * @param interactionID The interaction.
+     * @return The bucket for replies and edits of an interaction.
+     */
+    public static String interactionBucket(long interactionID) {
+        return "interaction:" + interactionID;
+    }
+
+    /**
+     * Queues an action.
+     *
+     * @param action   The action.
+     * @param priority Its priority class.
+     * @param bucket   The bucket, actions in the same bucket run one after another.
+     * @param <T>      The result type.
+     * @return A future completed with the result of the action.
+     */
+    public <T> CompletableFuture<T> submit(RestAction<T> action, Priority priority, String bucket) {
+        return submit(action, priority, bucket, null);
+    }
+
+    /**
+     * Queues an action, replacing a queued action with the same coalescing key in the same bucket.
+     * The replaced action keeps its place in the queue, and its future is cancelled.
+     *
+     * @param action      The action.
+     * @param priority    Its priority class.
+     * @param bucket      The bucket, actions in the same bucket run one after another.
+     * @param coalesceKey The coalescing key, or null to never replace.
+     * @param <T>         The result type.
+     * @return A future completed with the result of the action.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> submit(RestAction<T> action, Priority priority, String bucket, String coalesceKey) {
+        Bucket target = buckets.computeIfAbsent(bucket, Bucket::new);
+
+        if (coalesceKey != null) {
+            Job<T> queued = (Job<T>) target.coalescable.get(coalesceKey);
+            if (queued != null && queued.priority == priority) {
+                queued.future.cancel(false);
+                queued.action = action;
+                queued.future = new CompletableFuture<>();
+                metrics.increment(priority.metricPrefix + ".coalesced");
+                return queued.future;
+            }
+        }
+
+        Job<T> job = new Job<>(priority, nextSequence++, coalesceKey, action);
+        // the head may change, so the bucket has to be re-sorted
+        unmarkReady(target);
+        target.queue.add(job);
+        if (coalesceKey != null) {
+            target.coalescable.put(coalesceKey, job);
+        }
+        if (!target.running) {
+            markReady(target);
+        }
+        queuedByPriority[priority.ordinal()].incrementAndGet();
+        pump();
+        return job.future;
+    }
+
+    /**
+     * Drops a queued action that has not started yet, for example progress edits that would
+     * otherwise overwrite a final message. Its future is cancelled.
+     *
+     * @param bucket      The bucket.
+     * @param coalesceKey The coalescing key the action was submitted with.
+     */
+    public synchronized void discard(String bucket, String coalesceKey) {
+        Bucket target = buckets.get(bucket);
+        if (target == null) {
+            return;
+        }
+        Job<?> job = target.coalescable.remove(coalesceKey);
+        if (job == null) {
+            return;
+        }
+        unmarkReady(target);
+        target.queue.remove(job);
+        queuedByPriority[job.priority.ordinal()].decrementAndGet();
+        job.future.cancel(false);
+        if (target.queue.isEmpty()) {
+            if (!target.running) {
+                buckets.remove(bucket);
+            }
+        } else if (!target.running) {
+            markReady(target);
+        }
+    }
+
+    // must hold the lock, the bucket must not be running and not be empty
+    private void markReady(Bucket bucket) {
+        bucket.readyAs = bucket.queue.peek().priority;
+        readyBuckets.get(bucket.readyAs.ordinal()).add(bucket);
+    }
+
+    // must hold the lock
+    private void unmarkReady(Bucket bucket) {
+        if (bucket.readyAs != null) {
+            readyBuckets.get(bucket.readyAs.ordinal()).remove(bucket);
+            bucket.readyAs = null;
+        }
+    }
+
+    private boolean hasFreeSlot(Priority priority) {
+        int limit = priority == Priority.MODERATION ? MAX_IN_FLIGHT : MAX_IN_FLIGHT - RESERVED_FOR_MODERATION;
+        return inFlight < limit && inFlightByPriority[priority.ordinal()] < priority.maxInFlight;
+    }
+
+    // starts as many queued actions as the free slots allow, highest priority first, must hold the lock
+    private void pump() {
+        if (pumping) {
+            // a slot was freed while starting an action, go over the priorities again once it returns
+            pumpAgain = true;
+            return;
+        }
+        pumping = true;
+        try {
+            do {
+                pumpAgain = false;
+                for (Priority priority : Priority.values()) {
+                    PriorityQueue<Bucket> ready = readyBuckets.get(priority.ordinal());
+                    while (!ready.isEmpty() && hasFreeSlot(priority)) {
+                        Bucket bucket = ready.poll();
+                        bucket.readyAs = null;
+                        start(bucket);
+                    }
+                }
+            } while (pumpAgain);
+        } finally {
+            pumping = false;
+        }
+    }
+
+    // must hold the lock
+    private void start(Bucket bucket) {
+        Job<?> job = bucket.queue.poll();
+        if (job.coalesceKey != null) {
+            bucket.coalescable.remove(job.coalesceKey, job);
+        }
+        bucket.running = true;
+        inFlight++;
+        inFlightByPriority[job.priority.ordinal()]++;
+        queuedByPriority[job.priority.ordinal()].decrementAndGet();
+        metrics.recordTime(job.priority.metricPrefix + ".wait", System.currentTimeMillis() - job.queuedAt);
+
+        try {
+            job.run(() -> finished(bucket, job.priority));
+        } catch (Exception e) {
+            // submit() itself can throw, for example on missing permissions
+            log.warn("Failed to start {} action in {}: {}", job.priority, bucket.key, e.getMessage());
+            job.future.completeExceptionally(e);
+            release(bucket, job.priority);
+        }
+    }
+
+    private synchronized void finished(Bucket bucket, Priority priority) {
+        release(bucket, priority);
+        pump();
+    }
+
+    // must hold the lock
+    private void release(Bucket bucket, Priority priority) {
+        bucket.running = false;
+        inFlight--;
+        inFlightByPriority[priority.ordinal()]--;
+        if (bucket.queue.isEmpty()) {
+            buckets.remove(bucket.key);
+        } else {
+            markReady(bucket);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.iseal.SSB.managers;
+
+import de.leonhard.storage.Yaml;
+import dev.iseal.SSB.storage.StorageBackend;
+import dev.iseal.SSB.storage.json.JsonStorageBackend;
+import dev.iseal.SSB.storage.sql.SqliteStorageBackend;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.File;
+
+/**
+ * Owns the {@link StorageBackend} every feature persists its data through.
+ * The backend is picked by the {@code backend} key of {@code config/storage/config.yml}
+ * ({@code json} or {@code sqlite}). Switching backends needs a restart, use
+ * {@link dev.iseal.SSB.storage.StorageMigrator} to move the existing data over first.
+ * The {@code fsync} key (default true) controls whether the json backend flushes every write to disk.
+ */
+public class StorageManager {
+
+    private static StorageManager instance;
+    // synchronized, two instances would open the same files twice
+    public static synchronized StorageManager getInstance() {
+        if (instance == null) {
+            instance = new StorageManager();
+        }
+        return instance;
+    }
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final StorageBackend backend;
+
+    private StorageManager() {
+        Yaml yaml = ConfigManager.getInstance().openYaml("config.yml", System.getProperty("user.dir") + File.separator + "config" + File.separator + "storage");
+        yaml.setDefault("backend", JsonStorageBackend.NAME);
+        yaml.setDefault("fsync", true);
+        backend = createBackend(yaml.getString("backend"), yaml.getBoolean("fsync"));
+        Runtime.getRuntime().addShutdownHook(new Thread(backend::close, "ShutdownHook-Storage"));
+        log.info("Using {} storage backend.", backend.getName());
+    }
+
+    /**
+     * @return The active storage backend.
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return The directory all backends keep their data in.
+     */
+    public static String getDataDirectory() {
+        return System.getProperty("user.dir") + File.separator + "data";
+    }
+
+    /**
+     * Creates a backend by name, with fsync enabled.
+     *
+     * @param name The backend name, {@code json} or {@code sqlite}.
+     * @return A new backend over the default data directory.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static StorageBackend createBackend(String name) {
+        return createBackend(name, true);
+    }
+
+    /**
+     * Creates a backend by name.
+     *
+     * @param name  The backend name, {@code json} or {@code sqlite}.
+     * @param fsync Whether the json backend flushes writes to disk. SQLite handles durability itself.
+     * @return A new backend over the default data directory.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static StorageBackend createBackend(String name, boolean fsync) {
+        return switch (name.toLowerCase()) {
+            case JsonStorageBackend.NAME -> new JsonStorageBackend(getDataDirectory(), fsync);
+            case SqliteStorageBackend.NAME -> new SqliteStorageBackend(getDataDirectory());
+            default -> throw new IllegalArgumentException("Unknown storage backend: " + name);
+        };
+    }
+}
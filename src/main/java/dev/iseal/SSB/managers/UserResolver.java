@@ -0,0 +1,165 @@
+package dev.iseal.SSB.managers;
+
+import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.registries.MetricsRegistry;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Resolves users and members without blocking, for code that can't rely on JDA's cache.
+ * <p>
+ * JDA's cache is checked first. Users and members it doesn't have are fetched once and kept for a while,
+ * including the ones Discord doesn't know, so a deleted account isn't fetched again on every lookup.
+ * Concurrent lookups of the same ID share one request, so a burst of ad reviews for the same author
+ * only makes a single REST call. Failures other than "unknown" are not cached.
+ */
+public class UserResolver {
+
+    private static final UserResolver instance = new UserResolver();
+    public static UserResolver getInstance() {
+        return instance;
+    }
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long USER_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long UNKNOWN_USER_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // roles and nicknames change more often than usernames
+    private static final long MEMBER_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long UNKNOWN_MEMBER_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Lookups<Long, User> users = new Lookups<>("userResolver.users", USER_TTL_MILLIS, UNKNOWN_USER_TTL_MILLIS,
+            Set.of(ErrorResponse.UNKNOWN_USER));
+    private final Lookups<MemberKey, Member> members = new Lookups<>("userResolver.members", MEMBER_TTL_MILLIS, UNKNOWN_MEMBER_TTL_MILLIS,
+            Set.of(ErrorResponse.UNKNOWN_MEMBER, ErrorResponse.UNKNOWN_USER));
+
+    private UserResolver() {}
+
+    private record MemberKey(long guildID, long userID) {}
+
+    /**
+     * Resolves a user.
+     *
+     * @param userID The user.
+     * @return The user, or empty if Discord doesn't know it. Fails if the user couldn't be fetched for another reason.
+     */
+    public CompletableFuture<Optional<User>> resolveUser(long userID) {
+        return users.resolve(
+                userID,
+                () -> SSBMain.getJDA().getUserById(userID),
+                () -> SSBMain.getJDA().retrieveUserById(userID)
+        );
+    }
+
+    /**
+     * Resolves a member of a guild.
+     *
+     * @param guild  The guild.
+     * @param userID The user.
+     * @return The member, or empty if the user isn't in the guild. Fails if the member couldn't be fetched for another reason.
+     */
+    public CompletableFuture<Optional<Member>> resolveMember(Guild guild, long userID) {
+        return members.resolve(
+                new MemberKey(guild.getIdLong(), userID),
+                () -> guild.getMemberById(userID),
+                () -> guild.retrieveMemberById(userID)
+        );
+    }
+
+    private record CacheEntry<V>(V value, long expiresAt) {}
+
+    /**
+     * The cache and in-flight requests for one kind of entity.
+     */
+    private static final class Lookups<K, V> {
+        private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        private final String metricPrefix;
+        private final long ttlMillis;
+        private final long unknownTtlMillis;
+        private final Set<ErrorResponse> unknownResponses;
+        private final LinkedHashMap<K, CacheEntry<V>> cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+        private final Map<K, CompletableFuture<Optional<V>>> inFlight = new ConcurrentHashMap<>();
+
+        private Lookups(String metricPrefix, long ttlMillis, long unknownTtlMillis, Set<ErrorResponse> unknownResponses) {
+            this.metricPrefix = metricPrefix;
+            this.ttlMillis = ttlMillis;
+            this.unknownTtlMillis = unknownTtlMillis;
+            this.unknownResponses = unknownResponses;
+            metrics.registerGauge(metricPrefix + ".cached", () -> {
+                synchronized (cache) {
+                    return cache.size();
+                }
+            });
+        }
+
+        private CompletableFuture<Optional<V>> resolve(K key, Supplier<V> fromJdaCache, Supplier<RestAction<V>> fetch) {
+            V cachedByJda = fromJdaCache.get();
+            if (cachedByJda != null) {
+                metrics.increment(metricPrefix + ".hits");
+                return CompletableFuture.completedFuture(Optional.of(cachedByJda));
+            }
+            long now = System.currentTimeMillis();
+            synchronized (cache) {
+                CacheEntry<V> entry = cache.get(key);
+                if (entry != null && entry.expiresAt() > now) {
+                    metrics.increment(metricPrefix + (entry.value() == null ? ".unknownHits" : ".hits"));
+                    return CompletableFuture.completedFuture(Optional.ofNullable(entry.value()));
+                }
+            }
+
+            CompletableFuture<Optional<V>> created = new CompletableFuture<>();
+            CompletableFuture<Optional<V>> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                metrics.increment(metricPrefix + ".coalesced");
+                return existing;
+            }
+            metrics.increment(metricPrefix + ".misses");
+            CompletableFuture<V> request;
+            try {
+                request = fetch.get().submit();
+            } catch (Exception e) {
+                // submit() can throw right away, later lookups must not wait on a request that was never made
+                inFlight.remove(key, created);
+                metrics.increment(metricPrefix + ".failures");
+                created.completeExceptionally(e);
+                return created;
+            }
+            request.whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                boolean unknown = cause instanceof ErrorResponseException response && unknownResponses.contains(response.getErrorResponse());
+                // cached before leaving the in-flight map, so a lookup in between can't miss both
+                if (cause == null || unknown) {
+                    synchronized (cache) {
+                        cache.put(key, new CacheEntry<>(value, System.currentTimeMillis() + (unknown ? unknownTtlMillis : ttlMillis)));
+                    }
+                }
+                inFlight.remove(key, created);
+                if (cause == null || unknown) {
+                    created.complete(Optional.ofNullable(value));
+                } else {
+                    metrics.increment(metricPrefix + ".failures");
+                    created.completeExceptionally(cause);
+                }
+            });
+            return created;
+        }
+    }
+}
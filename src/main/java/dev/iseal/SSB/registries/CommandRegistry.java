@@ -1,15 +1,18 @@
 package dev.iseal.SSB.registries;
 
 import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.RestInstrumentation;
 import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractCommand;
 import dev.iseal.SSB.utils.interfaces.Feature;
+import dev.iseal.SSB.utils.utils.BKTree;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.slf4j.Logger;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.stream.Collectors;
 
 public class CommandRegistry {
@@ -24,6 +27,8 @@ public class CommandRegistry {
 
     private final Logger log = JDALogger.getLog("SBB-CommandRegistry");
     private final HashMap<String, AbstractCommand> registeredCommands = new HashMap<>();
+    // built on the first lookup after a command is registered
+    private BKTree<String> nameIndex;
 
     private CommandRegistry() {}
 
@@ -46,7 +51,7 @@ public class CommandRegistry {
                     }
                 });
 
-        SSBMain.getJDA().getGuildCache().forEach(
+        RestInstrumentation.runAs("registry.commands", () -> SSBMain.getJDA().getGuildCache().forEach(
                 guild -> guild.updateCommands().addCommands(
                         registeredCommands.values().stream()
                                 .map(AbstractCommand::getCommand)
@@ -55,19 +60,37 @@ public class CommandRegistry {
                         success -> log.info("Command registered in guild {}", guild.getName()),
                         failure -> log.error("Failed to register command in guild {}: {}", guild.getName(), failure.getMessage())
                 )
-        );
+        ));
     }
 
     public void registerCommand(String commandName, AbstractCommand commandObject) {
         // Register the command with the command object
         log.info("Registering command: {}", commandName);
         registeredCommands.put(commandName, commandObject);
+        synchronized (this) {
+            nameIndex = null;
+        }
     }
 
     public boolean isCommandRegistered(String commandName) {
         return registeredCommands.containsKey(commandName);
     }
 
+    /**
+     * Suggests registered command names close to a name that isn't registered.
+     *
+     * @param commandName The mistyped name.
+     * @param limit       The most suggestions to return.
+     * @return The suggested command names, best first.
+     */
+    public synchronized List<String> suggestCommands(String commandName, int limit) {
+        if (nameIndex == null) {
+            nameIndex = new BKTree<>();
+            registeredCommands.keySet().forEach(name -> nameIndex.add(name, name));
+        }
+        return nameIndex.suggest(commandName, limit);
+    }
+
     public AbstractCommand getCommand(String commandName) {
         if (!isCommandRegistered(commandName)) {
             log.warn("Command {} is not registered", commandName);
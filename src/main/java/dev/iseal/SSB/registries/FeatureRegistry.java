@@ -1,11 +1,15 @@
 package dev.iseal.SSB.registries;
 
 import dev.iseal.SSB.utils.interfaces.Feature;
+import dev.iseal.SSB.utils.utils.BKTree;
+import dev.iseal.SSB.utils.utils.PrefixTrie;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class FeatureRegistry {
 
@@ -16,6 +20,10 @@ public class FeatureRegistry {
 
     private final ArrayList<Feature> enabledFeatures = new ArrayList<>();
     private final Map<String, Feature> registeredFeatures = new HashMap<>();
+    // built on the first lookup after the registered features change
+    private BKTree<String> nameIndex;
+    // kept up to date on every change, autocomplete can't wait for a rebuild
+    private final PrefixTrie<String> namePrefixes = new PrefixTrie<>();
 
     public void init() {
 
@@ -26,6 +34,8 @@ public class FeatureRegistry {
         if (registeredFeatures.containsKey(featureName))
             throw new IllegalArgumentException("Feature " + featureName + " is already registered");
         registeredFeatures.put(featureName, feature);
+        invalidateNameIndex();
+        forEachNamePrefixKey(featureName, key -> namePrefixes.add(key, featureName));
         if (feature.isEnabled()) {
             enabledFeatures.add(feature);
         }
@@ -36,6 +46,8 @@ public class FeatureRegistry {
             throw new IllegalArgumentException("Feature " + featureName + " is not registered");
         Feature feature = registeredFeatures.remove(featureName);
         enabledFeatures.remove(feature);
+        invalidateNameIndex();
+        forEachNamePrefixKey(featureName, key -> namePrefixes.remove(key, featureName));
     }
 
     public void unregisterFeature(Feature feature) {
@@ -44,6 +56,8 @@ public class FeatureRegistry {
             throw new IllegalArgumentException("Feature " + featureName + " is not registered");
         registeredFeatures.remove(featureName);
         enabledFeatures.remove(feature);
+        invalidateNameIndex();
+        forEachNamePrefixKey(featureName, key -> namePrefixes.remove(key, featureName));
     }
 
     public List<Feature> listFeatures(boolean onlyEnabled) {
@@ -54,6 +68,55 @@ public class FeatureRegistry {
         }
     }
 
+    /**
+     * Suggests registered feature names close to a name that isn't registered.
+     * Both full names and their last part are matched, so "stickymesages" finds
+     * "feature.messageListener.system.stickyMessages".
+     *
+     * @param featureName The mistyped name.
+     * @param limit       The most suggestions to return.
+     * @return The suggested feature names, best first.
+     */
+    public synchronized List<String> suggestFeatures(String featureName, int limit) {
+        if (nameIndex == null) {
+            BKTree<String> index = new BKTree<>();
+            for (String name : registeredFeatures.keySet()) {
+                index.add(name, name);
+                int lastDot = name.lastIndexOf('.');
+                if (lastDot >= 0 && lastDot < name.length() - 1) {
+                    index.add(name.substring(lastDot + 1), name);
+                }
+            }
+            nameIndex = index;
+        }
+        return nameIndex.suggest(featureName, limit);
+    }
+
+    private synchronized void invalidateNameIndex() {
+        nameIndex = null;
+    }
+
+    /**
+     * Completes a partially typed feature name, for autocomplete.
+     * Matches the start of the full name and the start of every part after a dot, so both "feature.comm"
+     * and "sticky" complete to the matching features.
+     *
+     * @param prefix The typed part.
+     * @param limit  The most names to return.
+     * @param filter Only names accepted by it are returned.
+     * @return The matching feature names.
+     */
+    public List<String> completeFeatures(String prefix, int limit, Predicate<String> filter) {
+        return namePrefixes.complete(prefix, limit, filter);
+    }
+
+    private static void forEachNamePrefixKey(String featureName, Consumer<String> action) {
+        action.accept(featureName);
+        for (int dot = featureName.indexOf('.'); dot >= 0 && dot < featureName.length() - 1; dot = featureName.indexOf('.', dot + 1)) {
+            action.accept(featureName.substring(dot + 1));
+        }
+    }
+
     public boolean isFeatureRegistered(String featureName) {
         return registeredFeatures.containsKey(featureName);
     }
@@ -0,0 +1,176 @@
+package dev.iseal.SSB.registries;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics: counters, gauges and timers, identified by dotted names like {@code rest.sticky.wait}.
+ * Everything is cheap to update from any thread. The current values can be viewed with {@code /root metrics}.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {}
+
+    /**
+     * Tracks count, average, maximum and a histogram of a duration.
+     * The histogram has fixed buckets, so percentiles are reported as the upper bound of their bucket.
+     */
+    public static class Timer {
+        private static final long[] BUCKET_BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+        // one more than the bounds, for everything above the last one
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+        public Timer() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long millis) {
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+        }
+
+        /**
+         * @param percentile The percentile, within 0 and 100.
+         * @return The upper bound of the bucket the percentile falls in, or the maximum for the last bucket.
+         */
+        public long getPercentileMillis(double percentile) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return BUCKET_BOUNDS_MILLIS[i];
+                }
+            }
+            return getMaxMillis();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getAverageMillis() {
+            long currentCount = count.sum();
+            return currentCount == 0 ? 0 : (double) totalMillis.sum() / currentCount;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, avg=%.1fms, p50<=%dms, p95<=%dms, p99<=%dms, max=%dms", getCount(), getAverageMillis(),
+                    getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getMaxMillis());
+        }
+    }
+
+    /**
+     * Increments a counter by one.
+     *
+     * @param name The counter name.
+     */
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param name  The counter name.
+     * @param delta The amount to add.
+     */
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Gets the current value of a counter.
+     *
+     * @param name The counter name.
+     * @return The value, or 0 if the counter was never incremented.
+     */
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Registers a gauge, a value that is read when the metrics are viewed.
+     * Registering the same name again replaces the previous gauge.
+     *
+     * @param name  The gauge name.
+     * @param value Supplies the current value.
+     */
+    public void registerGauge(String name, Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Gets a timer, creating it if needed.
+     *
+     * @param name The timer name.
+     * @return The timer.
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /**
+     * Records a duration on a timer.
+     *
+     * @param name   The timer name.
+     * @param millis The duration in milliseconds.
+     */
+    public void recordTime(String name, long millis) {
+        timer(name).record(millis);
+    }
+
+    /**
+     * @return Every metric with its current value as text, sorted by name.
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, String.valueOf(counter.sum())));
+        gauges.forEach((name, gauge) -> {
+            try {
+                snapshot.put(name, String.valueOf(gauge.get()));
+            } catch (Exception e) {
+                snapshot.put(name, "error: " + e.getMessage());
+            }
+        });
+        timers.forEach((name, timer) -> snapshot.put(name, timer.toString()));
+        return snapshot;
+    }
+}
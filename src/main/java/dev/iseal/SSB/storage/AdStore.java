@@ -0,0 +1,95 @@
+package dev.iseal.SSB.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores ad submissions and per-user ad cooldowns.
+ * Submissions are indexed by status, by user and by review message.
+ */
+public interface AdStore {
+
+    /**
+     * Inserts or replaces an ad submission.
+     *
+     * @param ad The submission.
+     */
+    void saveAd(AdSubmission ad);
+
+    /**
+     * Replaces an ad only if its stored status is still the expected one. The check and the write are atomic,
+     * so of several reviews (or a review and an expiry) racing for the same ad, exactly one wins.
+     *
+     * @param expected The status the stored ad must have.
+     * @param updated  The new version of the ad.
+     * @return true if the ad was replaced, false if it is unknown or no longer has the expected status.
+     */
+    boolean transition(AdSubmission.Status expected, AdSubmission updated);
+
+    /**
+     * Gets an ad by its UUID.
+     *
+     * @param adID The ad UUID.
+     * @return The submission, if known.
+     */
+    Optional<AdSubmission> getAd(String adID);
+
+    /**
+     * Gets the ad a review message in the pending approval channel belongs to.
+     *
+     * @param reviewMessageID The review message.
+     * @return The submission, if known.
+     */
+    Optional<AdSubmission> getAdByReviewMessage(long reviewMessageID);
+
+    /**
+     * Gets all ads with a status.
+     *
+     * @param status The status.
+     * @return The submissions with that status.
+     */
+    List<AdSubmission> getAdsByStatus(AdSubmission.Status status);
+
+    /**
+     * Checks if a user has an ad that is still waiting for review.
+     *
+     * @param userID The user to check.
+     * @return true if the user has a submitted or pending ad.
+     */
+    boolean hasOpenAd(long userID);
+
+    /**
+     * @return Every stored ad. Only meant for migrations and maintenance.
+     */
+    List<AdSubmission> getAllAds();
+
+    /**
+     * Gets the time a user's cooldown ends.
+     *
+     * @param userID The user.
+     * @return The end of the cooldown in epoch millis, or 0 if the user has none.
+     */
+    long getCooldown(long userID);
+
+    /**
+     * Sets the time a user's cooldown ends.
+     *
+     * @param userID    The user.
+     * @param expiresAt The end of the cooldown in epoch millis.
+     */
+    void setCooldown(long userID, long expiresAt);
+
+    /**
+     * Removes every cooldown that ended before the given time.
+     *
+     * @param now The current time in epoch millis.
+     * @return The number of removed cooldowns.
+     */
+    int removeExpiredCooldowns(long now);
+
+    /**
+     * @return All cooldowns, keyed by user ID. Only meant for migrations and maintenance.
+     */
+    Map<Long, Long> getCooldowns();
+}
@@ -0,0 +1,64 @@
+package dev.iseal.SSB.storage;
+
+/**
+ * A single ad submission and where it is in the review process.
+ *
+ * @param adID            The ad UUID.
+ * @param userID          The user that submitted the ad.
+ * @param content         The ad text.
+ * @param status          The current status.
+ * @param submittedAt     When the ad was submitted, in epoch millis.
+ * @param updatedAt       When the status last changed, in epoch millis.
+ * @param reviewerID      The moderator that approved or denied the ad, or 0.
+ * @param reviewMessageID The message in the pending approval channel, or 0 if it wasn't posted yet.
+ * @param reviewNote      The denial reason, or null.
+ */
+public record AdSubmission(
+        String adID,
+        long userID,
+        String content,
+        Status status,
+        long submittedAt,
+        long updatedAt,
+        long reviewerID,
+        long reviewMessageID,
+        String reviewNote
+) {
+
+    /**
+     * The lifecycle of an ad: {@code SUBMITTED -> PENDING -> APPROVED | DENIED | EXPIRED}.
+     */
+    public enum Status {
+        /** Stored, but not posted to the pending approval channel yet. */
+        SUBMITTED,
+        /** Posted to the pending approval channel, waiting for a moderator. */
+        PENDING,
+        APPROVED,
+        DENIED,
+        /** Nobody reviewed the ad in time. */
+        EXPIRED;
+
+        /**
+         * @return true if the ad is still waiting for review.
+         */
+        public boolean isOpen() {
+            return this == SUBMITTED || this == PENDING;
+        }
+    }
+
+    public static AdSubmission submitted(String adID, long userID, String content, long now) {
+        return new AdSubmission(adID, userID, content, Status.SUBMITTED, now, now, 0L, 0L, null);
+    }
+
+    public AdSubmission pending(long reviewMessageID, long now) {
+        return new AdSubmission(adID, userID, content, Status.PENDING, submittedAt, now, 0L, reviewMessageID, null);
+    }
+
+    public AdSubmission reviewed(Status result, long reviewerID, String reviewNote, long now) {
+        return new AdSubmission(adID, userID, content, result, submittedAt, now, reviewerID, reviewMessageID, reviewNote);
+    }
+
+    public AdSubmission expired(long now) {
+        return new AdSubmission(adID, userID, content, Status.EXPIRED, submittedAt, now, 0L, reviewMessageID, null);
+    }
+}
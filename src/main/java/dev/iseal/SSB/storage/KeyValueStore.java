@@ -0,0 +1,78 @@
+package dev.iseal.SSB.storage;
+
+import java.util.Map;
+
+/**
+ * A small namespaced key-value store for loose feature state, like reboot requests.
+ * Values are expected to be strings, numbers or booleans.
+ */
+public interface KeyValueStore {
+
+    /**
+     * Sets a value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    void set(String key, Object value);
+
+    /**
+     * Gets a value, converted to the type of the default.
+     *
+     * @param key The key.
+     * @param def The value returned if the key is missing. Also decides the returned type.
+     * @param <T> The value type.
+     * @return The stored value, or {@code def} if the key is missing.
+     */
+    <T> T get(String key, T def);
+
+    /**
+     * Checks if a key is present.
+     *
+     * @param key The key.
+     * @return true if the key has a value.
+     */
+    boolean contains(String key);
+
+    /**
+     * Removes a value.
+     *
+     * @param key The key.
+     */
+    void remove(String key);
+
+    /**
+     * @return All entries of this namespace. Only meant for migrations and maintenance.
+     */
+    Map<String, Object> getAll();
+
+    /**
+     * Converts a stored value to the type of a default value.
+     * Both backends may hand back a different numeric type or a string than what was stored.
+     *
+     * @param value The stored value. May be null.
+     * @param def   The default value.
+     * @param <T>   The wanted type.
+     * @return The converted value, or {@code def} if the value is null or can't be converted.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T convert(Object value, T def) {
+        if (value == null) {
+            return def;
+        }
+        if (def == null || def.getClass().isInstance(value)) {
+            return (T) value;
+        }
+        String string = value.toString();
+        try {
+            if (def instanceof Long) return (T) Long.valueOf(string);
+            if (def instanceof Integer) return (T) Integer.valueOf(string);
+            if (def instanceof Double) return (T) Double.valueOf(string);
+            if (def instanceof Boolean) return (T) Boolean.valueOf(string);
+            if (def instanceof String) return (T) string;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+        return def;
+    }
+}
@@ -0,0 +1,59 @@
+package dev.iseal.SSB.storage;
+
+import java.util.List;
+
+/**
+ * Stores the configured sticky messages.
+ */
+public interface StickyStore {
+
+    /**
+     * A sticky message as it is persisted.
+     *
+     * @param channelID The channel the sticky belongs to.
+     * @param guildID   The guild of the channel, or 0 if it isn't known yet.
+     * @param message      The sticky content, without footer.
+     * @param lastStickyID The last sticky message the bot posted in the channel, or 0 if none is known.
+     */
+    record StickyMessage(long channelID, long guildID, String message, long lastStickyID) {
+
+        public StickyMessage(long channelID, long guildID, String message) {
+            this(channelID, guildID, message, 0L);
+        }
+    }
+
+    /**
+     * Adds or replaces the sticky message of a channel.
+     *
+     * @param stickyMessage The sticky message.
+     */
+    void putSticky(StickyMessage stickyMessage);
+
+    /**
+     * Updates the last posted sticky message of a channel. Does nothing if the channel has no sticky.
+     *
+     * @param channelID    The channel.
+     * @param lastStickyID The message ID, or 0 to clear it.
+     */
+    void setLastStickyID(long channelID, long lastStickyID);
+
+    /**
+     * Removes the sticky message of a channel.
+     *
+     * @param channelID The channel.
+     */
+    void removeSticky(long channelID);
+
+    /**
+     * @return Every stored sticky message.
+     */
+    List<StickyMessage> getAllStickies();
+
+    /**
+     * Gets the sticky messages of one guild.
+     *
+     * @param guildID The guild.
+     * @return The sticky messages in that guild.
+     */
+    List<StickyMessage> getStickiesByGuild(long guildID);
+}
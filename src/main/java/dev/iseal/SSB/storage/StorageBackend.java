@@ -0,0 +1,39 @@
+package dev.iseal.SSB.storage;
+
+/**
+ * A place the bot persists its data to.
+ * Each backend exposes one store per kind of data, so features never touch files or connections directly.
+ */
+public interface StorageBackend extends AutoCloseable {
+
+    /**
+     * Gets the name of this backend, as used in {@code config/storage/config.yml}.
+     *
+     * @return The backend name.
+     */
+    String getName();
+
+    /**
+     * @return The store holding pending ads and ad cooldowns.
+     */
+    AdStore getAdStore();
+
+    /**
+     * @return The store holding sticky messages.
+     */
+    StickyStore getStickyStore();
+
+    /**
+     * Gets a generic key-value store. Namespaces keep unrelated features from clashing on keys.
+     *
+     * @param namespace The namespace, e.g. {@code "tempData"}.
+     * @return The key-value store for that namespace.
+     */
+    KeyValueStore getKeyValueStore(String namespace);
+
+    /**
+     * Flushes and releases everything the backend holds.
+     */
+    @Override
+    void close();
+}
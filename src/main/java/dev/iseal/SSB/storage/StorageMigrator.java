@@ -0,0 +1,67 @@
+package dev.iseal.SSB.storage;
+
+import dev.iseal.SSB.managers.StorageManager;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.List;
+
+/**
+ * One-shot tool that copies all data from one storage backend into another.
+ * Run it while the bot is stopped, then switch {@code backend} in {@code config/storage/config.yml}:
+ * <pre>
+ * java -cp SealSupportBot-all.jar dev.iseal.SSB.storage.StorageMigrator json sqlite
+ * </pre>
+ * The source is left untouched, so a failed migration can simply be re-run.
+ */
+public class StorageMigrator {
+
+    private static final Logger log = JDALogger.getLog(StorageMigrator.class);
+
+    /**
+     * The key-value namespaces features use. Keep this in sync when adding a new namespace.
+     */
+    private static final List<String> KEY_VALUE_NAMESPACES = List.of("tempData", "offenses", "closedDMs");
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            log.error("Usage: StorageMigrator <from> <to>, e.g. StorageMigrator json sqlite");
+            System.exit(1);
+        }
+        try (StorageBackend from = StorageManager.createBackend(args[0]);
+             StorageBackend to = StorageManager.createBackend(args[1])) {
+            migrate(from, to);
+        }
+    }
+
+    /**
+     * Copies every ad, cooldown, sticky message and key-value entry from one backend into another.
+     *
+     * @param from The backend to read from.
+     * @param to   The backend to write to.
+     */
+    public static void migrate(StorageBackend from, StorageBackend to) {
+        log.info("Migrating storage from {} to {}...", from.getName(), to.getName());
+
+        AdStore fromAds = from.getAdStore();
+        AdStore toAds = to.getAdStore();
+        List<AdSubmission> ads = fromAds.getAllAds();
+        ads.forEach(toAds::saveAd);
+        var cooldowns = fromAds.getCooldowns();
+        cooldowns.forEach(toAds::setCooldown);
+        log.info("Migrated {} ads and {} cooldowns.", ads.size(), cooldowns.size());
+
+        List<StickyStore.StickyMessage> stickies = from.getStickyStore().getAllStickies();
+        stickies.forEach(to.getStickyStore()::putSticky);
+        log.info("Migrated {} sticky messages.", stickies.size());
+
+        for (String namespace : KEY_VALUE_NAMESPACES) {
+            KeyValueStore toStore = to.getKeyValueStore(namespace);
+            var entries = from.getKeyValueStore(namespace).getAll();
+            entries.forEach(toStore::set);
+            log.info("Migrated {} entries of {}.", entries.size(), namespace);
+        }
+
+        log.info("Storage migration from {} to {} done!", from.getName(), to.getName());
+    }
+}
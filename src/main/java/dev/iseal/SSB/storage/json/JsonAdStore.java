@@ -0,0 +1,192 @@
+package dev.iseal.SSB.storage.json;
+
+import dev.iseal.SSB.storage.AdStore;
+import dev.iseal.SSB.storage.AdSubmission;
+import dev.iseal.SSB.utils.utils.GroupCommitWriter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * {@link AdStore} backed by {@code data/ads/ads.json} and {@code data/ads/adCooldowns.json}.
+ * All submissions are kept in memory together with status, user and review message indexes.
+ * <p>
+ * Pending ads from the old {@code registeredAdUUIDs.json} (which only stored {@code uuid -> userID})
+ * are imported once as {@link AdSubmission.Status#PENDING} ads without content or review message.
+ */
+class JsonAdStore implements AdStore {
+
+    private static final Logger log = JDALogger.getLog(JsonAdStore.class);
+    private static final String LEGACY_PENDING_ADS_FILE = "registeredAdUUIDs.json";
+
+    private final JsonDataFile ads;
+    private final JsonDataFile cooldowns;
+    private final Map<String, AdSubmission> adsByID = new HashMap<>();
+    private final Map<AdSubmission.Status, Set<String>> adsByStatus = new EnumMap<>(AdSubmission.Status.class);
+    private final Map<Long, String> adsByReviewMessage = new HashMap<>();
+    private final Map<Long, Set<String>> openAdsByUser = new HashMap<>();
+
+    JsonAdStore(String dataDirectory, GroupCommitWriter writer) {
+        String directory = dataDirectory + File.separator + "ads";
+        ads = new JsonDataFile("ads.json", directory, writer);
+        cooldowns = new JsonDataFile("adCooldowns.json", directory, writer);
+        for (AdSubmission.Status status : AdSubmission.Status.values()) {
+            adsByStatus.put(status, new HashSet<>());
+        }
+        ads.keySet().forEach(adID -> index(fromMap(adID, ads.getMap(adID))));
+        importLegacyPendingAds(directory, writer);
+    }
+
+    private void importLegacyPendingAds(String directory, GroupCommitWriter writer) {
+        if (!new File(directory, LEGACY_PENDING_ADS_FILE).exists()) {
+            return;
+        }
+        JsonDataFile legacy = new JsonDataFile(LEGACY_PENDING_ADS_FILE, directory, writer);
+        Set<String> legacyIDs = legacy.keySet();
+        long now = System.currentTimeMillis();
+        legacyIDs.forEach(adID -> {
+            if (!adsByID.containsKey(adID)) {
+                saveAd(AdSubmission.submitted(adID, legacy.getLong(adID), "", now).pending(0L, now));
+            }
+            legacy.remove(adID);
+        });
+        if (!legacyIDs.isEmpty()) {
+            log.info("Imported {} pending ads from {}.", legacyIDs.size(), LEGACY_PENDING_ADS_FILE);
+        }
+    }
+
+    @Override
+    public synchronized void saveAd(AdSubmission ad) {
+        AdSubmission previous = adsByID.get(ad.adID());
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(ad);
+        ads.set(ad.adID(), toMap(ad));
+    }
+
+    @Override
+    public synchronized boolean transition(AdSubmission.Status expected, AdSubmission updated) {
+        AdSubmission current = adsByID.get(updated.adID());
+        if (current == null || current.status() != expected) {
+            return false;
+        }
+        saveAd(updated);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<AdSubmission> getAd(String adID) {
+        return Optional.ofNullable(adsByID.get(adID));
+    }
+
+    @Override
+    public synchronized Optional<AdSubmission> getAdByReviewMessage(long reviewMessageID) {
+        String adID = adsByReviewMessage.get(reviewMessageID);
+        return adID == null ? Optional.empty() : Optional.ofNullable(adsByID.get(adID));
+    }
+
+    @Override
+    public synchronized List<AdSubmission> getAdsByStatus(AdSubmission.Status status) {
+        return adsByStatus.get(status).stream().map(adsByID::get).toList();
+    }
+
+    @Override
+    public synchronized boolean hasOpenAd(long userID) {
+        Set<String> openAds = openAdsByUser.get(userID);
+        return openAds != null && !openAds.isEmpty();
+    }
+
+    @Override
+    public synchronized List<AdSubmission> getAllAds() {
+        return List.copyOf(adsByID.values());
+    }
+
+    private void index(AdSubmission ad) {
+        adsByID.put(ad.adID(), ad);
+        adsByStatus.get(ad.status()).add(ad.adID());
+        if (ad.reviewMessageID() != 0) {
+            adsByReviewMessage.put(ad.reviewMessageID(), ad.adID());
+        }
+        if (ad.status().isOpen()) {
+            openAdsByUser.computeIfAbsent(ad.userID(), id -> new HashSet<>()).add(ad.adID());
+        }
+    }
+
+    private void unindex(AdSubmission ad) {
+        adsByStatus.get(ad.status()).remove(ad.adID());
+        adsByReviewMessage.remove(ad.reviewMessageID(), ad.adID());
+        Set<String> openAds = openAdsByUser.get(ad.userID());
+        if (openAds != null) {
+            openAds.remove(ad.adID());
+            if (openAds.isEmpty()) {
+                openAdsByUser.remove(ad.userID());
+            }
+        }
+    }
+
+    private static Map<String, Object> toMap(AdSubmission ad) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("userID", ad.userID());
+        map.put("content", ad.content());
+        map.put("status", ad.status().name());
+        map.put("submittedAt", ad.submittedAt());
+        map.put("updatedAt", ad.updatedAt());
+        map.put("reviewerID", ad.reviewerID());
+        map.put("reviewMessageID", ad.reviewMessageID());
+        if (ad.reviewNote() != null) {
+            map.put("reviewNote", ad.reviewNote());
+        }
+        return map;
+    }
+
+    private static AdSubmission fromMap(String adID, Map<String, Object> map) {
+        return new AdSubmission(
+                adID,
+                readLong(map, "userID"),
+                String.valueOf(map.getOrDefault("content", "")),
+                AdSubmission.Status.valueOf(String.valueOf(map.getOrDefault("status", AdSubmission.Status.PENDING.name()))),
+                readLong(map, "submittedAt"),
+                readLong(map, "updatedAt"),
+                readLong(map, "reviewerID"),
+                readLong(map, "reviewMessageID"),
+                map.get("reviewNote") == null ? null : String.valueOf(map.get("reviewNote"))
+        );
+    }
+
+    private static long readLong(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public synchronized long getCooldown(long userID) {
+        return cooldowns.getLong(String.valueOf(userID));
+    }
+
+    @Override
+    public synchronized void setCooldown(long userID, long expiresAt) {
+        cooldowns.set(String.valueOf(userID), expiresAt);
+    }
+
+    @Override
+    public synchronized int removeExpiredCooldowns(long now) {
+        int removed = 0;
+        for (String userID : cooldowns.keySet()) {
+            if (now > cooldowns.getLong(userID)) {
+                cooldowns.remove(userID);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized Map<Long, Long> getCooldowns() {
+        Map<Long, Long> result = new HashMap<>();
+        cooldowns.keySet().forEach(userID -> result.put(Long.parseLong(userID), cooldowns.getLong(userID)));
+        return result;
+    }
+}
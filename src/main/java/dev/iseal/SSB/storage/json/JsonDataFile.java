@@ -0,0 +1,115 @@
+package dev.iseal.SSB.storage.json;
+
+import dev.iseal.SSB.utils.utils.AtomicFileWriter;
+import dev.iseal.SSB.utils.utils.GroupCommitWriter;
+import net.dv8tion.jda.api.exceptions.ParsingException;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A flat JSON object kept in memory and persisted through a {@link GroupCommitWriter}.
+ * <p>
+ * Replaces Simplix {@code Json} for the data files: Simplix rewrites the file in place on every
+ * {@code set}, which leaves a truncated file behind if the bot is killed mid-write.
+ * The on-disk format stays the same, so existing files are read as they are.
+ * Unlike Simplix, keys are never split on dots.
+ */
+class JsonDataFile {
+
+    private static final Logger log = JDALogger.getLog(JsonDataFile.class);
+
+    private final Path path;
+    private final GroupCommitWriter writer;
+    private final Map<String, Object> data;
+
+    JsonDataFile(String name, String directory, GroupCommitWriter writer) {
+        this.path = Path.of(directory, name).toAbsolutePath().normalize();
+        this.writer = writer;
+        AtomicFileWriter.removeLeftoverTempFiles(path);
+        this.data = load();
+    }
+
+    private Map<String, Object> load() {
+        if (!Files.exists(path)) {
+            return new HashMap<>();
+        }
+        try {
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            if (content.isBlank()) {
+                return new HashMap<>();
+            }
+            return new HashMap<>(DataObject.fromJson(content).toMap());
+        } catch (IOException | ParsingException e) {
+            // only files written before writes were atomic can end up like this,
+            // move it aside for manual recovery instead of refusing to boot
+            Path corrupt = path.resolveSibling(path.getFileName() + ".corrupt-" + System.currentTimeMillis());
+            log.error("Data file {} is unreadable, moving it to {} and starting empty: {}", path, corrupt.getFileName(), e.getMessage());
+            try {
+                Files.move(path, corrupt);
+            } catch (IOException moveException) {
+                log.error("Failed to move {} aside: {}", path, moveException.getMessage());
+            }
+            return new HashMap<>();
+        }
+    }
+
+    synchronized Object get(String key) {
+        return data.get(key);
+    }
+
+    synchronized long getLong(String key) {
+        Object value = data.get(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized Map<String, Object> getMap(String key) {
+        return data.get(key) instanceof Map<?, ?> map ? (Map<String, Object>) map : new HashMap<>();
+    }
+
+    synchronized boolean contains(String key) {
+        return data.containsKey(key);
+    }
+
+    synchronized Set<String> keySet() {
+        return new HashSet<>(data.keySet());
+    }
+
+    /**
+     * Sets a value and queues a write. The value must not be modified afterwards,
+     * it is serialized later on the writer thread.
+     */
+    synchronized void set(String key, Object value) {
+        data.put(key, value);
+        save();
+    }
+
+    synchronized void remove(String key) {
+        if (data.remove(key) != null) {
+            save();
+        }
+    }
+
+    private void save() {
+        writer.submit(path, this::serialize);
+    }
+
+    private synchronized byte[] serialize() {
+        DataObject object = DataObject.empty();
+        data.forEach(object::put);
+        return object.toPrettyString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,50 @@
+package dev.iseal.SSB.storage.json;
+
+import dev.iseal.SSB.storage.KeyValueStore;
+import dev.iseal.SSB.utils.utils.GroupCommitWriter;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link KeyValueStore} backed by {@code data/<namespace>/<namespace>.json}.
+ */
+class JsonKeyValueStore implements KeyValueStore {
+
+    private final JsonDataFile json;
+
+    JsonKeyValueStore(String dataDirectory, String namespace, GroupCommitWriter writer) {
+        json = new JsonDataFile(namespace + ".json", dataDirectory + File.separator + namespace, writer);
+    }
+
+    @Override
+    public synchronized void set(String key, Object value) {
+        json.set(key, value);
+    }
+
+    @Override
+    public synchronized <T> T get(String key, T def) {
+        if (!json.contains(key)) {
+            return def;
+        }
+        return KeyValueStore.convert(json.get(key), def);
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return json.contains(key);
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        json.remove(key);
+    }
+
+    @Override
+    public synchronized Map<String, Object> getAll() {
+        Map<String, Object> result = new HashMap<>();
+        json.keySet().forEach(key -> result.put(key, json.get(key)));
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package dev.iseal.SSB.storage.json;
+
+import dev.iseal.SSB.storage.StickyStore;
+import dev.iseal.SSB.utils.utils.GroupCommitWriter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link StickyStore} backed by {@code data/stickyMessages/stickyMessages.json}.
+ * The file keeps its original {@code stickyMessages} map (channel to message) and gains a
+ * {@code stickyGuilds} map (channel to guild) used for per-guild lookups,
+ * and a {@code stickyLastMessages} map (channel to the last posted sticky).
+ */
+class JsonStickyStore implements StickyStore {
+
+    private final JsonDataFile json;
+    private final Map<Long, StickyMessage> stickies = new HashMap<>();
+
+    JsonStickyStore(String dataDirectory, GroupCommitWriter writer) {
+        json = new JsonDataFile("stickyMessages.json", dataDirectory + File.separator + "stickyMessages", writer);
+        Map<String, Object> storedMessages = json.getMap("stickyMessages");
+        Map<String, Object> storedGuilds = json.getMap("stickyGuilds");
+        Map<String, Object> storedLastMessages = json.getMap("stickyLastMessages");
+        storedMessages.forEach((channelIdStr, message) -> {
+            if (message == null) {
+                return;
+            }
+            try {
+                long channelID = Long.parseLong(channelIdStr);
+                Object guildID = storedGuilds.get(channelIdStr);
+                Object lastStickyID = storedLastMessages.get(channelIdStr);
+                stickies.put(channelID, new StickyMessage(channelID, guildID == null ? 0L : Long.parseLong(guildID.toString()), message.toString(),
+                        lastStickyID == null ? 0L : Long.parseLong(lastStickyID.toString())));
+            } catch (NumberFormatException e) {
+                // left in the file untouched, the old loader skipped these as well
+            }
+        });
+    }
+
+    @Override
+    public synchronized void putSticky(StickyMessage stickyMessage) {
+        stickies.put(stickyMessage.channelID(), stickyMessage);
+        save();
+    }
+
+    @Override
+    public synchronized void setLastStickyID(long channelID, long lastStickyID) {
+        StickyMessage sticky = stickies.get(channelID);
+        if (sticky != null && sticky.lastStickyID() != lastStickyID) {
+            stickies.put(channelID, new StickyMessage(channelID, sticky.guildID(), sticky.message(), lastStickyID));
+            save();
+        }
+    }
+
+    @Override
+    public synchronized void removeSticky(long channelID) {
+        if (stickies.remove(channelID) != null) {
+            save();
+        }
+    }
+
+    @Override
+    public synchronized List<StickyMessage> getAllStickies() {
+        return List.copyOf(stickies.values());
+    }
+
+    @Override
+    public synchronized List<StickyMessage> getStickiesByGuild(long guildID) {
+        List<StickyMessage> result = new ArrayList<>();
+        stickies.values().forEach(sticky -> {
+            if (sticky.guildID() == guildID) {
+                result.add(sticky);
+            }
+        });
+        return result;
+    }
+
+    private void save() {
+        HashMap<String, String> messages = new HashMap<>();
+        HashMap<String, Long> guilds = new HashMap<>();
+        HashMap<String, Long> lastMessages = new HashMap<>();
+        stickies.values().forEach(sticky -> {
+            messages.put(String.valueOf(sticky.channelID()), sticky.message());
+            guilds.put(String.valueOf(sticky.channelID()), sticky.guildID());
+            if (sticky.lastStickyID() != 0) {
+                lastMessages.put(String.valueOf(sticky.channelID()), sticky.lastStickyID());
+            }
+        });
+        json.set("stickyMessages", messages);
+        json.set("stickyGuilds", guilds);
+        json.set("stickyLastMessages", lastMessages);
+    }
+}
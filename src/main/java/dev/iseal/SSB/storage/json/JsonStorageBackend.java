@@ -0,0 +1,67 @@
+package dev.iseal.SSB.storage.json;
+
+import dev.iseal.SSB.storage.AdStore;
+import dev.iseal.SSB.storage.KeyValueStore;
+import dev.iseal.SSB.storage.StickyStore;
+import dev.iseal.SSB.storage.StorageBackend;
+import dev.iseal.SSB.utils.utils.GroupCommitWriter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original storage: one JSON file per kind of data under {@code data/}.
+ * Files are replaced atomically through a shared {@link GroupCommitWriter},
+ * so a crash never leaves a half-written file behind.
+ */
+public class JsonStorageBackend implements StorageBackend {
+
+    public static final String NAME = "json";
+
+    private final String dataDirectory;
+    private final GroupCommitWriter writer;
+    private final Map<String, KeyValueStore> keyValueStores = new ConcurrentHashMap<>();
+    private AdStore adStore;
+    private StickyStore stickyStore;
+
+    /**
+     * @param dataDirectory The directory the JSON files live in, usually {@code <working dir>/data}.
+     * @param fsync         Whether writes are flushed to disk. Without it a power loss can still lose
+     *                      the last writes, but never corrupt a file.
+     */
+    public JsonStorageBackend(String dataDirectory, boolean fsync) {
+        this.dataDirectory = dataDirectory;
+        this.writer = new GroupCommitWriter(NAME, fsync);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized AdStore getAdStore() {
+        if (adStore == null) {
+            adStore = new JsonAdStore(dataDirectory, writer);
+        }
+        return adStore;
+    }
+
+    @Override
+    public synchronized StickyStore getStickyStore() {
+        if (stickyStore == null) {
+            stickyStore = new JsonStickyStore(dataDirectory, writer);
+        }
+        return stickyStore;
+    }
+
+    @Override
+    public KeyValueStore getKeyValueStore(String namespace) {
+        return keyValueStores.computeIfAbsent(namespace, ns -> new JsonKeyValueStore(dataDirectory, ns, writer));
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
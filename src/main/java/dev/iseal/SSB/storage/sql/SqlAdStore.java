@@ -0,0 +1,214 @@
+package dev.iseal.SSB.storage.sql;
+
+import dev.iseal.SSB.storage.AdStore;
+import dev.iseal.SSB.storage.AdSubmission;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+import static dev.iseal.SSB.storage.sql.SqliteStorageBackend.storageError;
+
+/**
+ * {@link AdStore} backed by the {@code ads} and {@code ad_cooldowns} tables.
+ * {@code ads} is indexed by status, by user and status, and by review message.
+ */
+class SqlAdStore implements AdStore {
+
+    private static final String AD_COLUMNS = "ad_id, user_id, content, status, submitted_at, updated_at, reviewer_id, review_message_id, review_note";
+
+    private final Connection connection;
+
+    SqlAdStore(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void saveAd(AdSubmission ad) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO ads (" + AD_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                statement.setString(1, ad.adID());
+                statement.setLong(2, ad.userID());
+                statement.setString(3, ad.content());
+                statement.setString(4, ad.status().name());
+                statement.setLong(5, ad.submittedAt());
+                statement.setLong(6, ad.updatedAt());
+                statement.setLong(7, ad.reviewerID());
+                statement.setLong(8, ad.reviewMessageID());
+                statement.setString(9, ad.reviewNote());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("save ad " + ad.adID(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean transition(AdSubmission.Status expected, AdSubmission updated) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE ads SET user_id = ?, content = ?, status = ?, submitted_at = ?, updated_at = ?, reviewer_id = ?, "
+                            + "review_message_id = ?, review_note = ? WHERE ad_id = ? AND status = ?")) {
+                statement.setLong(1, updated.userID());
+                statement.setString(2, updated.content());
+                statement.setString(3, updated.status().name());
+                statement.setLong(4, updated.submittedAt());
+                statement.setLong(5, updated.updatedAt());
+                statement.setLong(6, updated.reviewerID());
+                statement.setLong(7, updated.reviewMessageID());
+                statement.setString(8, updated.reviewNote());
+                statement.setString(9, updated.adID());
+                statement.setString(10, expected.name());
+                return statement.executeUpdate() == 1;
+            } catch (SQLException e) {
+                throw storageError("update ad " + updated.adID(), e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<AdSubmission> getAd(String adID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT " + AD_COLUMNS + " FROM ads WHERE ad_id = ?")) {
+                statement.setString(1, adID);
+                return readAds(statement).stream().findFirst();
+            } catch (SQLException e) {
+                throw storageError("look up ad " + adID, e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<AdSubmission> getAdByReviewMessage(long reviewMessageID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT " + AD_COLUMNS + " FROM ads WHERE review_message_id = ?")) {
+                statement.setLong(1, reviewMessageID);
+                return readAds(statement).stream().findFirst();
+            } catch (SQLException e) {
+                throw storageError("look up ad of review message " + reviewMessageID, e);
+            }
+        }
+    }
+
+    @Override
+    public List<AdSubmission> getAdsByStatus(AdSubmission.Status status) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT " + AD_COLUMNS + " FROM ads WHERE status = ?")) {
+                statement.setString(1, status.name());
+                return readAds(statement);
+            } catch (SQLException e) {
+                throw storageError("list " + status + " ads", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasOpenAd(long userID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM ads WHERE user_id = ? AND status IN ('SUBMITTED', 'PENDING') LIMIT 1")) {
+                statement.setLong(1, userID);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            } catch (SQLException e) {
+                throw storageError("look up open ads of user " + userID, e);
+            }
+        }
+    }
+
+    @Override
+    public List<AdSubmission> getAllAds() {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT " + AD_COLUMNS + " FROM ads")) {
+                return readAds(statement);
+            } catch (SQLException e) {
+                throw storageError("list ads", e);
+            }
+        }
+    }
+
+    private List<AdSubmission> readAds(PreparedStatement statement) throws SQLException {
+        List<AdSubmission> result = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(new AdSubmission(
+                        resultSet.getString(1),
+                        resultSet.getLong(2),
+                        resultSet.getString(3),
+                        AdSubmission.Status.valueOf(resultSet.getString(4)),
+                        resultSet.getLong(5),
+                        resultSet.getLong(6),
+                        resultSet.getLong(7),
+                        resultSet.getLong(8),
+                        resultSet.getString(9)
+                ));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getCooldown(long userID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT expires_at FROM ad_cooldowns WHERE user_id = ?")) {
+                statement.setLong(1, userID);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : 0L;
+                }
+            } catch (SQLException e) {
+                throw storageError("look up cooldown of user " + userID, e);
+            }
+        }
+    }
+
+    @Override
+    public void setCooldown(long userID, long expiresAt) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO ad_cooldowns (user_id, expires_at) VALUES (?, ?)")) {
+                statement.setLong(1, userID);
+                statement.setLong(2, expiresAt);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("set cooldown of user " + userID, e);
+            }
+        }
+    }
+
+    @Override
+    public int removeExpiredCooldowns(long now) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM ad_cooldowns WHERE expires_at < ?")) {
+                statement.setLong(1, now);
+                return statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("remove expired cooldowns", e);
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, Long> getCooldowns() {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT user_id, expires_at FROM ad_cooldowns");
+                 ResultSet resultSet = statement.executeQuery()) {
+                Map<Long, Long> result = new HashMap<>();
+                while (resultSet.next()) {
+                    result.put(resultSet.getLong(1), resultSet.getLong(2));
+                }
+                return result;
+            } catch (SQLException e) {
+                throw storageError("list cooldowns", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package dev.iseal.SSB.storage.sql;
+
+import dev.iseal.SSB.storage.KeyValueStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static dev.iseal.SSB.storage.sql.SqliteStorageBackend.storageError;
+
+/**
+ * {@link KeyValueStore} backed by the {@code key_values} table.
+ * Values are stored as text together with their type, so they come back as the type they were stored as.
+ */
+class SqlKeyValueStore implements KeyValueStore {
+
+    private final Connection connection;
+    private final String namespace;
+
+    SqlKeyValueStore(Connection connection, String namespace) {
+        this.connection = connection;
+        this.namespace = namespace;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO key_values (namespace, entry_key, entry_value, entry_type) VALUES (?, ?, ?, ?)")) {
+                statement.setString(1, namespace);
+                statement.setString(2, key);
+                statement.setString(3, value.toString());
+                statement.setString(4, value.getClass().getSimpleName());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("set " + namespace + "/" + key, e);
+            }
+        }
+    }
+
+    @Override
+    public <T> T get(String key, T def) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT entry_value, entry_type FROM key_values WHERE namespace = ? AND entry_key = ?")) {
+                statement.setString(1, namespace);
+                statement.setString(2, key);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return def;
+                    }
+                    return KeyValueStore.convert(decode(resultSet.getString(1), resultSet.getString(2)), def);
+                }
+            } catch (SQLException e) {
+                throw storageError("get " + namespace + "/" + key, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM key_values WHERE namespace = ? AND entry_key = ?")) {
+                statement.setString(1, namespace);
+                statement.setString(2, key);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            } catch (SQLException e) {
+                throw storageError("look up " + namespace + "/" + key, e);
+            }
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM key_values WHERE namespace = ? AND entry_key = ?")) {
+                statement.setString(1, namespace);
+                statement.setString(2, key);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("remove " + namespace + "/" + key, e);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAll() {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT entry_key, entry_value, entry_type FROM key_values WHERE namespace = ?")) {
+                statement.setString(1, namespace);
+                Map<String, Object> result = new HashMap<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.put(resultSet.getString(1), decode(resultSet.getString(2), resultSet.getString(3)));
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                throw storageError("list " + namespace, e);
+            }
+        }
+    }
+
+    private Object decode(String value, String type) {
+        if (value == null) {
+            return null;
+        }
+        return switch (type) {
+            case "Long" -> Long.valueOf(value);
+            case "Integer" -> Integer.valueOf(value);
+            case "Double" -> Double.valueOf(value);
+            case "Boolean" -> Boolean.valueOf(value);
+            default -> value;
+        };
+    }
+}
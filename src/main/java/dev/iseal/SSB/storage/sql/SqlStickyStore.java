@@ -0,0 +1,102 @@
+package dev.iseal.SSB.storage.sql;
+
+import dev.iseal.SSB.storage.StickyStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dev.iseal.SSB.storage.sql.SqliteStorageBackend.storageError;
+
+/**
+ * {@link StickyStore} backed by the {@code sticky_messages} table, indexed by guild.
+ */
+class SqlStickyStore implements StickyStore {
+
+    private final Connection connection;
+
+    SqlStickyStore(Connection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void putSticky(StickyMessage stickyMessage) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO sticky_messages (channel_id, guild_id, message, last_sticky_id) VALUES (?, ?, ?, ?)")) {
+                statement.setLong(1, stickyMessage.channelID());
+                statement.setLong(2, stickyMessage.guildID());
+                statement.setString(3, stickyMessage.message());
+                statement.setLong(4, stickyMessage.lastStickyID());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("store sticky of channel " + stickyMessage.channelID(), e);
+            }
+        }
+    }
+
+    @Override
+    public void setLastStickyID(long channelID, long lastStickyID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE sticky_messages SET last_sticky_id = ? WHERE channel_id = ?")) {
+                statement.setLong(1, lastStickyID);
+                statement.setLong(2, channelID);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("store last sticky of channel " + channelID, e);
+            }
+        }
+    }
+
+    @Override
+    public void removeSticky(long channelID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM sticky_messages WHERE channel_id = ?")) {
+                statement.setLong(1, channelID);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw storageError("remove sticky of channel " + channelID, e);
+            }
+        }
+    }
+
+    @Override
+    public List<StickyMessage> getAllStickies() {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT channel_id, guild_id, message, last_sticky_id FROM sticky_messages")) {
+                return readStickies(statement);
+            } catch (SQLException e) {
+                throw storageError("list stickies", e);
+            }
+        }
+    }
+
+    @Override
+    public List<StickyMessage> getStickiesByGuild(long guildID) {
+        synchronized (connection) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT channel_id, guild_id, message, last_sticky_id FROM sticky_messages WHERE guild_id = ?")) {
+                statement.setLong(1, guildID);
+                return readStickies(statement);
+            } catch (SQLException e) {
+                throw storageError("list stickies of guild " + guildID, e);
+            }
+        }
+    }
+
+    private List<StickyMessage> readStickies(PreparedStatement statement) throws SQLException {
+        List<StickyMessage> result = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(new StickyMessage(resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3), resultSet.getLong(4)));
+            }
+        }
+        return result;
+    }
+}
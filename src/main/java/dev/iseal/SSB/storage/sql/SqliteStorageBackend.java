@@ -0,0 +1,124 @@
+package dev.iseal.SSB.storage.sql;
+
+import dev.iseal.SSB.storage.AdStore;
+import dev.iseal.SSB.storage.KeyValueStore;
+import dev.iseal.SSB.storage.StickyStore;
+import dev.iseal.SSB.storage.StorageBackend;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded SQLite storage in a single {@code data/ssb.db} file.
+ * Every lookup the bot does often (pending ads by user, stickies by guild) is backed by an index,
+ * so nothing has to load a whole table.
+ * <p>
+ * All stores share one connection. SQLite serializes writers anyway, so the stores simply
+ * synchronize on the connection.
+ */
+public class SqliteStorageBackend implements StorageBackend {
+
+    public static final String NAME = "sqlite";
+    private static final String DATABASE_FILE_NAME = "ssb.db";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS ads (ad_id TEXT PRIMARY KEY, user_id INTEGER NOT NULL, content TEXT NOT NULL, status TEXT NOT NULL, "
+                    + "submitted_at INTEGER NOT NULL, updated_at INTEGER NOT NULL, reviewer_id INTEGER NOT NULL DEFAULT 0, "
+                    + "review_message_id INTEGER NOT NULL DEFAULT 0, review_note TEXT)",
+            "CREATE INDEX IF NOT EXISTS idx_ads_status ON ads (status)",
+            "CREATE INDEX IF NOT EXISTS idx_ads_user_status ON ads (user_id, status)",
+            "CREATE INDEX IF NOT EXISTS idx_ads_review_message ON ads (review_message_id)",
+            "CREATE TABLE IF NOT EXISTS ad_cooldowns (user_id INTEGER PRIMARY KEY, expires_at INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_ad_cooldowns_expires ON ad_cooldowns (expires_at)",
+            "CREATE TABLE IF NOT EXISTS sticky_messages (channel_id INTEGER PRIMARY KEY, guild_id INTEGER NOT NULL, message TEXT NOT NULL, "
+                    + "last_sticky_id INTEGER NOT NULL DEFAULT 0)",
+            "CREATE INDEX IF NOT EXISTS idx_sticky_messages_guild ON sticky_messages (guild_id)",
+            "CREATE TABLE IF NOT EXISTS key_values (namespace TEXT NOT NULL, entry_key TEXT NOT NULL, entry_value TEXT, entry_type TEXT NOT NULL, PRIMARY KEY (namespace, entry_key))"
+    };
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final Connection connection;
+    private final Map<String, KeyValueStore> keyValueStores = new ConcurrentHashMap<>();
+    private final AdStore adStore;
+    private final StickyStore stickyStore;
+
+    /**
+     * Opens (and creates if needed) the database.
+     *
+     * @param dataDirectory The directory the database file lives in, usually {@code <working dir>/data}.
+     */
+    public SqliteStorageBackend(String dataDirectory) {
+        File directory = new File(dataDirectory);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create data directory " + directory.getAbsolutePath());
+        }
+        String url = "jdbc:sqlite:" + new File(directory, DATABASE_FILE_NAME).getAbsolutePath();
+        try {
+            connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                // WAL keeps readers from blocking on the writer and survives crashes mid-write
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to open SQLite database {}: {}", url, e.getMessage());
+            throw new IllegalStateException("Failed to open SQLite database " + url, e);
+        }
+        adStore = new SqlAdStore(connection);
+        stickyStore = new SqlStickyStore(connection);
+        log.info("Opened SQLite storage at {}", url);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public AdStore getAdStore() {
+        return adStore;
+    }
+
+    @Override
+    public StickyStore getStickyStore() {
+        return stickyStore;
+    }
+
+    @Override
+    public KeyValueStore getKeyValueStore(String namespace) {
+        return keyValueStores.computeIfAbsent(namespace, ns -> new SqlKeyValueStore(connection, ns));
+    }
+
+    @Override
+    public void close() {
+        synchronized (connection) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Failed to close SQLite database: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wraps a {@link SQLException} thrown by a store, so callers don't have to deal with checked exceptions.
+     *
+     * @param action What the store was doing, for the message.
+     * @param e      The exception.
+     * @return An exception to throw.
+     */
+    static IllegalStateException storageError(String action, SQLException e) {
+        JDALogger.getLog(SqliteStorageBackend.class).error("SQLite storage failed to {}: {}", action, e.getMessage());
+        return new IllegalStateException("SQLite storage failed to " + action, e);
+    }
+}
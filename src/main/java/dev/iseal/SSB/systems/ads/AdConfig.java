@@ -0,0 +1,38 @@
+package dev.iseal.SSB.systems.ads;
+
+import de.leonhard.storage.Yaml;
+
+/**
+ * Immutable snapshot of {@code config/adConfig.yml}.
+ *
+ * @param adChannelID               The channel approved ads are posted in.
+ * @param pendingApprovalID         The channel ads are sent to for review.
+ * @param adCooldownInHours         How long a user has to wait between two ads.
+ * @param adExpiryInDays            How long an ad can wait for review before it expires.
+ * @param duplicateWindowInDays     How long submitted ads are remembered for duplicate detection.
+ * @param duplicateFlagSimilarity   Ads at least this similar to a remembered ad are marked as possible duplicates for the reviewers.
+ * @param duplicateRejectSimilarity Ads at least this similar to another user's remembered ad, or to a denied one, are rejected right away.
+ *                                  Copies of the submitter's own other ads are only flagged. Above 1 disables it.
+ */
+public record AdConfig(
+        long adChannelID,
+        long pendingApprovalID,
+        long adCooldownInHours,
+        long adExpiryInDays,
+        long duplicateWindowInDays,
+        double duplicateFlagSimilarity,
+        double duplicateRejectSimilarity
+) {
+
+    public static AdConfig fromYaml(Yaml yaml) {
+        return new AdConfig(
+                yaml.getLong("adChannelId"),
+                yaml.getLong("pendingApprovalId"),
+                yaml.getLong("adCooldownInHours"),
+                yaml.getLong("adExpiryInDays"),
+                yaml.getLong("duplicateWindowInDays"),
+                yaml.getDouble("duplicateFlagSimilarity"),
+                yaml.getDouble("duplicateRejectSimilarity")
+        );
+    }
+}
@@ -1,10 +1,12 @@
 package dev.iseal.SSB.systems.ads.modals;
 
 import dev.iseal.SSB.managers.AdDataManager;
+import dev.iseal.SSB.managers.DirectMessageService;
+import dev.iseal.SSB.managers.UserResolver;
+import dev.iseal.SSB.storage.AdSubmission;
 import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractModal;
 import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
@@ -30,23 +32,42 @@ public class AdDenialModal extends AbstractModal {
 
     @Override
     public void handleEvent(ModalInteractionEvent event) {
-        // this code is quite shit.
-        MessageEmbed embed = event.getMessage().getEmbeds().get(0);
-        String adID = embed.getFooter().getText().replace("Ad ID: ", "");
+        AdDataManager adDataManager = AdDataManager.getInstance();
+        AdSubmission ad = adDataManager.findAdForReview(event.getMessage());
+        if (ad == null || ad.status() != AdSubmission.Status.PENDING) {
+            event.reply("This ad is no longer waiting for review.").setEphemeral(true).queue();
+            return;
+        }
+        String reason = event.getValue("body").getAsString();
+        // an approval may have been recorded since the lookup above
+        if (!adDataManager.markReviewed(ad, AdSubmission.Status.DENIED, event.getUser().getIdLong(), reason)) {
+            event.reply("This ad is no longer waiting for review.").setEphemeral(true).queue();
+            return;
+        }
+        event.getMessage().delete().queue();
 
-        // send message to dms
-        long userID = AdDataManager.getInstance().getUserIDbyAdID(adID);
-        EmbedBuilder builder = new EmbedBuilder();
-        builder.setTitle("Ad denied");
-        builder.setColor(Color.RED);
-        builder.setDescription("Your ad in the "+event.getGuild().getName()+" server has been denied with the following reason: " +
-                "\n" + event.getValue("body").getAsString());
+        // the author may have to be fetched, which can take longer than an interaction may stay unanswered
+        event.deferReply(true).queue();
+        UserResolver.getInstance().resolveUser(ad.userID()).whenComplete((author, error) -> {
+            if (author != null && author.isEmpty()) {
+                event.getHook().editOriginal("The ad was denied successfully. Its author no longer exists and was not notified.").queue();
+                return;
+            }
 
-        Utils.sendEmbed(userID, builder);
+            // send message to dms, also if the author couldn't be fetched, the DM may still work
+            EmbedBuilder builder = new EmbedBuilder();
+            builder.setTitle("Ad denied");
+            builder.setColor(Color.RED);
+            builder.setDescription("Your ad in the "+event.getGuild().getName()+" server has been denied with the following reason: " +
+                    "\n" + reason);
 
-        AdDataManager.getInstance().removeAdID(adID);
-        event.getMessage().delete().queue();
-        event.reply("The ad was denied successfully").setEphemeral(true).queue();
+            event.getHook().editOriginal("The ad was denied successfully").queue();
+            Utils.sendEmbed(ad.userID(), builder).thenAccept(result -> {
+                if (result != DirectMessageService.DeliveryResult.SENT) {
+                    event.getHook().editOriginal("The ad was denied successfully. The author could not be notified, their DMs are closed or unreachable.").queue();
+                }
+            });
+        });
     }
 
     public static Modal getModal() {
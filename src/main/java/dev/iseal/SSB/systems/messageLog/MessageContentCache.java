@@ -0,0 +1,197 @@
+package dev.iseal.SSB.systems.messageLog;
+
+import dev.iseal.SSB.registries.MetricsRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the content of recent messages, so it can still be shown after the message was deleted or edited.
+ * <p>
+ * Every guild has its own byte budget, and when it is full the messages that were written longest ago are evicted first.
+ * The budget counts the stored bytes plus a fixed overhead per entry, so the memory used stays close to
+ * {@code guilds * budget}. Content long enough to be worth it is compressed with {@link Deflater},
+ * chat messages tend to shrink to about half.
+ * Lookups and evictions are published to {@link MetricsRegistry} as {@code messageLog.cache.*}.
+ */
+class MessageContentCache {
+
+    // rough size of the map entry, the record and the array header
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    // below this, deflate headers cost more than they save
+    private static final int MIN_COMPRESS_LENGTH = 96;
+
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final Map<Long, GuildCache> guilds = new ConcurrentHashMap<>();
+    private final IntSupplier maxBytesPerGuild;
+
+    /**
+     * @param maxBytesPerGuild Supplies the byte budget of each guild, read on every write so config reloads apply.
+     */
+    MessageContentCache(IntSupplier maxBytesPerGuild) {
+        this.maxBytesPerGuild = maxBytesPerGuild;
+        metrics.registerGauge("messageLog.cache.bytes", () -> guilds.values().stream().mapToLong(GuildCache::getBytes).sum());
+        metrics.registerGauge("messageLog.cache.entries", () -> guilds.values().stream().mapToLong(GuildCache::getEntries).sum());
+    }
+
+    /**
+     * A cached message.
+     *
+     * @param channelID The channel it was sent in.
+     * @param authorID  Its author.
+     * @param content   Its content when it was last seen.
+     */
+    record CachedMessage(long channelID, long authorID, String content) {}
+
+    private record Entry(long channelID, long authorID, byte[] data, int rawLength, boolean compressed) {
+        private int size() {
+            return data.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    private static class GuildCache {
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+        private long bytes;
+
+        private synchronized long getBytes() {
+            return bytes;
+        }
+
+        private synchronized long getEntries() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Stores or replaces the content of a message.
+     */
+    void put(long guildID, long channelID, long messageID, long authorID, String content) {
+        Entry entry = encode(channelID, authorID, content);
+        int budget = maxBytesPerGuild.getAsInt();
+        if (entry.size() > budget) {
+            return;
+        }
+        GuildCache guild = guilds.computeIfAbsent(guildID, id -> new GuildCache());
+        int evicted = 0;
+        synchronized (guild) {
+            Entry previous = guild.entries.remove(messageID);
+            if (previous != null) {
+                guild.bytes -= previous.size();
+            }
+            // re-inserted at the end, so edited messages count as recent
+            guild.entries.put(messageID, entry);
+            guild.bytes += entry.size();
+
+            Iterator<Entry> oldest = guild.entries.values().iterator();
+            while (guild.bytes > budget && oldest.hasNext()) {
+                guild.bytes -= oldest.next().size();
+                oldest.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            metrics.add("messageLog.cache.evictions", evicted);
+        }
+    }
+
+    /**
+     * Looks up a message.
+     *
+     * @return The cached message, or null if it wasn't seen or was evicted.
+     */
+    CachedMessage get(long guildID, long messageID) {
+        GuildCache guild = guilds.get(guildID);
+        Entry entry;
+        if (guild == null) {
+            entry = null;
+        } else {
+            synchronized (guild) {
+                entry = guild.entries.get(messageID);
+            }
+        }
+        if (entry == null) {
+            metrics.increment("messageLog.cache.misses");
+            return null;
+        }
+        metrics.increment("messageLog.cache.hits");
+        return new CachedMessage(entry.channelID(), entry.authorID(), decode(entry));
+    }
+
+    /**
+     * Removes a message and returns what was cached for it.
+     *
+     * @return The cached message, or null if it wasn't seen or was evicted.
+     */
+    CachedMessage remove(long guildID, long messageID) {
+        CachedMessage message = get(guildID, messageID);
+        GuildCache guild = guilds.get(guildID);
+        if (message != null && guild != null) {
+            synchronized (guild) {
+                Entry removed = guild.entries.remove(messageID);
+                if (removed != null) {
+                    guild.bytes -= removed.size();
+                }
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Drops everything cached for a guild, for example when the bot leaves it.
+     */
+    void clearGuild(long guildID) {
+        guilds.remove(guildID);
+    }
+
+    private Entry encode(long channelID, long authorID, String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < MIN_COMPRESS_LENGTH) {
+            return new Entry(channelID, authorID, raw, raw.length, false);
+        }
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(raw.length / 2);
+        byte[] buffer = new byte[512];
+        while (!deflater.finished()) {
+            output.write(buffer, 0, deflater.deflate(buffer));
+        }
+        byte[] compressed = output.toByteArray();
+        if (compressed.length >= raw.length) {
+            return new Entry(channelID, authorID, raw, raw.length, false);
+        }
+        metrics.add("messageLog.cache.rawBytes", raw.length);
+        metrics.add("messageLog.cache.compressedBytes", compressed.length);
+        return new Entry(channelID, authorID, compressed, raw.length, true);
+    }
+
+    private String decode(Entry entry) {
+        if (!entry.compressed()) {
+            return new String(entry.data(), StandardCharsets.UTF_8);
+        }
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(entry.data());
+        byte[] raw = new byte[entry.rawLength()];
+        try {
+            int length = inflater.inflate(raw);
+            return new String(length == raw.length ? raw : Arrays.copyOf(raw, length), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            // can't happen for data deflated above, but don't let a log entry take the listener down
+            return "(content could not be restored)";
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package dev.iseal.SSB.systems.messageLog;
+
+import de.leonhard.storage.Yaml;
+import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.ConfigManager;
+import dev.iseal.SSB.registries.FeatureRegistry;
+import dev.iseal.SSB.systems.moderation.ModLogService;
+import dev.iseal.SSB.utils.Utils;
+import dev.iseal.SSB.utils.abstracts.AbstractMessageListener;
+import dev.iseal.SSB.utils.utils.LiveConfig;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.awt.*;
+import java.io.File;
+
+/**
+ * Posts the previous content of deleted and edited messages to the mod log.
+ * <p>
+ * The content of every guild message is kept in a {@link MessageContentCache}, since Discord only sends the
+ * ID of a deleted message and the new content of an edited one. Messages from bots are not kept.
+ * Entries go through {@link ModLogService}, so a purge is logged as a few summary messages instead of one per message.
+ */
+public class MessageLog extends AbstractMessageListener {
+
+    private static final Logger log = JDALogger.getLog(MessageLog.class);
+    private static final int SUMMARY_CONTENT_LENGTH = 100;
+
+    private static final MessageLog INSTANCE = new MessageLog();
+    public static MessageLog getInstance() {
+        return INSTANCE;
+    }
+
+    private final Yaml yaml = ConfigManager.getInstance().openYaml("config.yml", System.getProperty("user.dir") + File.separator + "config" + File.separator + "messageLog");
+    private final LiveConfig<MessageLogConfig> config;
+    private final MessageContentCache cache;
+
+    private MessageLog() {
+        super("system.messageLog");
+        yaml.setDefault("logChannelID", 0L);
+        yaml.setDefault("maxKilobytesPerGuild", 4096);
+        config = ConfigManager.getInstance().watch(yaml, MessageLogConfig::fromYaml);
+        cache = new MessageContentCache(() -> config.get().maxBytesPerGuild());
+
+        SSBMain.getJDA().addEventListener(new ListenerAdapter() {
+            @Override
+            public void onMessageDelete(MessageDeleteEvent event) {
+                if (event.isFromGuild() && isEnabledFeature()) {
+                    handleDelete(event.getGuild().getIdLong(), event.getMessageIdLong());
+                }
+            }
+
+            @Override
+            public void onMessageBulkDelete(MessageBulkDeleteEvent event) {
+                if (isEnabledFeature()) {
+                    event.getMessageIds().forEach(messageID -> handleDelete(event.getGuild().getIdLong(), Long.parseLong(messageID)));
+                }
+            }
+
+            @Override
+            public void onMessageUpdate(MessageUpdateEvent event) {
+                if (event.isFromGuild() && isEnabledFeature()) {
+                    handleUpdate(event.getGuild().getIdLong(), event.getMessage());
+                }
+            }
+
+            @Override
+            public void onGuildLeave(GuildLeaveEvent event) {
+                cache.clearGuild(event.getGuild().getIdLong());
+            }
+        });
+        log.info("MessageLog initialized. Keeping up to {} KB of message content per guild.", config.get().maxBytesPerGuild() / 1024);
+    }
+
+    @Override
+    public void handleMessage(MessageReceivedEvent event) {
+        if (!event.isFromGuild() || event.getAuthor().isBot()) {
+            return;
+        }
+        Message message = event.getMessage();
+        if (message.getContentRaw().isEmpty()) {
+            return; // attachments or stickers only, nothing to show later
+        }
+        cache.put(event.getGuild().getIdLong(), event.getChannel().getIdLong(), message.getIdLong(), event.getAuthor().getIdLong(), message.getContentRaw());
+    }
+
+    private void handleDelete(long guildID, long messageID) {
+        MessageContentCache.CachedMessage cached = cache.remove(guildID, messageID);
+        if (cached == null) {
+            return; // older than the cache, sent by a bot, or sent while the bot was offline
+        }
+        MessageEmbed embed = new EmbedBuilder()
+                .setColor(Color.ORANGE)
+                .setTitle("Message deleted")
+                .setDescription(Utils.truncate(cached.content(), MessageEmbed.DESCRIPTION_MAX_LENGTH))
+                .addField("Author", "<@" + cached.authorID() + ">", true)
+                .addField("Channel", "<#" + cached.channelID() + ">", true)
+                .setFooter("Message ID: " + messageID)
+                .build();
+        String summary = "<@" + cached.authorID() + "> deleted in <#" + cached.channelID() + ">: "
+                + Utils.truncate(cached.content(), SUMMARY_CONTENT_LENGTH).replace('\n', ' ');
+        sendToModLog(embed, summary);
+    }
+
+    private void handleUpdate(long guildID, Message message) {
+        if (message.getAuthor().isBot()) {
+            return;
+        }
+        String content = message.getContentRaw();
+        MessageContentCache.CachedMessage cached = cache.get(guildID, message.getIdLong());
+        cache.put(guildID, message.getChannel().getIdLong(), message.getIdLong(), message.getAuthor().getIdLong(), content);
+        // link previews and pins also fire updates, only log actual edits
+        if (cached == null || cached.content().equals(content)) {
+            return;
+        }
+        MessageEmbed embed = new EmbedBuilder()
+                .setColor(Color.YELLOW)
+                .setTitle("Message edited")
+                .setDescription("[Jump to message](" + message.getJumpUrl() + ")")
+                .addField("Before", Utils.truncate(cached.content(), MessageEmbed.VALUE_MAX_LENGTH), false)
+                .addField("After", Utils.truncate(content, MessageEmbed.VALUE_MAX_LENGTH), false)
+                .addField("Author", message.getAuthor().getAsMention(), true)
+                .addField("Channel", message.getChannel().getAsMention(), true)
+                .build();
+        String summary = message.getAuthor().getAsMention() + " edited in " + message.getChannel().getAsMention() + ": "
+                + Utils.truncate(cached.content(), SUMMARY_CONTENT_LENGTH).replace('\n', ' ');
+        sendToModLog(embed, summary);
+    }
+
+    private void sendToModLog(MessageEmbed embed, String summary) {
+        long logChannelID = config.get().logChannelID();
+        if (logChannelID == 0) {
+            log.debug("Message log channel not set, not logging.");
+            return;
+        }
+        ModLogService.getInstance().log(logChannelID, embed, summary);
+    }
+
+    private boolean isEnabledFeature() {
+        return FeatureRegistry.getInstance().isFeatureEnabled(getFeatureName());
+    }
+}
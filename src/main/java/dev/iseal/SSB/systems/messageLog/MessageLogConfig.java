@@ -0,0 +1,19 @@
+package dev.iseal.SSB.systems.messageLog;
+
+import de.leonhard.storage.Yaml;
+
+/**
+ * Immutable snapshot of {@code config/messageLog/config.yml}.
+ *
+ * @param logChannelID     The mod log channel deletions and edits are posted to, or 0 if unset.
+ * @param maxBytesPerGuild How much message content is kept per guild, in bytes.
+ */
+public record MessageLogConfig(long logChannelID, int maxBytesPerGuild) {
+
+    public static MessageLogConfig fromYaml(Yaml yaml) {
+        return new MessageLogConfig(
+                yaml.getLong("logChannelID"),
+                (int) Math.min(Integer.MAX_VALUE, Math.max(0, yaml.getLong("maxKilobytesPerGuild")) * 1024)
+        );
+    }
+}
@@ -0,0 +1,197 @@
+package dev.iseal.SSB.systems.moderation;
+
+import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.RestInstrumentation;
+import dev.iseal.SSB.managers.RestScheduler;
+import dev.iseal.SSB.registries.MetricsRegistry;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers mod log entries in batches, so a pile-on doesn't turn into one message and one rate limit hit per incident.
+ * <p>
+ * Entries are buffered per log channel for {@code FLUSH_DELAY_MS} after the first one arrives, then sent as
+ * one message with up to {@link Message#MAX_EMBED_COUNT} embeds. If the batch doesn't fit into a single message,
+ * the entries are sent as summary lines instead, one line per entry, packed into as few messages as possible.
+ * At most {@code MAX_BUFFERED} entries are kept per channel, anything beyond that is only counted.
+ */
+public class ModLogService {
+
+    private static final ModLogService instance = new ModLogService();
+    public static ModLogService getInstance() {
+        return instance;
+    }
+
+    private static final long FLUSH_DELAY_MS = 2000;
+    private static final int MAX_BUFFERED = 200;
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final Map<Long, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SSB-ModLog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ModLogService() {}
+
+    private record Entry(MessageEmbed embed, String summary) {}
+
+    private static class Batch {
+        private final List<Entry> entries = new ArrayList<>();
+        private int dropped;
+        private boolean closed;
+    }
+
+    /**
+     * Queues a mod log entry.
+     *
+     * @param channelID The mod log channel. Entries for an unknown channel are dropped with a warning.
+     * @param embed     The full entry, sent when the batch is small.
+     * @param summary   A single line describing the entry, sent instead of the embed when the batch is large.
+     */
+    public void log(long channelID, MessageEmbed embed, String summary) {
+        metrics.increment("modLog.entries");
+        while (true) {
+            Batch created = new Batch();
+            Batch batch = batches.computeIfAbsent(channelID, id -> created);
+            synchronized (batch) {
+                if (batch.closed) {
+                    continue; // flushed in the meantime, start the next window
+                }
+                if (batch.entries.size() < MAX_BUFFERED) {
+                    batch.entries.add(new Entry(embed, summary));
+                } else {
+                    batch.dropped++;
+                }
+            }
+            if (batch == created) {
+                // first entry of this window
+                scheduler.schedule(() -> RestInstrumentation.runAs("system.modLog", () -> flush(channelID)), FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+    }
+
+    private void flush(long channelID) {
+        Batch batch = batches.remove(channelID);
+        if (batch == null) {
+            return;
+        }
+        List<Entry> entries;
+        int dropped;
+        synchronized (batch) {
+            batch.closed = true;
+            entries = List.copyOf(batch.entries);
+            dropped = batch.dropped;
+        }
+
+        TextChannel channel = SSBMain.getJDA().getTextChannelById(channelID);
+        if (channel == null) {
+            log.warn("Mod log channel {} not found, dropping {} entries. Please check the log channel ID in the config.", channelID, entries.size() + dropped);
+            return;
+        }
+
+        List<List<MessageEmbed>> messages = fitsInOneMessage(entries, dropped)
+                ? List.of(entries.stream().map(Entry::embed).toList())
+                : summarize(entries, dropped);
+        metrics.add("modLog.messages", messages.size());
+        for (List<MessageEmbed> embeds : messages) {
+            // missing permissions only show up when the scheduler submits the action, so they fail the future
+            RestScheduler.getInstance().submit(channel.sendMessageEmbeds(embeds),
+                    RestScheduler.Priority.MODERATION, RestScheduler.channelBucket(channelID)
+            ).whenComplete((success, error) -> {
+                if (error == null) {
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof InsufficientPermissionException) {
+                    log.warn("Couldn't send messages to the mod log channel. Please check if the bot has permission to send messages in the channel.");
+                    log.warn("Error: {}", cause.getMessage());
+                } else {
+                    log.warn("Failed to send mod log message to channel {}: {}", channelID, cause.getMessage());
+                }
+            });
+        }
+    }
+
+    private boolean fitsInOneMessage(List<Entry> entries, int dropped) {
+        if (dropped > 0 || entries.size() > Message.MAX_EMBED_COUNT) {
+            return false;
+        }
+        int length = 0;
+        for (Entry entry : entries) {
+            length += entry.embed().getLength();
+        }
+        return length <= MessageEmbed.EMBED_MAX_LENGTH_BOT;
+    }
+
+    // packs the summary lines into embeds, and the embeds into messages, within Discord's limits
+    private List<List<MessageEmbed>> summarize(List<Entry> entries, int dropped) {
+        String title = (entries.size() + dropped) + " moderation incidents";
+        List<String> lines = new ArrayList<>(entries.size() + 1);
+        for (Entry entry : entries) {
+            lines.add("- " + entry.summary());
+        }
+        if (dropped > 0) {
+            lines.add("... and " + dropped + " more that were not kept.");
+        }
+
+        List<MessageEmbed> embeds = new ArrayList<>();
+        StringBuilder description = new StringBuilder();
+        for (String line : lines) {
+            if (line.length() >= MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+                line = line.substring(0, MessageEmbed.DESCRIPTION_MAX_LENGTH - 4) + "...";
+            }
+            if (description.length() + line.length() + 1 > MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+                embeds.add(summaryEmbed(title, description));
+                description.setLength(0);
+            }
+            description.append(line).append('\n');
+        }
+        if (!description.isEmpty()) {
+            embeds.add(summaryEmbed(title, description));
+        }
+
+        List<List<MessageEmbed>> messages = new ArrayList<>();
+        List<MessageEmbed> current = new ArrayList<>();
+        int currentLength = 0;
+        for (MessageEmbed embed : embeds) {
+            if (current.size() == Message.MAX_EMBED_COUNT || currentLength + embed.getLength() > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+                messages.add(current);
+                current = new ArrayList<>();
+                currentLength = 0;
+            }
+            current.add(embed);
+            currentLength += embed.getLength();
+        }
+        if (!current.isEmpty()) {
+            messages.add(current);
+        }
+        return messages;
+    }
+
+    private MessageEmbed summaryEmbed(String title, CharSequence description) {
+        return new EmbedBuilder()
+                .setColor(Color.RED)
+                .setTitle(title)
+                .setDescription(description)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package dev.iseal.SSB.systems.moderation;
+
+/**
+ * What happens when a {@link ModerationRule} matches.
+ */
+public enum ModerationAction {
+    /**
+     * Times the author out for the rule's timeout time.
+     */
+    TIMEOUT,
+    /**
+     * Deletes the message.
+     */
+    DELETE,
+    /**
+     * Posts the message to the mod log channel.
+     */
+    LOG,
+    /**
+     * Tells the author why they were moderated.
+     */
+    DM
+}
@@ -0,0 +1,137 @@
+package dev.iseal.SSB.systems.moderation;
+
+import dev.iseal.SSB.managers.RecentMessageStore;
+import dev.iseal.SSB.utils.utils.LongHashSet;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageReference;
+import net.dv8tion.jda.api.entities.MessageType;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A single check of a {@link ModerationRule}. A rule matches when all of its conditions match.
+ * <p>
+ * Every condition has a static cost, roughly how much work it does on a message that doesn't match.
+ * Rules check their conditions cheapest first, so most messages are rejected after a field access or two.
+ */
+public sealed interface ModerationCondition {
+
+    /**
+     * @return The relative cost of checking this condition, lower runs first.
+     */
+    int cost();
+
+    /**
+     * @param message The message to check.
+     * @return true if the message matches.
+     */
+    boolean matches(Message message);
+
+    /**
+     * Matches replies to a protected user that also ping them.
+     *
+     * @param protectedIDs The users that must not be reply-pinged.
+     */
+    record ReplyPing(LongHashSet protectedIDs) implements ModerationCondition {
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            if (message.getType() != MessageType.INLINE_REPLY) {
+                return false;
+            }
+            long originalAuthorID = getReplyAuthorID(message);
+            if (originalAuthorID == 0 || !protectedIDs.contains(originalAuthorID)) {
+                return false;
+            }
+            // a reply only pings when the author left the mention on
+            for (User user : message.getMentions().getUsers()) {
+                if (user.getIdLong() == originalAuthorID) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Discord leaves the referenced message out of the payload when it is old or deleted,
+        // so fall back to the messages the bot has seen
+        private static long getReplyAuthorID(Message message) {
+            Message referenced = message.getReferencedMessage();
+            if (referenced != null) {
+                return referenced.getAuthor().getIdLong();
+            }
+            MessageReference reference = message.getMessageReference();
+            if (reference == null) {
+                return 0;
+            }
+            return RecentMessageStore.getInstance().getAuthorID(reference.getChannelIdLong(), reference.getMessageIdLong());
+        }
+    }
+
+    /**
+     * Matches attachments with one of the given file extensions.
+     *
+     * @param extensions Lower case extensions without the dot.
+     */
+    record AttachmentType(Set<String> extensions) implements ModerationCondition {
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            for (Message.Attachment attachment : message.getAttachments()) {
+                String extension = attachment.getFileExtension();
+                if (extension != null && extensions.contains(extension.toLowerCase())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matches messages that mention at least the given number of users and roles.
+     *
+     * @param minMentions The lowest number of mentions that matches.
+     */
+    record MentionCount(int minMentions) implements ModerationCondition {
+        @Override
+        public int cost() {
+            return 2;
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            // JDA parses mentions lazily, so skip that when the raw content can't hold enough of them
+            if (message.getContentRaw().length() < minMentions * 4) {
+                return false;
+            }
+            return message.getMentions().getUsers().size() + message.getMentions().getRoles().size() >= minMentions;
+        }
+    }
+
+    /**
+     * Matches messages whose raw content contains the pattern.
+     *
+     * @param pattern The compiled pattern.
+     */
+    record ContentPattern(Pattern pattern) implements ModerationCondition {
+        @Override
+        public int cost() {
+            return 10;
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            String content = message.getContentRaw();
+            return !content.isEmpty() && pattern.matcher(content).find();
+        }
+    }
+}
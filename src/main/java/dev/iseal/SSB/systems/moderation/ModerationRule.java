@@ -0,0 +1,179 @@
+package dev.iseal.SSB.systems.moderation;
+
+import dev.iseal.SSB.utils.utils.LongHashSet;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled moderation rule: a set of conditions that all have to match, the members it doesn't apply to,
+ * and the actions taken when it matches.
+ * <p>
+ * Rules are written in YAML as a map, for example:
+ * <pre>
+ * noInvites:
+ *   contentRegex: "discord(\\.gg|\\.com/invite)/"
+ *   actions: [delete, log, dm]
+ *   bypassRoleIDs: [1219921802323689622]
+ *   reason: "Posting invites"
+ * </pre>
+ * Supported conditions are {@code replyPingProtectedIDs}, {@code minMentions}, {@code contentRegex}
+ * and {@code attachmentTypes}.
+ *
+ * @param name           The rule name, used in logs and metrics.
+ * @param conditions     The conditions, cheapest first.
+ * @param bypassUserIDs  Authors the rule doesn't apply to.
+ * @param bypassRoleIDs  Roles the rule doesn't apply to.
+ * @param actions        What to do on a match.
+ * @param timeoutSeconds The timeout for {@link ModerationAction#TIMEOUT}, in seconds.
+ * @param reason         Shown in the audit log, the mod log and the DM.
+ */
+public record ModerationRule(
+        String name,
+        List<ModerationCondition> conditions,
+        LongHashSet bypassUserIDs,
+        LongHashSet bypassRoleIDs,
+        Set<ModerationAction> actions,
+        long timeoutSeconds,
+        String reason
+) {
+
+    private static final long DEFAULT_TIMEOUT_SECONDS = 120;
+
+    public ModerationRule {
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("Rule " + name + " has no conditions and would match every message");
+        }
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("Rule " + name + " has no actions");
+        }
+        List<ModerationCondition> sorted = new ArrayList<>(conditions);
+        sorted.sort(Comparator.comparingInt(ModerationCondition::cost));
+        conditions = List.copyOf(sorted);
+        actions = Collections.unmodifiableSet(EnumSet.copyOf(actions));
+    }
+
+    /**
+     * @return The cost of the cheapest condition, which is what most messages pay for this rule.
+     */
+    public int cost() {
+        return conditions.get(0).cost();
+    }
+
+    /**
+     * Checks a message. Bypasses are only looked at after all conditions matched,
+     * since walking the author's roles costs more than any condition that rejects.
+     *
+     * @param member  The author.
+     * @param message The message.
+     * @return true if the rule applies to the message.
+     */
+    public boolean matches(Member member, Message message) {
+        for (ModerationCondition condition : conditions) {
+            if (!condition.matches(message)) {
+                return false;
+            }
+        }
+        return !isBypassed(member);
+    }
+
+    private boolean isBypassed(Member member) {
+        if (bypassUserIDs.contains(member.getIdLong())) {
+            return true;
+        }
+        if (bypassRoleIDs.isEmpty()) {
+            return false;
+        }
+        for (Role role : member.getUnsortedRoles()) {
+            if (bypassRoleIDs.contains(role.getIdLong())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compiles the reply-ping rule from the original {@code stopReplyPings.yml} keys.
+     * It times the author out, logs and DMs them, like before rules existed.
+     * <p>
+     * As before rules existed, {@code bypassIDs} are compared with the pinged user, not the author:
+     * pinging a protected user that is also listed there isn't punished. {@code bypassRoleIDs} are the author's roles.
+     */
+    public static ModerationRule replyPing(LongHashSet protectedIDs, LongHashSet bypassIDs, LongHashSet bypassRoleIDs, long timeoutSeconds) {
+        LongHashSet pingable = new LongHashSet(protectedIDs.size());
+        for (long protectedID : protectedIDs.toArray()) {
+            if (!bypassIDs.contains(protectedID)) {
+                pingable.add(protectedID);
+            }
+        }
+        return new ModerationRule(
+                "replyPing",
+                List.of(new ModerationCondition.ReplyPing(pingable)),
+                LongHashSet.empty(),
+                bypassRoleIDs,
+                EnumSet.of(ModerationAction.TIMEOUT, ModerationAction.LOG, ModerationAction.DM),
+                timeoutSeconds,
+                "Reply-Pinging to a protected user"
+        );
+    }
+
+    /**
+     * Compiles a rule from its YAML map.
+     *
+     * @param name       The rule name, the key of the map.
+     * @param definition The map.
+     * @return The compiled rule.
+     * @throws IllegalArgumentException If the rule is invalid.
+     */
+    public static ModerationRule fromMap(String name, Map<?, ?> definition) {
+        List<ModerationCondition> conditions = new ArrayList<>();
+        try {
+            if (definition.get("replyPingProtectedIDs") instanceof Collection<?> protectedIDs) {
+                conditions.add(new ModerationCondition.ReplyPing(LongHashSet.of(protectedIDs)));
+            }
+            if (definition.get("minMentions") != null) {
+                conditions.add(new ModerationCondition.MentionCount(Integer.parseInt(definition.get("minMentions").toString())));
+            }
+            if (definition.get("contentRegex") != null) {
+                conditions.add(new ModerationCondition.ContentPattern(Pattern.compile(definition.get("contentRegex").toString())));
+            }
+            if (definition.get("attachmentTypes") instanceof Collection<?> types) {
+                Set<String> extensions = new HashSet<>();
+                types.forEach(type -> extensions.add(type.toString().toLowerCase().replaceFirst("^\\.", "")));
+                conditions.add(new ModerationCondition.AttachmentType(Set.copyOf(extensions)));
+            }
+
+            Set<ModerationAction> actions = EnumSet.noneOf(ModerationAction.class);
+            if (definition.get("actions") instanceof Collection<?> actionNames) {
+                actionNames.forEach(action -> actions.add(ModerationAction.valueOf(action.toString().trim().toUpperCase())));
+            }
+
+            long timeoutSeconds = definition.get("timeoutTime") != null ? Long.parseLong(definition.get("timeoutTime").toString()) : DEFAULT_TIMEOUT_SECONDS;
+            if (timeoutSeconds <= 0) {
+                throw new IllegalArgumentException("Rule " + name + " has an invalid number: timeoutTime must be positive, got " + timeoutSeconds);
+            }
+
+            return new ModerationRule(
+                    name,
+                    conditions,
+                    readIDs(definition, "bypassIDs"),
+                    readIDs(definition, "bypassRoleIDs"),
+                    actions,
+                    timeoutSeconds,
+                    definition.get("reason") != null ? definition.get("reason").toString() : "Breaking the " + name + " rule"
+            );
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Rule " + name + " has an invalid contentRegex: " + e.getDescription(), e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Rule " + name + " has an invalid number: " + e.getMessage(), e);
+        }
+    }
+
+    private static LongHashSet readIDs(Map<?, ?> definition, String key) {
+        return definition.get(key) instanceof Collection<?> ids ? LongHashSet.of(ids) : LongHashSet.empty();
+    }
+}
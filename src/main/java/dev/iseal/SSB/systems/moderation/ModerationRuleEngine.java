@@ -0,0 +1,66 @@
+package dev.iseal.SSB.systems.moderation;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable, compiled set of {@link ModerationRule}s that is checked against every guild message.
+ * <p>
+ * Rules are ordered by the cost of their cheapest condition, so a message that breaks no rule,
+ * which is nearly every message, is rejected by each rule with a field access or a primitive set lookup.
+ * Nothing is allocated unless a rule matches.
+ * A new engine is compiled whenever the config is reloaded, it is never modified afterwards.
+ */
+public class ModerationRuleEngine {
+
+    private static final ModerationRuleEngine EMPTY = new ModerationRuleEngine(List.of());
+
+    private final ModerationRule[] rules;
+
+    /**
+     * @param rules The rules, in any order.
+     */
+    public ModerationRuleEngine(List<ModerationRule> rules) {
+        List<ModerationRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparingInt(ModerationRule::cost));
+        this.rules = sorted.toArray(new ModerationRule[0]);
+    }
+
+    /**
+     * @return An engine without rules.
+     */
+    public static ModerationRuleEngine empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Checks a message against every rule.
+     *
+     * @param member  The author.
+     * @param message The message.
+     * @return The rules that matched, in cost order. Empty for nearly every message.
+     */
+    public List<ModerationRule> evaluate(Member member, Message message) {
+        List<ModerationRule> matched = null;
+        for (ModerationRule rule : rules) {
+            if (rule.matches(member, message)) {
+                if (matched == null) {
+                    matched = new ArrayList<>(2);
+                }
+                matched.add(rule);
+            }
+        }
+        return matched == null ? List.of() : matched;
+    }
+
+    /**
+     * @return The rules, in the order they are checked.
+     */
+    public List<ModerationRule> getRules() {
+        return List.of(rules);
+    }
+}
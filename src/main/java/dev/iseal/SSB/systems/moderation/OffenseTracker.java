@@ -0,0 +1,169 @@
+package dev.iseal.SSB.systems.moderation;
+
+import dev.iseal.SSB.storage.KeyValueStore;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts recent offenses per user within a sliding window, so repeat offenders can be punished harder.
+ * <p>
+ * Each user gets a ring buffer of their last {@code HISTORY_SIZE} offense timestamps, which is all that is
+ * needed to count offenses in the window up to that size. Users are kept in an LRU map capped at
+ * {@code MAX_TRACKED_USERS}, and users without offenses in the window are swept every {@code SWEEP_INTERVAL_MINUTES}.
+ * The timestamps are persisted to a {@link KeyValueStore}, keyed by user ID, so offenses survive restarts.
+ */
+public class OffenseTracker {
+
+    private static final int HISTORY_SIZE = 16;
+    private static final int MAX_TRACKED_USERS = 10_000;
+    private static final long SWEEP_INTERVAL_MINUTES = 30;
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final KeyValueStore store;
+    private final LongSupplier windowMillis;
+    private final LinkedHashMap<Long, OffenseHistory> histories = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, OffenseHistory> eldest) {
+            if (size() <= MAX_TRACKED_USERS) {
+                return false;
+            }
+            store.remove(String.valueOf(eldest.getKey()));
+            return true;
+        }
+    };
+
+    /**
+     * Creates a tracker, loads its persisted offenses and starts the expiry sweep.
+     *
+     * @param name         Used for the sweep thread name.
+     * @param store        Where offenses are persisted.
+     * @param windowMillis Supplies the current window length, read on every use so config reloads apply.
+     */
+    public OffenseTracker(String name, KeyValueStore store, LongSupplier windowMillis) {
+        this.store = store;
+        this.windowMillis = windowMillis;
+        load();
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SSB-OffenseSweep-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::expire, SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private static class OffenseHistory {
+        private final long[] timestamps = new long[HISTORY_SIZE];
+        // index of the next write, timestamps[next - 1] is the newest
+        private int next;
+        private int size;
+
+        private void add(long timestamp) {
+            timestamps[next] = timestamp;
+            next = (next + 1) % HISTORY_SIZE;
+            size = Math.min(size + 1, HISTORY_SIZE);
+        }
+
+        private int countSince(long cutoff) {
+            int count = 0;
+            // newest first, stop at the first one outside the window
+            for (int i = 1; i <= size; i++) {
+                if (timestamps[(next - i + HISTORY_SIZE) % HISTORY_SIZE] < cutoff) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        private String serialize(long cutoff) {
+            StringJoiner joiner = new StringJoiner(",");
+            int count = countSince(cutoff);
+            // oldest first, so loading replays them in order
+            for (int i = count; i >= 1; i--) {
+                joiner.add(String.valueOf(timestamps[(next - i + HISTORY_SIZE) % HISTORY_SIZE]));
+            }
+            return joiner.toString();
+        }
+    }
+
+    /**
+     * Records an offense.
+     *
+     * @param userID    The offender.
+     * @param timestamp When it happened, in epoch millis.
+     * @return The number of offenses of the user within the window, including this one.
+     */
+    public synchronized int recordOffense(long userID, long timestamp) {
+        long cutoff = timestamp - windowMillis.getAsLong();
+        OffenseHistory history = histories.computeIfAbsent(userID, id -> new OffenseHistory());
+        history.add(timestamp);
+        store.set(String.valueOf(userID), history.serialize(cutoff));
+        return history.countSince(cutoff);
+    }
+
+    /**
+     * @param userID The user.
+     * @return The number of offenses of the user within the window.
+     */
+    public synchronized int getOffenseCount(long userID) {
+        OffenseHistory history = histories.get(userID);
+        return history == null ? 0 : history.countSince(System.currentTimeMillis() - windowMillis.getAsLong());
+    }
+
+    private synchronized void expire() {
+        // an exception escaping here would cancel every later run of the sweep
+        try {
+            long cutoff = System.currentTimeMillis() - windowMillis.getAsLong();
+            int removed = 0;
+            Iterator<Map.Entry<Long, OffenseHistory>> iterator = histories.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, OffenseHistory> entry = iterator.next();
+                if (entry.getValue().countSince(cutoff) == 0) {
+                    iterator.remove();
+                    store.remove(String.valueOf(entry.getKey()));
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                log.debug("Expired offenses of {} users, {} users still tracked.", removed, histories.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to expire offenses: {}", e.getMessage(), e);
+        }
+    }
+
+    private synchronized void load() {
+        long cutoff = System.currentTimeMillis() - windowMillis.getAsLong();
+        int loaded = 0;
+        for (Map.Entry<String, Object> entry : store.getAll().entrySet()) {
+            OffenseHistory history = new OffenseHistory();
+            try {
+                long userID = Long.parseLong(entry.getKey());
+                for (String timestamp : String.valueOf(entry.getValue()).split(",")) {
+                    if (!timestamp.isBlank()) {
+                        history.add(Long.parseLong(timestamp.trim()));
+                    }
+                }
+                if (history.countSince(cutoff) == 0) {
+                    store.remove(entry.getKey());
+                    continue;
+                }
+                histories.put(userID, history);
+                loaded++;
+            } catch (NumberFormatException e) {
+                log.warn("Dropping unreadable offense entry {}: {}", entry.getKey(), e.getMessage());
+                store.remove(entry.getKey());
+            }
+        }
+        log.info("Loaded recent offenses of {} users.", loaded);
+    }
+}
@@ -1,14 +1,20 @@
 package dev.iseal.SSB.systems.rootCommand;
 
 import de.leonhard.storage.Yaml;
+import dev.iseal.SSB.managers.ConfigManager;
 import dev.iseal.SSB.registries.FeatureRegistry;
+import dev.iseal.SSB.registries.MetricsRegistry;
 import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractCommand;
 import dev.iseal.SSB.utils.interfaces.Feature;
+import dev.iseal.SSB.utils.utils.LiveConfig;
 import dev.iseal.SSB.utils.utils.RuntimeInterpreter;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
@@ -20,15 +26,19 @@ import java.awt.*;
 import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 public class RootCommand extends AbstractCommand {
 
-    private final Yaml yaml = new Yaml("rootCommandConfig.yml", System.getProperty("user.dir")+ File.separator + "config" + File.separator + "rootCommand");
-    private final String[] rootIDs;
+    private final Yaml yaml = ConfigManager.getInstance().openYaml("rootCommandConfig.yml", System.getProperty("user.dir")+ File.separator + "config" + File.separator + "rootCommand");
+    private final LiveConfig<RootConfig> config;
     private final FeatureRegistry featureRegistry = FeatureRegistry.getInstance();
     private final Logger log = JDALogger.getLog(getClass());
+    private static final int SUGGESTION_COUNT = 3;
+    private static final long REBOOT_REPLY_TIMEOUT_SECONDS = 10;
 
     public RootCommand() {
         super(
@@ -39,13 +49,17 @@ public class RootCommand extends AbstractCommand {
                                         .addOption(
                                                 OptionType.STRING,
                                                 "feature",
-                                                "The feature to disable"
+                                                "The feature to disable",
+                                                false,
+                                                true
                                         ),
                                 new SubcommandData("enablefeature", "Enable a feature")
                                         .addOption(
                                                 OptionType.STRING,
                                                 "feature",
-                                                "The feature to enable"
+                                                "The feature to enable",
+                                                false,
+                                                true
                                         ),
                                 new SubcommandData("listfeatures", "List all features")
                                         .addOption(
@@ -54,6 +68,20 @@ public class RootCommand extends AbstractCommand {
                                                 "Only list enabled features",
                                                 false
                                         ),
+                                new SubcommandData("metrics", "Show runtime metrics")
+                                        .addOption(
+                                                OptionType.STRING,
+                                                "prefix",
+                                                "Only show metrics starting with this, like restRoute.",
+                                                false,
+                                                true
+                                        )
+                                        .addOption(
+                                                OptionType.INTEGER,
+                                                "page",
+                                                "The page to show, if the metrics don't fit in one",
+                                                false
+                                        ),
                                 new SubcommandData("eval", "Evaluate java code")
                                         .addOption(
                                                 OptionType.STRING,
@@ -75,7 +103,37 @@ public class RootCommand extends AbstractCommand {
         ArrayList<String> defaultRootIDs = new ArrayList<>();
         defaultRootIDs.add("398908171357519872");
         yaml.setDefault("rootIDs", defaultRootIDs);
-        rootIDs = yaml.getStringList("rootIDs").toArray(new String[0]);
+        config = ConfigManager.getInstance().watch(yaml, RootConfig::fromYaml);
+        registerAutocomplete("disablefeature", "feature", (input, limit) -> toChoices(
+                featureRegistry.completeFeatures(input, limit, name -> featureRegistry.isFeatureEnabled(name) && !name.equals(getFeatureName()))));
+        registerAutocomplete("enablefeature", "feature", (input, limit) -> toChoices(
+                featureRegistry.completeFeatures(input, limit, name -> !featureRegistry.isFeatureEnabled(name))));
+        registerAutocomplete("metrics", "prefix", (input, limit) -> toChoices(completeMetricPrefixes(input, limit)));
+    }
+
+    /**
+     * Completes metric names one dot separated segment at a time, so {@code rest} offers {@code restRoute.}
+     * and {@code restFeature.}, and {@code restRoute.} offers the routes.
+     */
+    private static List<String> completeMetricPrefixes(String input, int limit) {
+        TreeSet<String> prefixes = new TreeSet<>();
+        for (String name : MetricsRegistry.getInstance().snapshot().keySet()) {
+            if (!name.startsWith(input)) {
+                continue;
+            }
+            int nextDot = name.indexOf('.', input.length());
+            prefixes.add(nextDot == -1 ? name : name.substring(0, nextDot + 1));
+        }
+        return prefixes.stream().limit(limit).toList();
+    }
+
+    @Override
+    public void handleAutocomplete(CommandAutoCompleteInteractionEvent event) {
+        if (!config.get().rootIDs().contains(event.getUser().getId())) {
+            event.replyChoices().queue();
+            return;
+        }
+        super.handleAutocomplete(event);
     }
 
     @Override
@@ -83,7 +141,7 @@ public class RootCommand extends AbstractCommand {
         String subcommand = event.getSubcommandName();
         event.getHook().setEphemeral(true);
         event.getHook().editOriginal("Processing command...").queue();
-        if (!Arrays.stream(rootIDs).anyMatch(id -> id.equals(event.getUser().getId()))) {
+        if (!config.get().rootIDs().contains(event.getUser().getId())) {
             // user is not authorized to use this command.
             event.getHook().editOriginal("You are not authorized to use this command.").queue();
             return;
@@ -97,13 +155,26 @@ public class RootCommand extends AbstractCommand {
             case "disablefeature" -> handleDisableFeature(event);
             case "enablefeature" -> handleEnableFeature(event);
             case "listfeatures" -> handleListFeatures(event);
+            case "metrics" -> handleMetrics(event);
             case "eval" -> handleEval(event);
             default -> event.getHook().editOriginal("Unknown subcommand.").queue();
         }
     }
 
     private void handleReboot(SlashCommandInteractionEvent event) {
-        event.getHook().editOriginal("Rebooting...").complete();
+        // the new process can't edit the reply anymore, so restart once Discord has it, or gave up on it
+        event.getHook().editOriginal("Rebooting...")
+                .timeout(REBOOT_REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .submit()
+                .whenComplete((message, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to edit the reboot reply, rebooting anyway: {}", error.getMessage());
+                    }
+                    reboot(event);
+                });
+    }
+
+    private void reboot(SlashCommandInteractionEvent event) {
         log.debug("Rebooting... Requested at: " + System.currentTimeMillis());
         Utils.addTempFileData("root-reboot-requested-by", event.getMember().getId());
         Utils.addTempFileData("root-reboot-requested-at", Instant.now().getEpochSecond());
@@ -133,7 +204,8 @@ public class RootCommand extends AbstractCommand {
             return; // don't disable this command
         }
         if (!featureRegistry.isFeatureRegistered(featureName)) {
-            event.getHook().editOriginal("Feature " + featureName + " is not registered.").queue();
+            event.getHook().editOriginal("Feature " + featureName + " is not registered."
+                    + Utils.didYouMean(featureRegistry.suggestFeatures(featureName, SUGGESTION_COUNT))).queue();
             return;
         }
         if (featureRegistry.isFeatureEnabled(featureName)) {
@@ -147,7 +219,8 @@ public class RootCommand extends AbstractCommand {
     private void handleEnableFeature(SlashCommandInteractionEvent event) {
         String featureName = event.getOption("feature").getAsString();
         if (!featureRegistry.isFeatureRegistered(featureName)) {
-            event.getHook().editOriginal("Feature " + featureName + " is not registered.").queue();
+            event.getHook().editOriginal("Feature " + featureName + " is not registered."
+                    + Utils.didYouMean(featureRegistry.suggestFeatures(featureName, SUGGESTION_COUNT))).queue();
             return;
         }
         if (!featureRegistry.isFeatureEnabled(featureName)) {
@@ -189,6 +262,43 @@ public class RootCommand extends AbstractCommand {
         event.getHook().editOriginalEmbeds(embed.build()).queue();
     }
 
+    private void handleMetrics(SlashCommandInteractionEvent event) {
+        String prefix = event.getOption("prefix", "", OptionMapping::getAsString);
+        // one embed per page, the metrics rarely fit in a single one
+        List<String> pages = new ArrayList<>();
+        StringBuilder page = new StringBuilder();
+        int matched = 0;
+        for (Map.Entry<String, String> metric : MetricsRegistry.getInstance().snapshot().entrySet()) {
+            if (!metric.getKey().startsWith(prefix)) {
+                continue;
+            }
+            matched++;
+            String line = Utils.truncate("`" + metric.getKey() + "`: " + metric.getValue(), MessageEmbed.DESCRIPTION_MAX_LENGTH - 1) + "\n";
+            if (page.length() + line.length() > MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+                pages.add(page.toString());
+                page.setLength(0);
+            }
+            page.append(line);
+        }
+        if (!page.isEmpty()) {
+            pages.add(page.toString());
+        }
+
+        EmbedBuilder embed = new EmbedBuilder();
+        embed.setTitle(prefix.isEmpty() ? "Metrics" : "Metrics starting with " + prefix);
+        embed.setColor(Color.GREEN);
+        if (pages.isEmpty()) {
+            embed.setDescription(prefix.isEmpty() ? "No metrics recorded yet." : "No metrics start with " + prefix + ".");
+        } else {
+            int pageNumber = Math.clamp(event.getOption("page", 1, OptionMapping::getAsInt), 1, pages.size());
+            embed.setDescription(pages.get(pageNumber - 1));
+            embed.setFooter("Page " + pageNumber + " of " + pages.size() + ", " + matched + " metrics"
+                    + (pages.size() > 1 ? ". Use page or prefix to see the rest." : ""));
+        }
+        event.getHook().editOriginal("Done").queue();
+        event.getHook().editOriginalEmbeds(embed.build()).queue();
+    }
+
     private void handleEval(SlashCommandInteractionEvent event) {
         String codeStr = event.getOption("code") != null ? event.getOption("code").getAsString() : null;
         Message.Attachment codeFile = event.getOption("code_file") != null ? event.getOption("code_file").getAsAttachment() : null;
@@ -0,0 +1,17 @@
+package dev.iseal.SSB.systems.rootCommand;
+
+import de.leonhard.storage.Yaml;
+
+import java.util.Set;
+
+/**
+ * Immutable snapshot of {@code config/rootCommand/rootCommandConfig.yml}.
+ *
+ * @param rootIDs The IDs of the users allowed to use /root.
+ */
+public record RootConfig(Set<String> rootIDs) {
+
+    public static RootConfig fromYaml(Yaml yaml) {
+        return new RootConfig(Set.copyOf(yaml.getStringList("rootIDs")));
+    }
+}
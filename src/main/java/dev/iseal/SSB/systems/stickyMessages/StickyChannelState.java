@@ -0,0 +1,166 @@
+package dev.iseal.SSB.systems.stickyMessages;
+
+import dev.iseal.SSB.utils.utils.TimingWheel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Everything {@link StickyManager} tracks for a single channel with a sticky message.
+ * <p>
+ * Keyed by IDs only, channels are resolved from the JDA cache when they are needed, so a state
+ * never holds on to an entity that went stale after a cache invalidation.
+ * All fields are safe to read and write from the message pool and the timing wheel thread at once.
+ * It is also its own timer on the sticky {@link TimingWheel}, so debouncing allocates nothing per message.
+ */
+class StickyChannelState extends TimingWheel.Timer {
+
+    private static final long RATE_TIME_CONSTANT_MS = 60_000;
+
+    private final long channelID;
+    private final long guildID;
+    private final String message;
+    private volatile long lastRun;
+    private final AtomicLong lastStickyID = new AtomicLong();
+    // 0 until the first message after startup or a gateway gap, see isLastMessageKnown()
+    private final AtomicLong lastMessageAt = new AtomicLong();
+    // first message the current sticky is waiting on, 0 if none
+    private final AtomicLong pendingSince = new AtomicLong();
+    // decaying message count, see getMessagesPerMinute()
+    private double messageRate;
+    private long messageRateUpdatedAt;
+
+    StickyChannelState(long channelID, long guildID, String message) {
+        this.channelID = channelID;
+        this.guildID = guildID;
+        this.message = message;
+    }
+
+    long getChannelID() {
+        return channelID;
+    }
+
+    long getGuildID() {
+        return guildID;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return When the sticky was last sent, in epoch millis, or 0 if it wasn't sent yet.
+     */
+    long getLastRun() {
+        return lastRun;
+    }
+
+    void setLastRun(long lastRun) {
+        this.lastRun = lastRun;
+    }
+
+    /**
+     * @return The ID of the last sticky message sent, or 0 if there is none.
+     */
+    long getLastStickyID() {
+        return lastStickyID.get();
+    }
+
+    void setLastStickyID(long lastStickyID) {
+        this.lastStickyID.set(lastStickyID);
+    }
+
+    /**
+     * Sets the last sticky ID, unless a newer sticky is already known.
+     *
+     * @param stickyID The sticky found in the channel.
+     * @return The last sticky ID after the update.
+     */
+    long adoptLastStickyID(long stickyID) {
+        return lastStickyID.accumulateAndGet(stickyID, Math::max);
+    }
+
+    /**
+     * Clears the last sticky ID, unless a newer sticky was sent in the meantime.
+     *
+     * @param stickyID The ID that is known to be gone.
+     */
+    void clearLastStickyID(long stickyID) {
+        lastStickyID.compareAndSet(stickyID, 0L);
+    }
+
+    /**
+     * Records a message seen in the channel. Messages from different pool threads can arrive
+     * out of order, so only a newer timestamp replaces the current one.
+     *
+     * @param timestamp When the message was created, in epoch millis.
+     */
+    void recordMessage(long timestamp) {
+        lastMessageAt.accumulateAndGet(timestamp, Math::max);
+    }
+
+    /**
+     * @return When the last message in the channel was created, in epoch millis. Only valid if {@link #isLastMessageKnown()}.
+     */
+    long getLastMessageAt() {
+        return lastMessageAt.get();
+    }
+
+    /**
+     * @return false if no message was seen since startup or since the last gateway gap,
+     * in which case the last message has to be looked up over REST.
+     */
+    boolean isLastMessageKnown() {
+        return lastMessageAt.get() != 0;
+    }
+
+    /**
+     * Forgets the last message time, after events may have been missed.
+     */
+    void forgetLastMessage() {
+        lastMessageAt.set(0L);
+    }
+
+    /**
+     * Marks the sticky as waiting to be reposted, unless it already is.
+     *
+     * @param now The current time in epoch millis.
+     */
+    void markPending(long now) {
+        pendingSince.compareAndSet(0L, now);
+    }
+
+    /**
+     * @return Since when the sticky is waiting to be reposted, in epoch millis, or 0 if it isn't.
+     */
+    long getPendingSince() {
+        return pendingSince.get();
+    }
+
+    void clearPending() {
+        pendingSince.set(0L);
+    }
+
+    /**
+     * Adds a message to the message rate. The rate is an exponentially weighted moving average
+     * with a one minute time constant, so it follows changes in activity within a minute or two.
+     *
+     * @param now The current time in epoch millis.
+     */
+    synchronized void recordRate(long now) {
+        messageRate = decayedRate(now) + 1;
+        messageRateUpdatedAt = now;
+    }
+
+    /**
+     * @param now The current time in epoch millis.
+     * @return The recent message rate of the channel, in messages per minute.
+     */
+    synchronized double getMessagesPerMinute(long now) {
+        return decayedRate(now);
+    }
+
+    private double decayedRate(long now) {
+        long elapsed = Math.max(0, now - messageRateUpdatedAt);
+        return messageRate * Math.exp(-elapsed / (double) RATE_TIME_CONSTANT_MS);
+    }
+}
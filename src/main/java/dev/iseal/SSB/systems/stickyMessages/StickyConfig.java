@@ -0,0 +1,26 @@
+package dev.iseal.SSB.systems.stickyMessages;
+
+import de.leonhard.storage.Yaml;
+
+/**
+ * Immutable snapshot of {@code config/stickyMessages/config.yml}.
+ *
+ * @param cooldown             Minimum time between two sticky posts in a channel, in millis.
+ * @param maxTimeBeforeLastMsg How long a channel has to be quiet before the sticky is reposted, in millis.
+ * @param adaptive             Whether the quiet window stretches with the message rate of the channel.
+ * @param maxRepostsPerMinute  Adaptive mode only: the most a sticky is reposted per minute in a channel.
+ * @param maxDebounce          Adaptive mode only: the longest the quiet window gets, and the longest a sticky
+ *                             waits in a channel that never goes quiet, in millis.
+ */
+public record StickyConfig(int cooldown, int maxTimeBeforeLastMsg, boolean adaptive, int maxRepostsPerMinute, int maxDebounce) {
+
+    public static StickyConfig fromYaml(Yaml yaml) {
+        return new StickyConfig(
+                yaml.getInt("cooldown"),
+                yaml.getInt("maxTimeBeforeLastMsg"),
+                yaml.getBoolean("adaptive"),
+                Math.max(1, yaml.getInt("maxRepostsPerMinute")),
+                yaml.getInt("maxDebounce")
+        );
+    }
+}
@@ -1,36 +1,49 @@
 package dev.iseal.SSB.systems.stickyMessages;
 
-import de.leonhard.storage.Json;
 import de.leonhard.storage.Yaml;
 import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.ConfigManager;
+import dev.iseal.SSB.managers.RestInstrumentation;
+import dev.iseal.SSB.managers.RestScheduler;
+import dev.iseal.SSB.managers.StorageManager;
+import dev.iseal.SSB.storage.StickyStore;
 import dev.iseal.SSB.utils.abstracts.AbstractMessageListener;
+import dev.iseal.SSB.utils.utils.LiveConfig;
+import dev.iseal.SSB.utils.utils.TimingWheel;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.middleman.StandardGuildMessageChannel;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.slf4j.Logger;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 public class StickyManager extends AbstractMessageListener {
 
-    private final Json json = new Json("stickyMessages.json", System.getProperty("user.dir") + "/data/stickyMessages");
-    private final Yaml yaml = new Yaml("config.yml", System.getProperty("user.dir") + "/config/stickyMessages");
-    private final HashMap<StandardGuildMessageChannel, String> stickyMessages = new HashMap<>();
+    private final StickyStore stickyStore = StorageManager.getInstance().getBackend().getStickyStore();
+    private final Yaml yaml = ConfigManager.getInstance().openYaml("config.yml", System.getProperty("user.dir") + "/config/stickyMessages");
+    // channel ID -> state, only channels with a sticky message are in here
+    private final ConcurrentHashMap<Long, StickyChannelState> stickyChannels = new ConcurrentHashMap<>();
+    // guild ID -> channel IDs with a sticky message
+    private final ConcurrentHashMap<Long, Set<Long>> stickyChannelsByGuild = new ConcurrentHashMap<>();
     private final Logger log = JDALogger.getLog(StickyManager.class);
-    private final int MAX_COOLDOWN; // millis
-    private final int MAX_TIME_BEFORE_LAST_MSG;
+    private final LiveConfig<StickyConfig> config;
+    // messages per minute up to which adaptive mode keeps the configured quiet window
+    private final static double ADAPTIVE_BASE_RATE = 10;
+    private final static int RECONCILE_CONCURRENCY = 4;
+    private final static int RECONCILE_HISTORY_SIZE = 50;
+    // a hanging history request would otherwise stall reconciliation, or the sticky of its channel
+    private final static long HISTORY_TIMEOUT_SECONDS = 15;
     private final static String FOOTER_CONTENT = "\n\n-# This is a sticky message. It's not replying to anyone, just here to stay.";
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private final HashMap<StandardGuildMessageChannel, Long> lastRunTime = new HashMap<>();
-    private final HashMap<StandardGuildMessageChannel, ScheduledFuture<?>> scheduledTasks = new HashMap<>();
-    private final HashMap<StandardGuildMessageChannel, Long> lastStickyMessageId = new HashMap<>();
+    // 50ms ticks, one rotation is ~25s which covers any sane cooldown
+    private final TimingWheel<StickyChannelState> wheel = new TimingWheel<>("stickyMessages", 50, 512, this::onStickiesDue);
 
     private static final StickyManager instance = new StickyManager();
     public static StickyManager getInstance() {
@@ -39,140 +52,277 @@ public class StickyManager extends AbstractMessageListener {
 
     private StickyManager() {
         super("system.stickyMessages");
-        json.setDefault("stickyMessages", new HashMap<String, String>());
-        Map<String, String> storedMessages = json.getMapParameterized("stickyMessages");
-        storedMessages.forEach((channelIdStr, message) -> {
-            if (message != null) {
-                try {
-                    long channelId = Long.parseLong(channelIdStr);
-                    var guildChannel = SSBMain.getJDA().getGuildChannelById(channelId);
-                    if (guildChannel instanceof StandardGuildMessageChannel) {
-                        stickyMessages.put((StandardGuildMessageChannel) guildChannel, message);
-                    } else {
-                        log.warn("Channel ID {} from storage is not a StandardGuildMessageChannel or not found.", channelIdStr);
-                    }
-                } catch (NumberFormatException e) {
-                    log.warn("Invalid channel ID format in stickyMessages.json: {}", channelIdStr, e);
-                    Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).forEachOrdered(log::warn);
-                }
+        stickyStore.getAllStickies().forEach(sticky -> {
+            long guildID = sticky.guildID();
+            StandardGuildMessageChannel channel = resolveChannel(sticky.channelID());
+            if (channel == null) {
+                log.warn("Channel ID {} from storage is not a StandardGuildMessageChannel or not found.", sticky.channelID());
+            } else if (guildID == 0) {
+                // stored before guild IDs were kept, backfill it for per-guild lookups
+                guildID = channel.getGuild().getIdLong();
+                stickyStore.putSticky(new StickyStore.StickyMessage(sticky.channelID(), guildID, sticky.message(), sticky.lastStickyID()));
             }
+            // kept even if the channel isn't cached right now, it's resolved again when a message arrives
+            StickyChannelState state = new StickyChannelState(sticky.channelID(), guildID, sticky.message());
+            state.setLastStickyID(sticky.lastStickyID());
+            putState(state);
         });
 
         yaml.setDefault("cooldown", 3000);
         yaml.setDefault("maxTimeBeforeLastMsg", 1000);
-        MAX_COOLDOWN = yaml.getInt("cooldown");
-        MAX_TIME_BEFORE_LAST_MSG = yaml.getInt("maxTimeBeforeLastMsg");
-        log.info("StickyManager initialized. Cooldown: {}ms, MaxTimeBeforeLastMsg: {}ms. Loaded {} sticky messages.", MAX_COOLDOWN, MAX_TIME_BEFORE_LAST_MSG, stickyMessages.size());
+        yaml.setDefault("adaptive", false);
+        yaml.setDefault("maxRepostsPerMinute", 6);
+        yaml.setDefault("maxDebounce", 30000);
+        config = ConfigManager.getInstance().watch(yaml, StickyConfig::fromYaml);
+        SSBMain.getJDA().addEventListener(new ListenerAdapter() {
+            @Override
+            public void onSessionRecreate(SessionRecreateEvent event) {
+                // a new session doesn't replay what was missed, so local last message times can't be trusted anymore
+                stickyChannels.values().forEach(StickyChannelState::forgetLastMessage);
+                log.info("Gateway session was recreated, last message times of {} sticky channels will be fetched again.", stickyChannels.size());
+            }
+        });
+        reconcileStickies();
+        log.info("StickyManager initialized. Cooldown: {}ms, MaxTimeBeforeLastMsg: {}ms, Adaptive: {}. Loaded {} sticky messages.", config.get().cooldown(), config.get().maxTimeBeforeLastMsg(), config.get().adaptive(), stickyChannels.size());
     }
 
-    @Override
-    public void handleMessage(MessageReceivedEvent event) {
+    /**
+     * Looks through the recent history of every sticky channel for stickies the bot posted before a restart
+     * but no longer tracks, and deletes all of them except the newest one, which becomes the current sticky.
+     * Runs in the background with at most {@link #RECONCILE_CONCURRENCY} channels in flight, and orphans
+     * are purged with bulk deletes where the bot has permission to.
+     */
+    private void reconcileStickies() {
+        Queue<StickyChannelState> queue = new ConcurrentLinkedQueue<>(stickyChannels.values());
+        if (queue.isEmpty()) {
+            return;
+        }
+        log.info("Reconciling sticky messages in {} channels.", queue.size());
+        for (int i = 0; i < RECONCILE_CONCURRENCY; i++) {
+            reconcileNext(queue);
+        }
+    }
+
+    // each call chain handles one channel at a time and moves on to the next when its request is done
+    private void reconcileNext(Queue<StickyChannelState> queue) {
+        StickyChannelState state;
         StandardGuildMessageChannel channel;
-        try {
-            channel = (StandardGuildMessageChannel) event.getChannel().asGuildMessageChannel();
-        } catch (ClassCastException | IllegalStateException e) {
-            return; // Not a guild message channel
+        do {
+            state = queue.poll();
+            if (state == null) {
+                return;
+            }
+            channel = resolveChannel(state.getChannelID());
+        } while (channel == null || !channel.canTalk());
+
+        StickyChannelState current = state;
+        StandardGuildMessageChannel currentChannel = channel;
+        channel.getHistory().retrievePast(RECONCILE_HISTORY_SIZE).timeout(HISTORY_TIMEOUT_SECONDS, TimeUnit.SECONDS).queue(
+                messages -> {
+                    try {
+                        reconcileChannel(current, currentChannel, messages);
+                    } finally {
+                        reconcileNext(queue);
+                    }
+                },
+                error -> {
+                    log.warn("Failed to retrieve message history for channel {} while reconciling stickies: {}", currentChannel.getId(), error.getMessage());
+                    reconcileNext(queue);
+                }
+        );
+    }
+
+    private void reconcileChannel(StickyChannelState state, StandardGuildMessageChannel channel, List<Message> history) {
+        long selfID = channel.getJDA().getSelfUser().getIdLong();
+        long storedID = state.getLastStickyID();
+        // history is newest first
+        List<Long> postedStickies = history.stream()
+                .filter(message -> message.getAuthor().getIdLong() == selfID && message.getContentRaw().endsWith(FOOTER_CONTENT))
+                .map(Message::getIdLong)
+                .toList();
+
+        // the newest sticky in the channel is the visible one, even if the bot stopped before storing its ID
+        long keep = postedStickies.isEmpty() ? storedID : state.adoptLastStickyID(postedStickies.get(0));
+        if (keep != storedID) {
+            stickyStore.setLastStickyID(state.getChannelID(), keep);
         }
 
-        if (event.getAuthor().equals(event.getJDA().getSelfUser())) {
-            return; // Skip self messages
+        Set<Long> orphans = new LinkedHashSet<>();
+        postedStickies.forEach(id -> {
+            if (id < keep) {
+                orphans.add(id);
+            }
+        });
+        // may be older than the fetched history, worst case the delete fails with unknown message
+        if (storedID != 0 && storedID < keep) {
+            orphans.add(storedID);
+        }
+        if (orphans.isEmpty()) {
+            return;
         }
 
-        String stickyMessage = stickyMessages.get(channel);
-        if (stickyMessage != null) {
-            long lastRun = lastRunTime.getOrDefault(channel, 0L);
-            cancelExistingTask(channel);
+        log.info("Deleting {} orphaned sticky messages in channel {}.", orphans.size(), channel.getId());
+        channel.purgeMessagesById(orphans.stream().mapToLong(Long::longValue).toArray());
+    }
 
-            long timeSinceLastStickySent = System.currentTimeMillis() - lastRun;
-            long delay = Math.max(0, MAX_COOLDOWN - timeSinceLastStickySent);
+    private void putState(StickyChannelState state) {
+        stickyChannels.put(state.getChannelID(), state);
+        indexByGuild(state);
+    }
 
-            log.debug("Scheduling sticky for channel {} with delay {}ms.", channel.getId(), delay);
-            scheduleSticky(channel, stickyMessage, delay);
-        }
+    private void indexByGuild(StickyChannelState state) {
+        stickyChannelsByGuild.computeIfAbsent(state.getGuildID(), id -> ConcurrentHashMap.newKeySet()).add(state.getChannelID());
     }
 
-    private OptionalLong getLastMessageTimestamp(StandardGuildMessageChannel channel) {
-        try {
-            List<Message> messages = channel.getHistory().retrievePast(1).complete();
-            if (!messages.isEmpty()) {
-                return OptionalLong.of(messages.get(0).getTimeCreated().toInstant().toEpochMilli());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to retrieve message history for channel {}: {}", channel.getId(), e.getMessage());
-            Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).forEachOrdered(log::warn);
+    private StickyChannelState removeState(long channelID) {
+        StickyChannelState state = stickyChannels.remove(channelID);
+        if (state != null) {
+            stickyChannelsByGuild.computeIfPresent(state.getGuildID(), (id, channels) -> {
+                channels.remove(channelID);
+                return channels.isEmpty() ? null : channels;
+            });
         }
-        return OptionalLong.empty();
+        return state;
+    }
+
+    private StandardGuildMessageChannel resolveChannel(long channelID) {
+        return SSBMain.getJDA().getChannelById(StandardGuildMessageChannel.class, channelID);
     }
 
-    private void cancelExistingTask(StandardGuildMessageChannel channel) {
-        ScheduledFuture<?> existingTask = scheduledTasks.remove(channel);
-        if (existingTask != null) {
-            existingTask.cancel(false);
-            log.debug("Cancelled existing sticky task for channel {}", channel.getId());
+    @Override
+    public void handleMessage(MessageReceivedEvent event) {
+        StickyChannelState state = stickyChannels.get(event.getChannel().getIdLong());
+        if (state == null) {
+            return; // No sticky in this channel
+        }
+        // every message counts, including our own stickies, so the scheduler never has to ask Discord
+        state.recordMessage(event.getMessage().getTimeCreated().toInstant().toEpochMilli());
+
+        if (event.getAuthor().equals(event.getJDA().getSelfUser())) {
+            return; // Skip self messages
+        }
+
+        long now = System.currentTimeMillis();
+        state.markPending(now);
+        if (config.get().adaptive()) {
+            state.recordRate(now);
         }
+        scheduleSticky(state);
     }
 
-    private void scheduleSticky(StandardGuildMessageChannel channel, String message, long initialDelay) {
-        log.debug("Scheduling sticky message for channel: {} ({}), initial delay: {}ms", channel.getName(), channel.getId(), initialDelay);
+    /**
+     * The sticky is due once the cooldown since the last sticky is over
+     * and the channel has been quiet for {@code maxTimeBeforeLastMsg}.
+     * <p>
+     * In adaptive mode the quiet window grows with the message rate (up to {@code maxDebounce}),
+     * a sticky is never held back longer than {@code maxDebounce} even if the channel never goes quiet,
+     * and reposts are spaced so there are at most {@code maxRepostsPerMinute} of them.
+     */
+    private long getStickyDeadline(StickyChannelState state) {
+        StickyConfig currentConfig = config.get();
+        if (!currentConfig.adaptive()) {
+            return Math.max(state.getLastRun() + currentConfig.cooldown(), state.getLastMessageAt() + currentConfig.maxTimeBeforeLastMsg());
+        }
 
-        ScheduledFuture<?> task = scheduler.schedule(() -> {
-            long now = Instant.now().toEpochMilli();
-            OptionalLong lastMsgTimestampOpt = getLastMessageTimestamp(channel);
+        long now = System.currentTimeMillis();
+        double messagesPerMinute = state.getMessagesPerMinute(now);
+        // up to ADAPTIVE_BASE_RATE messages per minute the configured window is kept, above that it scales with the rate
+        long quietWindow = (long) Math.min(currentConfig.maxDebounce(),
+                currentConfig.maxTimeBeforeLastMsg() * Math.max(1.0, messagesPerMinute / ADAPTIVE_BASE_RATE));
+        long earliest = state.getLastRun() + Math.max(currentConfig.cooldown(), 60_000L / currentConfig.maxRepostsPerMinute());
+        long pendingSince = state.getPendingSince() == 0 ? now : state.getPendingSince();
+        long quietAt = Math.min(state.getLastMessageAt() + quietWindow, pendingSince + currentConfig.maxDebounce());
+        return Math.max(earliest, quietAt);
+    }
 
-            if (lastMsgTimestampOpt.isEmpty()) {
-                log.warn("No messages in channel {} during scheduled sticky task. Aborting.", channel.getId());
-                scheduledTasks.remove(channel);
-                return;
-            }
+    private void scheduleSticky(StickyChannelState state) {
+        wheel.schedule(state, getStickyDeadline(state));
+    }
 
-            long lastMsgTime = lastMsgTimestampOpt.getAsLong();
-            long timeSinceLastMsg = now - lastMsgTime;
-
-            if (timeSinceLastMsg >= MAX_TIME_BEFORE_LAST_MSG) {
-                log.debug("Threshold exceeded, sending sticky message to channel {}", channel.getId());
-                sendStickyMessage(channel, message);
-                lastRunTime.put(channel, now);
-                scheduledTasks.remove(channel);
-            } else {
-                long newDelay = MAX_TIME_BEFORE_LAST_MSG - timeSinceLastMsg;
-                log.debug("Recent message detected, rescheduling with delay: {}ms", newDelay);
-                scheduleSticky(channel, message, newDelay);
-            }
-        }, initialDelay, TimeUnit.MILLISECONDS);
+    /**
+     * Looks up the last message of a channel over REST, for when it wasn't seen on the gateway.
+     */
+    private void fetchLastMessageTimestamp(StickyChannelState state, StandardGuildMessageChannel channel, Runnable then) {
+        log.debug("Last message of channel {} is unknown, fetching it.", channel.getId());
+        channel.getHistory().retrievePast(1).timeout(HISTORY_TIMEOUT_SECONDS, TimeUnit.SECONDS).queue(
+                messages -> {
+                    if (messages.isEmpty()) {
+                        log.warn("No messages in channel {} during scheduled sticky task. Aborting.", channel.getId());
+                        return;
+                    }
+                    state.recordMessage(messages.get(0).getTimeCreated().toInstant().toEpochMilli());
+                    then.run();
+                },
+                error -> log.warn("Failed to retrieve message history for channel {}: {}", channel.getId(), error.getMessage())
+        );
+    }
 
-        cancelExistingTask(channel); // Ensure no duplicate tasks
-        scheduledTasks.put(channel, task);
-        log.debug("Sticky message task scheduled successfully for channel: {}", channel.getId());
+    private void onStickiesDue(List<StickyChannelState> due) {
+        log.debug("{} sticky messages are due.", due.size());
+        // runs on the wheel's thread, not the message pool that tags the other requests of this feature
+        RestInstrumentation.runAs(getFeatureName(), () -> due.forEach(this::runSticky));
     }
 
+    private void runSticky(StickyChannelState state) {
+        if (stickyChannels.get(state.getChannelID()) != state) {
+            return; // Removed (or replaced) while the timer was waiting
+        }
+        StandardGuildMessageChannel channel = resolveChannel(state.getChannelID());
+        if (channel == null) {
+            log.warn("Channel {} is no longer available during scheduled sticky task. Aborting.", state.getChannelID());
+            return;
+        }
 
+        if (!state.isLastMessageKnown()) {
+            // only after startup or a gateway gap
+            fetchLastMessageTimestamp(state, channel, () -> scheduleSticky(state));
+            return;
+        }
 
-    private void sendStickyMessage(StandardGuildMessageChannel channel, String content) {
-        Long previousMessageId = lastStickyMessageId.get(channel);
-        if (previousMessageId != null) {
-            channel.retrieveMessageById(previousMessageId).queue(
-                    prevMsg -> prevMsg.delete().queue(
-                            success -> log.info("Deleted previous sticky message {} in channel {}", previousMessageId, channel.getName()),
-                            error -> log.warn("Failed to delete previous sticky message {}: {}", previousMessageId, error.getMessage())
-                    ),
-                    error -> { // Commonly "Unknown Message" if already deleted
-                        log.debug("Previous sticky message {} not found for deletion in channel {}: {}", previousMessageId, channel.getId(), error.getMessage());
-                        lastStickyMessageId.remove(channel); // Assume it's gone
-                    }
-            );
+        long now = Instant.now().toEpochMilli();
+        long deadline = getStickyDeadline(state);
+        if (deadline > now) {
+            // the config changed while the timer was waiting
+            log.debug("Sticky for channel {} is not due yet, rescheduling in {}ms", channel.getId(), deadline - now);
+            wheel.schedule(state, deadline);
+            return;
         }
 
-        channel.sendMessage("@silent\n"+content+FOOTER_CONTENT).queue(
-                sentMessage -> {
-                    lastStickyMessageId.put(channel, sentMessage.getIdLong());
-                    log.info("Sent sticky message to channel: {} (ID: {})", channel.getName(), sentMessage.getId());
-                },
-                error -> log.error("Failed to send sticky message to channel {}: {}", channel.getId(), error.getMessage())
-        );
+        log.debug("Threshold exceeded, sending sticky message to channel {}", channel.getId());
+        sendStickyMessage(state, channel);
+        state.setLastRun(now);
+        state.clearPending();
+    }
+
+    private void sendStickyMessage(StickyChannelState state, StandardGuildMessageChannel channel) {
+        RestScheduler restScheduler = RestScheduler.getInstance();
+        String bucket = RestScheduler.channelBucket(channel.getIdLong());
+        long previousMessageId = state.getLastStickyID();
+        if (previousMessageId != 0) {
+            restScheduler.submit(channel.deleteMessageById(previousMessageId), RestScheduler.Priority.STICKY, bucket).whenComplete((success, error) -> {
+                if (error == null) {
+                    log.info("Deleted previous sticky message {} in channel {}", previousMessageId, channel.getName());
+                } else { // Commonly "Unknown Message" if already deleted
+                    log.debug("Previous sticky message {} could not be deleted in channel {}: {}", previousMessageId, channel.getId(), error.getMessage());
+                    state.clearLastStickyID(previousMessageId); // Assume it's gone
+                }
+            });
+        }
+
+        restScheduler.submit(channel.sendMessage("@silent\n"+state.getMessage()+FOOTER_CONTENT), RestScheduler.Priority.STICKY, bucket).whenComplete((sentMessage, error) -> {
+            if (error != null) {
+                log.error("Failed to send sticky message to channel {}: {}", channel.getId(), error.getMessage());
+                return;
+            }
+            state.setLastStickyID(sentMessage.getIdLong());
+            // persisted so the next start can clean it up instead of leaving a duplicate
+            stickyStore.setLastStickyID(state.getChannelID(), sentMessage.getIdLong());
+            log.info("Sent sticky message to channel: {} (ID: {})", channel.getName(), sentMessage.getId());
+        });
     }
 
     public String addStickyMessage(StandardGuildMessageChannel channel, String message) {
-        if (stickyMessages.containsKey(channel)) {
+        if (stickyChannels.containsKey(channel.getIdLong())) {
             return "Sticky message already exists for this channel!";
         }
         if (message.length() > 2000) {
@@ -185,47 +335,45 @@ public class StickyManager extends AbstractMessageListener {
             return "I don't have permission to send messages in this channel!";
         }
 
-        stickyMessages.put(channel, message);
-        updateFile();
+        StickyChannelState state = new StickyChannelState(channel.getIdLong(), channel.getGuild().getIdLong(), message);
+        if (stickyChannels.putIfAbsent(state.getChannelID(), state) != null) {
+            return "Sticky message already exists for this channel!";
+        }
+        indexByGuild(state);
+        stickyStore.putSticky(new StickyStore.StickyMessage(state.getChannelID(), state.getGuildID(), message));
         log.info("Added sticky message to channel: {} | Message: {}", channel.getName(), message.substring(0, Math.min(50, message.length())) + (message.length() > 50 ? "..." : ""));
         return "Sticky message added successfully!";
     }
 
     public String removeStickyMessage(StandardGuildMessageChannel channel) {
-        if (!stickyMessages.containsKey(channel)) {
+        StickyChannelState state = removeState(channel.getIdLong());
+        if (state == null) {
             return "No sticky message found for this channel!";
         }
-        stickyMessages.remove(channel);
-        updateFile();
+        wheel.cancel(state);
+        stickyStore.removeSticky(channel.getIdLong());
         log.info("Removed sticky message from channel: {}", channel.getName());
         return "Sticky message removed successfully!";
     }
 
     public String listStickyMessages(Guild guild) {
-        StringBuilder sb = new StringBuilder();
-        final boolean[] found = {false}; // Effectively final array for use in lambda
-
-        stickyMessages.forEach((channel, message) -> {
-            if (channel.getGuild().getIdLong() == guild.getIdLong()) {
-                if (!found[0]) {
-                    sb.append("Sticky messages in this server:\n");
-                    found[0] = true;
-                }
-                String preview = message.substring(0, Math.min(70, message.length())) + (message.length() > 70 ? "..." : "");
-                sb.append(String.format("Channel: %s (`#%s`) | Message: \"%s\"\n", channel.getName(), channel.getId(), preview));
-            }
-        });
-
-        if (!found[0]) {
+        Set<Long> channelIDs = stickyChannelsByGuild.getOrDefault(guild.getIdLong(), Set.of());
+        if (channelIDs.isEmpty()) {
             return "No sticky messages found in this server!";
         }
-        return sb.toString();
-    }
 
-    private void updateFile() {
-        HashMap<String, String> convertedStickyMessages = new HashMap<>();
-        stickyMessages.forEach((channel, message) -> convertedStickyMessages.put(String.valueOf(channel.getIdLong()), message));
-        json.set("stickyMessages", convertedStickyMessages);
-        log.info("Sticky messages storage updated. Total: {}", convertedStickyMessages.size());
+        StringBuilder sb = new StringBuilder("Sticky messages in this server:\n");
+        channelIDs.forEach(channelID -> {
+            StickyChannelState state = stickyChannels.get(channelID);
+            if (state == null) {
+                return; // Removed while listing
+            }
+            StandardGuildMessageChannel channel = guild.getChannelById(StandardGuildMessageChannel.class, channelID);
+            String channelName = channel != null ? channel.getName() : "deleted-channel";
+            String message = state.getMessage();
+            String preview = message.substring(0, Math.min(70, message.length())) + (message.length() > 70 ? "..." : "");
+            sb.append(String.format("Channel: %s (`#%s`) | Message: \"%s\"\n", channelName, channelID, preview));
+        });
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -1,38 +1,56 @@
 package dev.iseal.SSB.systems.stopReplyPing;
 
 import de.leonhard.storage.Yaml;
-import dev.iseal.SSB.SSBMain;
-import dev.iseal.SSB.registries.FeatureRegistry;
+import dev.iseal.SSB.managers.ConfigManager;
+import dev.iseal.SSB.managers.DirectMessageService;
+import dev.iseal.SSB.managers.RestScheduler;
+import dev.iseal.SSB.managers.StorageManager;
+import dev.iseal.SSB.registries.MetricsRegistry;
+import dev.iseal.SSB.systems.moderation.ModLogService;
+import dev.iseal.SSB.systems.moderation.ModerationAction;
+import dev.iseal.SSB.systems.moderation.ModerationRule;
+import dev.iseal.SSB.systems.moderation.OffenseTracker;
+import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractMessageListener;
-import dev.iseal.SSB.utils.interfaces.Feature;
+import dev.iseal.SSB.utils.utils.LiveConfig;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.entities.Role;
-import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.slf4j.Logger;
 
 import java.awt.*;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Checks every guild message against the moderation rules in {@code stopReplyPings.yml}
+ * and applies the actions of the rules that match.
+ * The original reply-ping protection is the built-in {@code replyPing} rule, see {@link StopReplyPingConfig}.
+ */
 public class StopReplyPing extends AbstractMessageListener {
 
     private static final Logger log = JDALogger.getLog(StopReplyPing.class);
+    // leaves room for the rest of the description within the embed limit
+    private static final int MAX_LOGGED_CONTENT_LENGTH = 3500;
 
     private static final StopReplyPing INSTANCE = new StopReplyPing();
     public static StopReplyPing getInstance() {
         return INSTANCE;
     }
 
-    private final Yaml yaml = new Yaml("stopReplyPings.yml", System.getProperty("user.dir")+ File.separator + "config" + File.separator + "stopReplyPings");
-    private final ArrayList<Long> protectedIDs = new ArrayList<>();
-    private final ArrayList<Long> bypassIDs = new ArrayList<>();
-    private final ArrayList<Long> bypassRoleIDs = new ArrayList<>();
+    private final Yaml yaml = ConfigManager.getInstance().openYaml("stopReplyPings.yml", System.getProperty("user.dir")+ File.separator + "config" + File.separator + "stopReplyPings");
+    private final LiveConfig<StopReplyPingConfig> config;
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final OffenseTracker offenseTracker;
 
     public StopReplyPing() {
         super("system.stopReplyPing");
@@ -45,106 +63,107 @@ public class StopReplyPing extends AbstractMessageListener {
         yaml.setDefault("bypassRoleIDs", defaultList);
         yaml.setDefault("timeoutTime", 120);
         yaml.setDefault("logChannelID", 0L);
-        yaml.getListParameterized("protectedIDs").forEach(id -> {
-            if (id != null) {
-                protectedIDs.add(Long.valueOf(id.toString()));
-            }
-        });
-        yaml.getListParameterized("bypassIDs").forEach(id -> {
-            if (id != null) {
-                bypassIDs.add(Long.valueOf(id.toString()));
-            }
-        });
-        yaml.getListParameterized("bypassRoleIDs").forEach(id -> {
-            if (id != null) {
-                bypassRoleIDs.add(Long.valueOf(id.toString()));
-            }
-        });
+        yaml.setDefault("rules", new LinkedHashMap<String, Object>());
+        yaml.setDefault("offenseWindowHours", 24);
+        yaml.setDefault("escalationFactor", 2.0);
+        yaml.setDefault("maxTimeoutTime", 86400);
+        config = ConfigManager.getInstance().watch(yaml, StopReplyPingConfig::fromYaml);
+        offenseTracker = new OffenseTracker("stopReplyPing", StorageManager.getInstance().getBackend().getKeyValueStore("offenses"),
+                () -> config.get().offenseWindowMillis());
     }
 
     public void handleMessage(MessageReceivedEvent event) {
-        Message referenced = event.getMessage().getReferencedMessage();
-        if (referenced == null) {
+        Member member = event.getMember();
+        // DMs and webhooks have no member, and bots are never moderated
+        if (member == null || event.getAuthor().isBot()) {
             return;
         }
-        // get the original author's ID
-        long originalAuthorId = referenced.getAuthor().getIdLong();
-
-        boolean isProtectedUser = protectedIDs.stream()
-                .anyMatch(id -> id.equals(originalAuthorId));
-
-        boolean isBypassUser = bypassIDs.stream()
-                .anyMatch(id -> id.equals(originalAuthorId));
-
-        boolean hasBypassRole = event.getMember().getUnsortedRoles()
-                .stream()
-                .map(Role::getIdLong)
-                .anyMatch(roleId -> bypassRoleIDs.stream().anyMatch(roleId::equals));
-
-        if (!isProtectedUser) {
+        // read the snapshot once, so a reload mid-message can't mix old and new values
+        StopReplyPingConfig currentConfig = config.get();
+        List<ModerationRule> matched = currentConfig.rules().evaluate(member, event.getMessage());
+        if (matched.isEmpty()) {
             return;
         }
 
-        // check if the reply actually pings the original author
-        boolean includesPing = event.getMessage().getMentions().getUsers().stream()
-                .anyMatch(user -> user.getIdLong() == originalAuthorId);
-
-        if (!includesPing) {
-            return; // No ping, don't time out
+        Set<ModerationAction> actions = EnumSet.noneOf(ModerationAction.class);
+        long timeoutSeconds = 0;
+        StringJoiner reasons = new StringJoiner(", ");
+        for (ModerationRule rule : matched) {
+            actions.addAll(rule.actions());
+            if (rule.actions().contains(ModerationAction.TIMEOUT)) {
+                timeoutSeconds = Math.max(timeoutSeconds, rule.timeoutSeconds());
+            }
+            reasons.add(rule.reason());
+            metrics.increment("moderation." + rule.name() + ".matched");
         }
-
-        Member member = event.getMember();
-
-        if (member == null) {
-            log.warn("Member is null. This should not happen. Please report this to the developer.");
-            return;
+        String reason = reasons.toString();
+        // only timeouts count as offenses, log or DM only rules must not escalate a later timeout
+        int offenses = 0;
+        if (actions.contains(ModerationAction.TIMEOUT)) {
+            offenses = offenseTracker.recordOffense(member.getIdLong(), System.currentTimeMillis());
+            timeoutSeconds = currentConfig.escalateTimeout(timeoutSeconds, offenses);
         }
+        log.debug("Moderating message {} from user {}: {}", event.getMessageId(), member.getEffectiveName(), reason);
 
-        if (member.getUser().isBot() || isBypassUser || hasBypassRole) {
-            log.debug("User {} is a bot or has bypass permissions. Ignoring.", member.getEffectiveName());
-            return; // don't time out bypassed users
+        RestScheduler restScheduler = RestScheduler.getInstance();
+        if (actions.contains(ModerationAction.TIMEOUT)) {
+            restScheduler.submit(member.timeoutFor(timeoutSeconds, TimeUnit.SECONDS).reason(reason),
+                    RestScheduler.Priority.MODERATION, RestScheduler.guildBucket(member.getGuild().getIdLong()));
         }
+        if (actions.contains(ModerationAction.DELETE)) {
+            restScheduler.submit(event.getMessage().delete().reason(reason),
+                    RestScheduler.Priority.MODERATION, RestScheduler.channelBucket(event.getChannel().getIdLong()));
+        }
+        if (actions.contains(ModerationAction.LOG)) {
+            sendModLog(currentConfig, event, member, actions, timeoutSeconds, offenses, reason);
+        }
+        if (actions.contains(ModerationAction.DM)) {
+            sendDM(member, actions, timeoutSeconds, reason);
+        }
+    }
 
-        log.debug("Stopping reply ping from user {} to user {}", member.getEffectiveName(), referenced.getAuthor().getName());
-        // timeout the user
-        member.timeoutFor(yaml.getLong("timeoutTime"), TimeUnit.SECONDS).reason("Reply-Pinging to a protected user").queue();
-
-        // send a modlog message
-        TextChannel modLogChannel = SSBMain.getJDA().getTextChannelById(yaml.getLong("logChannelID"));
-        if (modLogChannel == null) {
-            log.warn("Mod log channel not found. Please set the mod log channel ID in the config.");
+    private void sendModLog(StopReplyPingConfig currentConfig, MessageReceivedEvent event, Member member, Set<ModerationAction> actions, long timeoutSeconds, int offenses, String reason) {
+        if (currentConfig.logChannelID() == 0) {
+            log.warn("Mod log channel not set. Please set the mod log channel ID in the config.");
             return;
         }
-        try {
-            modLogChannel.sendMessageEmbeds(
-                    new EmbedBuilder()
-                            .setColor(Color.RED)
-                            .setTitle("User " + member.getEffectiveName() + " has been timed out for reply-pinging to a message.")
-                            .setThumbnail(member.getAvatarUrl())
-                            .setDescription("The user reply-pinged in " + referenced.getChannel().getAsMention() + " with the message: \n"
-                                    + event.getMessage().getContentDisplay() + "\n and therefore has been timed out")
-                            .build()
-            ).queue();
-        } catch (InsufficientPermissionException e) {
-            log.warn("Couldn't send messages to the mod log channel. Please check if the bot has permission to send messages in the channel.");
-            log.warn("Error: {}", e.getMessage());
+        StringJoiner taken = new StringJoiner(", ");
+        if (actions.contains(ModerationAction.TIMEOUT)) {
+            taken.add("timed out for " + timeoutSeconds + "s, offense " + offenses + " in the window");
         }
+        if (actions.contains(ModerationAction.DELETE)) {
+            taken.add("message deleted");
+        }
+        MessageEmbed embed = new EmbedBuilder()
+                .setColor(Color.RED)
+                .setTitle("User " + member.getEffectiveName() + " broke a moderation rule")
+                .setThumbnail(member.getEffectiveAvatarUrl())
+                .setDescription("The user posted in " + event.getChannel().getAsMention() + " with the message: \n"
+                        + Utils.truncate(event.getMessage().getContentDisplay(), MAX_LOGGED_CONTENT_LENGTH))
+                .addField("Reason", Utils.truncate(reason, MessageEmbed.VALUE_MAX_LENGTH), false)
+                .addField("Action taken", taken.length() > 0 ? taken.toString() : "none", false)
+                .build();
+        String summary = member.getAsMention() + " in " + event.getChannel().getAsMention() + ": " + reason
+                + (taken.length() > 0 ? " (" + taken + ")" : "");
+        ModLogService.getInstance().log(currentConfig.logChannelID(), embed, summary);
+    }
 
-        // send a dm to the user
-        try {
-            member.getUser().openPrivateChannel().queue(privateChannel -> privateChannel.sendMessageEmbeds(
-                    new EmbedBuilder()
-                            .setColor(Color.RED)
-                            .setTitle("You have been timed out for reply-pinging to a protected user.")
-                            .setDescription("You have been timed out for reply-pinging to " + referenced.getAuthor().getName() + ".")
-                            .build()
-            ).queue());
-        } catch (InsufficientPermissionException e) {
-            log.warn("Couldn't send messages to the user. Please check if the bot has permission to send messages in DMs.");
-            log.warn("Error: {}", e.getMessage());
-        } catch (UnsupportedOperationException e) {
-            // ignore, user is a bot (how the fuck did this happen?)
+    private void sendDM(Member member, Set<ModerationAction> actions, long timeoutSeconds, String reason) {
+        String title;
+        if (actions.contains(ModerationAction.TIMEOUT)) {
+            title = "You have been timed out for " + timeoutSeconds + " seconds.";
+        } else if (actions.contains(ModerationAction.DELETE)) {
+            title = "Your message has been removed.";
+        } else {
+            title = "Your message broke a server rule.";
         }
+        DirectMessageService.getInstance().send(member.getIdLong(), MessageCreateData.fromEmbeds(
+                new EmbedBuilder()
+                        .setColor(Color.RED)
+                        .setTitle(title)
+                        .setDescription("Reason: " + reason + ".")
+                        .build()
+        ));
     }
 
     @Override
@@ -0,0 +1,89 @@
+package dev.iseal.SSB.systems.stopReplyPing;
+
+import de.leonhard.storage.Yaml;
+import dev.iseal.SSB.systems.moderation.ModerationRule;
+import dev.iseal.SSB.systems.moderation.ModerationRuleEngine;
+import dev.iseal.SSB.utils.utils.LongHashSet;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of {@code config/stopReplyPings/stopReplyPings.yml}.
+ * <p>
+ * The original keys ({@code protectedIDs}, {@code bypassIDs}, {@code bypassRoleIDs}, {@code timeoutTime})
+ * are compiled into a rule named {@code replyPing}. More rules can be added under {@code rules},
+ * see {@link ModerationRule} for the format. A rule that fails to compile is skipped and logged.
+ *
+ * @param rules               The compiled rules.
+ * @param logChannelID        The mod log channel, or 0 if unset.
+ * @param offenseWindowMillis How long an offense counts towards escalation, in millis.
+ * @param escalationFactor    What each earlier offense in the window multiplies the timeout by.
+ * @param maxTimeoutSeconds   The longest any timeout gets, escalated or not, in seconds.
+ */
+public record StopReplyPingConfig(
+        ModerationRuleEngine rules,
+        long logChannelID,
+        long offenseWindowMillis,
+        double escalationFactor,
+        long maxTimeoutSeconds
+) {
+
+    private static final Logger log = JDALogger.getLog(StopReplyPingConfig.class);
+
+    public static StopReplyPingConfig fromYaml(Yaml yaml) {
+        List<ModerationRule> rules = new ArrayList<>();
+
+        LongHashSet protectedIDs = LongHashSet.of(yaml.getListParameterized("protectedIDs"));
+        if (!protectedIDs.isEmpty()) {
+            rules.add(ModerationRule.replyPing(
+                    protectedIDs,
+                    LongHashSet.of(yaml.getListParameterized("bypassIDs")),
+                    LongHashSet.of(yaml.getListParameterized("bypassRoleIDs")),
+                    Math.max(1, yaml.getLong("timeoutTime"))
+            ));
+        }
+
+        Map<String, Object> ruleDefinitions = yaml.getMapParameterized("rules");
+        if (ruleDefinitions != null) {
+            ruleDefinitions.forEach((name, definition) -> {
+                if (!(definition instanceof Map<?, ?> map)) {
+                    log.warn("Moderation rule {} is not a map, skipping it.", name);
+                    return;
+                }
+                try {
+                    rules.add(ModerationRule.fromMap(name, map));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping moderation rule {}: {}", name, e.getMessage());
+                }
+            });
+        }
+
+        return new StopReplyPingConfig(
+                new ModerationRuleEngine(rules),
+                yaml.getLong("logChannelID"),
+                TimeUnit.HOURS.toMillis(yaml.getLong("offenseWindowHours")),
+                Math.max(1, yaml.getDouble("escalationFactor")),
+                // Discord doesn't allow longer timeouts
+                Math.max(1, Math.min(yaml.getLong("maxTimeoutTime"), TimeUnit.DAYS.toSeconds(Member.MAX_TIME_OUT_LENGTH)))
+        );
+    }
+
+    /**
+     * Scales a timeout with the number of recent offenses: {@code timeout * escalationFactor ^ (offenses - 1)},
+     * capped at {@link #maxTimeoutSeconds()}. A first offense timeout above the cap is capped too.
+     *
+     * @param timeoutSeconds The timeout for a first offense, in seconds.
+     * @param offenses       The offenses in the window, including the current one.
+     * @return The timeout to apply, in seconds.
+     */
+    public long escalateTimeout(long timeoutSeconds, int offenses) {
+        double escalated = timeoutSeconds * Math.pow(escalationFactor, Math.max(0, offenses - 1));
+        return (long) Math.min(escalated, maxTimeoutSeconds);
+    }
+}
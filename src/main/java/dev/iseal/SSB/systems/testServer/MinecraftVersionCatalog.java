@@ -0,0 +1,192 @@
+package dev.iseal.SSB.systems.testServer;
+
+import dev.iseal.SSB.utils.utils.AtomicFileWriter;
+import dev.iseal.SSB.utils.utils.BKTree;
+import dev.iseal.SSB.utils.utils.PrefixTrie;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The Minecraft versions known to Mojang, for autocompleting and checking {@code /testserver create} versions.
+ * <p>
+ * The version manifest is kept in a local file, so the catalog is available right after a restart,
+ * and refreshed in the background. Lookups only read the last parsed snapshot and never wait for a refresh.
+ * As long as no manifest could be loaded at all, every version is accepted.
+ */
+class MinecraftVersionCatalog {
+
+    private static final Logger log = JDALogger.getLog(MinecraftVersionCatalog.class);
+    private static final String MANIFEST_URL = "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    private static final long RETRY_DELAY_MINUTES = 15;
+    // understood by the itzg/minecraft-server image on top of the version IDs
+    private static final List<String> ALIASES = List.of("LATEST", "SNAPSHOT");
+
+    private final Path cacheFile;
+    private final LongSupplier refreshIntervalMillis;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(REQUEST_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SSB-VersionCatalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * @param releases    The release IDs, newest first.
+     * @param releaseIDs  The release IDs, for filtering completions.
+     * @param idsByFolded Every version ID by its lower case form.
+     * @param prefixes    Every version ID, for completion.
+     * @param fuzzy       Every version ID, for suggestions after a typo.
+     */
+    private record Snapshot(List<String> releases, Set<String> releaseIDs, Map<String, String> idsByFolded,
+                            PrefixTrie<String> prefixes, BKTree<String> fuzzy) {
+        private static final Snapshot EMPTY = new Snapshot(List.of(), Set.of(), Map.of(), new PrefixTrie<>(), new BKTree<>());
+    }
+
+    /**
+     * @param cacheFile             Where the last downloaded manifest is kept.
+     * @param refreshIntervalMillis How often to download the manifest again, read before every refresh.
+     */
+    MinecraftVersionCatalog(Path cacheFile, LongSupplier refreshIntervalMillis) {
+        this.cacheFile = cacheFile;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        loadCache();
+        scheduler.execute(this::refresh);
+    }
+
+    private void loadCache() {
+        if (!Files.exists(cacheFile)) {
+            return;
+        }
+        try {
+            snapshot = parse(Files.readAllBytes(cacheFile));
+            log.info("Loaded {} Minecraft versions from {}.", snapshot.idsByFolded().size(), cacheFile);
+        } catch (Exception e) {
+            log.warn("Failed to read the cached Minecraft version manifest {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private void refresh() {
+        long nextRefreshMillis = TimeUnit.MINUTES.toMillis(RETRY_DELAY_MINUTES);
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(MANIFEST_URL))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("User-Agent", "SealSupportBot/1.0")
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            Snapshot parsed = parse(response.body());
+            snapshot = parsed;
+            AtomicFileWriter.write(cacheFile, response.body(), false);
+            nextRefreshMillis = refreshIntervalMillis.getAsLong();
+            log.debug("Refreshed the Minecraft version catalog, {} versions.", parsed.idsByFolded().size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to refresh the Minecraft version catalog, retrying in {} minutes: {}", RETRY_DELAY_MINUTES, e.getMessage());
+        }
+        scheduler.schedule(this::refresh, nextRefreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Snapshot parse(byte[] manifest) {
+        DataArray versions = DataObject.fromJson(manifest).getArray("versions");
+        List<String> releases = new ArrayList<>();
+        Map<String, String> idsByFolded = new HashMap<>();
+        PrefixTrie<String> prefixes = new PrefixTrie<>();
+        BKTree<String> fuzzy = new BKTree<>();
+        for (int i = 0; i < versions.length(); i++) {
+            DataObject version = versions.getObject(i);
+            String id = version.getString("id");
+            if ("release".equals(version.getString("type", ""))) {
+                releases.add(id);
+            }
+            idsByFolded.put(id.toLowerCase(Locale.ROOT), id);
+            prefixes.add(id, id);
+            fuzzy.add(id, id);
+        }
+        return new Snapshot(List.copyOf(releases), Set.copyOf(releases), Map.copyOf(idsByFolded), prefixes, fuzzy);
+    }
+
+    /**
+     * Resolves a typed version to the ID Mojang uses.
+     *
+     * @param version The typed version, in any case.
+     * @return The version ID or alias, empty if the version is unknown. The version itself while no manifest is loaded.
+     */
+    Optional<String> resolve(String version) {
+        String trimmed = version.trim();
+        for (String alias : ALIASES) {
+            if (alias.equalsIgnoreCase(trimmed)) {
+                return Optional.of(alias);
+            }
+        }
+        Snapshot current = snapshot;
+        if (current.idsByFolded().isEmpty()) {
+            return Optional.of(trimmed);
+        }
+        return Optional.ofNullable(current.idsByFolded().get(trimmed.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Completes a partially typed version. Aliases come first, then releases, then snapshots and pre-releases.
+     *
+     * @param input The typed part.
+     * @param limit The most versions to return.
+     * @return The matching versions.
+     */
+    List<String> complete(String input, int limit) {
+        String prefix = input.trim();
+        Snapshot current = snapshot;
+        List<String> completions = new ArrayList<>(limit);
+        for (String alias : ALIASES) {
+            if (completions.size() < limit && alias.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                completions.add(alias);
+            }
+        }
+        if (prefix.isEmpty()) {
+            // alphabetical order would start at 1.0, the newest releases are more useful
+            current.releases().stream().limit(limit - completions.size()).forEach(completions::add);
+            return completions;
+        }
+        completions.addAll(current.prefixes().complete(prefix, limit - completions.size(), current.releaseIDs()::contains));
+        if (completions.size() < limit) {
+            completions.addAll(current.prefixes().complete(prefix, limit - completions.size(), id -> !current.releaseIDs().contains(id)));
+        }
+        return completions;
+    }
+
+    /**
+     * Suggests known versions close to an unknown one.
+     *
+     * @param version The unknown version.
+     * @param limit   The most versions to return.
+     * @return The suggested versions, best first.
+     */
+    List<String> suggest(String version, int limit) {
+        return snapshot.fuzzy().suggest(version.trim(), limit);
+    }
+}
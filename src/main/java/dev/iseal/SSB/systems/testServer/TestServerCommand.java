@@ -2,22 +2,33 @@ package dev.iseal.SSB.systems.testServer;
 
 import de.leonhard.storage.Yaml;
 import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.ConfigManager;
+import dev.iseal.SSB.managers.StorageManager;
+import dev.iseal.SSB.utils.Utils;
 import dev.iseal.SSB.utils.abstracts.AbstractCommand;
 import dev.iseal.SSB.utils.utils.DownloadUtils;
+import dev.iseal.SSB.utils.utils.LiveConfig;
+import dev.iseal.SSB.utils.utils.PrefixTrie;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +43,7 @@ public class TestServerCommand extends AbstractCommand {
     private static final String CONFIG_ALLOWED_USERS = "allowedUsers";
     private static final String CONFIG_LOG_CHANNEL = "logChannel";
     private static final String CONFIG_CONNECT_ADDRESS_BASE = "connectAddressBase";
+    private static final String CONFIG_VERSION_REFRESH_HOURS = "versionRefreshHours";
     private static final String DEFAULT_CONNECT_ADDRESS_BASE = "mc.iseal.dev";
 
     // Subcommand and option names
@@ -44,12 +56,22 @@ public class TestServerCommand extends AbstractCommand {
     private static final String OPTION_ID = "id";
     private static final String OPTION_MEMORY = "memorylimit";
     private static final String DEFAULT_MINECRAFT_VERSION = "LATEST";
+    private static final long MESSAGE_RETRIEVE_TIMEOUT_SECONDS = 10;
 
-    private final Yaml config;
-    private final List<Long> allowedUsers = new ArrayList<>();
-    private final Map<UUID, DockerHandler> servers = new HashMap<>();
-    private final TextChannel logChannel;
-    private final String connectAddressBase;
+    private final Yaml yaml;
+    private final LiveConfig<TestServerConfig> config;
+    // read by autocomplete on the event thread while creations and deletions run on their own threads
+    private final Map<UUID, TestServer> servers = new ConcurrentHashMap<>();
+    private final PrefixTrie<UUID> serverPrefixes = new PrefixTrie<>();
+    private final MinecraftVersionCatalog versionCatalog;
+
+    /**
+     * A running test server.
+     *
+     * @param handler    The handler of its container.
+     * @param sourceName The name of the archive it was created from, shown by autocomplete.
+     */
+    private record TestServer(DockerHandler handler, String sourceName) {}
 
     /**
      * Initializes the TestServerCommand, setting up configuration, allowed users, and command structure.
@@ -62,45 +84,99 @@ public class TestServerCommand extends AbstractCommand {
                                         .addOption(OptionType.STRING, OPTION_LINK, "A direct link to a .zip, .tar.gz, .tar, or .7z file.", false)
                                         .addOption(OptionType.ATTACHMENT, OPTION_FILE, "A .zip, .tar.gz, .tar, or .7z file.", false)
                                         .addOption(OptionType.STRING, OPTION_MESSAGE_ID, "The message ID of the file attachment.", false)
-                                        .addOption(OptionType.STRING, OPTION_MINECRAFT_VERSION, "Minecraft version (e.g., 1.20.4), defaults to LATEST.", false)
+                                        .addOption(OptionType.STRING, OPTION_MINECRAFT_VERSION, "Minecraft version (e.g., 1.20.4), defaults to LATEST.", false, true)
                                         .addOption(OptionType.INTEGER, OPTION_MEMORY, "Memory limit in MB (default: 6G).", false),
                                 new SubcommandData(SUBCOMMAND_DELETE, "Delete an existing test server.")
-                                        .addOption(OptionType.STRING, OPTION_ID, "The UUID of the server to delete.", true)
+                                        .addOption(OptionType.STRING, OPTION_ID, "The UUID of the server to delete.", true, true)
                         ),
                 true, // useDeferReply = true
                 true  // ephemeralDefer = true (initial reply is ephemeral)
         );
         log.debug("Initializing TestServerCommand...");
 
-        config = new Yaml("config.yml", System.getProperty("user.dir") + "/config/testServer");
-        config.setDefault(CONFIG_ALLOWED_USERS, Collections.singletonList("398908171357519872"));
-        config.setDefault(CONFIG_LOG_CHANNEL, "1375873222817615912");
-        config.setDefault(CONFIG_CONNECT_ADDRESS_BASE, DEFAULT_CONNECT_ADDRESS_BASE);
-
-        config.getStringList(CONFIG_ALLOWED_USERS).forEach(userId -> {
-            try {
-                allowedUsers.add(Long.parseLong(userId));
-            } catch (NumberFormatException e) {
-                log.warn("Invalid user ID format in config: {}", userId);
-            }
-        });
+        yaml = ConfigManager.getInstance().openYaml("config.yml", System.getProperty("user.dir") + "/config/testServer");
+        yaml.setDefault(CONFIG_ALLOWED_USERS, Collections.singletonList("398908171357519872"));
+        yaml.setDefault(CONFIG_LOG_CHANNEL, "1375873222817615912");
+        yaml.setDefault(CONFIG_CONNECT_ADDRESS_BASE, DEFAULT_CONNECT_ADDRESS_BASE);
+        yaml.setDefault(CONFIG_VERSION_REFRESH_HOURS, 6);
+        config = ConfigManager.getInstance().watch(yaml, TestServerConfig::fromYaml);
+        versionCatalog = new MinecraftVersionCatalog(
+                Path.of(StorageManager.getDataDirectory(), "testServer", "versionManifest.json"),
+                () -> TimeUnit.HOURS.toMillis(config.get().versionRefreshHours())
+        );
+        registerAutocomplete(SUBCOMMAND_CREATE, OPTION_MINECRAFT_VERSION, (input, limit) -> toChoices(versionCatalog.complete(input, limit)));
+        registerAutocomplete(SUBCOMMAND_DELETE, OPTION_ID, this::completeServerIDs);
 
-        logChannel = SSBMain.getJDA().getTextChannelById(config.getString(CONFIG_LOG_CHANNEL));
+        TestServerConfig currentConfig = config.get();
+        TextChannel logChannel = getLogChannel();
         if (logChannel == null) {
-            log.error("Log channel not found (ID: {}). Please check your config.yml.", config.getString(CONFIG_LOG_CHANNEL));
+            log.error("Log channel not found (ID: {}). Please check your config.yml.", currentConfig.logChannelID());
             throw new IllegalStateException("Log channel not found. TestServer command cannot function.");
         }
-        connectAddressBase = config.getString(CONFIG_CONNECT_ADDRESS_BASE);
 
         log.info("TestServerCommand initialized. Allowed users: {}. Log channel: {}. Connect address base: {}",
-                allowedUsers.stream().map(String::valueOf).collect(Collectors.joining(", ")),
+                currentConfig.allowedUsers().stream().map(String::valueOf).collect(Collectors.joining(", ")),
                 logChannel.getName(),
-                connectAddressBase);
+                currentConfig.connectAddressBase());
+    }
+
+    /**
+     * Resolves the log channel from the current config snapshot.
+     *
+     * @return The log channel, or null if it can't be found.
+     */
+    private TextChannel getLogChannel() {
+        return SSBMain.getJDA().getTextChannelById(config.get().logChannelID());
+    }
+
+    @Override
+    public void handleAutocomplete(CommandAutoCompleteInteractionEvent event) {
+        if (!config.get().allowedUsers().contains(event.getUser().getIdLong())) {
+            event.replyChoices().queue();
+            return;
+        }
+        super.handleAutocomplete(event);
+    }
+
+    /**
+     * Completes the ID of a running server from the start of its ID or of its archive name.
+     *
+     * @param input The typed part.
+     * @param limit The most servers to return.
+     * @return One choice per server, showing its archive name and port.
+     */
+    private List<Command.Choice> completeServerIDs(String input, int limit) {
+        List<Command.Choice> choices = new ArrayList<>();
+        for (UUID serverId : serverPrefixes.complete(input.trim(), limit)) {
+            TestServer server = servers.get(serverId);
+            if (server == null) {
+                continue; // deleted since the lookup
+            }
+            String label = Utils.truncate(server.sourceName(), 60) + " - port " + server.handler().getAssignedPort() + " (" + serverId + ")";
+            choices.add(new Command.Choice(Utils.truncate(label, OptionData.MAX_CHOICE_NAME_LENGTH), serverId.toString()));
+        }
+        return choices;
+    }
+
+    private void addServer(UUID serverId, DockerHandler handler, String sourceName) {
+        servers.put(serverId, new TestServer(handler, sourceName));
+        serverPrefixes.add(serverId.toString(), serverId);
+        serverPrefixes.add(sourceName, serverId);
+    }
+
+    private DockerHandler removeServer(UUID serverId) {
+        TestServer server = servers.remove(serverId);
+        if (server == null) {
+            return null;
+        }
+        serverPrefixes.remove(serverId.toString(), serverId);
+        serverPrefixes.remove(server.sourceName(), serverId);
+        return server.handler();
     }
 
     @Override
     protected void actuallyHandleCommand(SlashCommandInteractionEvent event) {
-        if (!allowedUsers.contains(event.getUser().getIdLong())) {
+        if (!config.get().allowedUsers().contains(event.getUser().getIdLong())) {
             log.info("User {} ({}) attempted to use /testserver but is not allowed.",
                     event.getUser().getEffectiveName(), event.getUser().getIdLong());
             event.getHook().editOriginal("You are not allowed to use this command.").queue();
@@ -143,6 +219,14 @@ public class TestServerCommand extends AbstractCommand {
         String minecraftVersion = event.getOption(OPTION_MINECRAFT_VERSION, DEFAULT_MINECRAFT_VERSION, OptionMapping::getAsString);
         String memoryLimitStr = event.getOption(OPTION_MEMORY, OptionMapping::getAsString);
 
+        Optional<String> resolvedVersion = versionCatalog.resolve(minecraftVersion);
+        if (resolvedVersion.isEmpty()) {
+            event.getHook().editOriginal("Unknown Minecraft version: " + minecraftVersion + "."
+                    + Utils.didYouMean(versionCatalog.suggest(minecraftVersion, 3))).queue();
+            return;
+        }
+        minecraftVersion = resolvedVersion.get();
+
         if (link == null && fileAttachment == null && messageId == null) {
             event.getHook().editOriginal("You must provide either a direct link, a file attachment or a message id to download from.").queue();
             return;
@@ -166,35 +250,54 @@ public class TestServerCommand extends AbstractCommand {
         } else if (link != null) {
             launchServerCreationForLink(event, link, minecraftVersion, memoryLimitStr);
         } else if (messageId != null) { // messageId is not null
+            long msgId;
             try {
-                long msgId = Long.parseLong(messageId);
-                // Retrieve message from the current channel. Consider if message could be in another channel.
-                // For simplicity, assuming current channel or a channel accessible to the bot.
-                // event.getChannel().retrieveMessageById(msgId).queue( message -> { ... }, failure -> { ... });
-                // This means the channel where the command was run.
-                Message originalInteractionMessage = event.getHook().retrieveOriginal().complete(); // To get the channel
-                Message messageWithAttachment = originalInteractionMessage.getChannel().retrieveMessageById(msgId).complete();
-
-                if (!event.getMember().hasPermission(messageWithAttachment.getGuildChannel(), Permission.VIEW_CHANNEL)) {
-                    log.warn("User {} does not have permission to view message ID {} in channel {}.",
-                            event.getUser().getEffectiveName(), msgId, messageWithAttachment.getChannel().getName());
-                    event.getHook().editOriginal("You do not have permission to view this message.").queue();
-                    return;
-                }
-
-                if (messageWithAttachment.getAttachments().isEmpty()) {
-                    event.getHook().editOriginal("No attachments found in the specified message.").queue();
-                    return;
-                }
-                Message.Attachment attachmentFromMessage = messageWithAttachment.getAttachments().get(0); // Use the first attachment
-                launchServerCreationForAttachment(event, attachmentFromMessage, minecraftVersion, memoryLimitStr);
+                msgId = Long.parseLong(messageId);
             } catch (NumberFormatException e) {
                 log.warn("Invalid message ID format: {}", messageId, e);
                 event.getHook().editOriginal("Invalid message ID format: " + messageId).queue();
-            } catch (Exception e) { // Catch potential errors from message retrieval
-                log.error("Error retrieving message or attachment for messageId {}: {}", messageId, e.getMessage(), e);
-                event.getHook().editOriginal("Could not retrieve the attachment from message ID: " + messageId).queue();
+                return;
+            }
+            String version = minecraftVersion;
+            // Retrieve the message from the channel the command was run in.
+            event.getChannel().retrieveMessageById(msgId)
+                    .timeout(MESSAGE_RETRIEVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .queue(
+                            messageWithAttachment -> launchServerCreationForMessage(event, messageWithAttachment, version, memoryLimitStr),
+                            failure -> {
+                                log.error("Error retrieving message {}: {}", messageId, failure.getMessage(), failure);
+                                event.getHook().editOriginal("Could not retrieve the attachment from message ID: " + messageId).queue();
+                            }
+                    );
+        }
+    }
+
+    /**
+     * Launches the server creation process for the first attachment of a message, if the user can see the message.
+     *
+     * @param event                 The command event.
+     * @param messageWithAttachment The message holding the archive.
+     * @param minecraftVersion      The Minecraft version for the server.
+     * @param memoryLimitStr        The memory limit string.
+     */
+    private void launchServerCreationForMessage(SlashCommandInteractionEvent event, Message messageWithAttachment, String minecraftVersion, String memoryLimitStr) {
+        try {
+            if (!event.getMember().hasPermission(messageWithAttachment.getGuildChannel(), Permission.VIEW_CHANNEL)) {
+                log.warn("User {} does not have permission to view message ID {} in channel {}.",
+                        event.getUser().getEffectiveName(), messageWithAttachment.getId(), messageWithAttachment.getChannel().getName());
+                event.getHook().editOriginal("You do not have permission to view this message.").queue();
+                return;
+            }
+
+            if (messageWithAttachment.getAttachments().isEmpty()) {
+                event.getHook().editOriginal("No attachments found in the specified message.").queue();
+                return;
             }
+            Message.Attachment attachmentFromMessage = messageWithAttachment.getAttachments().get(0); // Use the first attachment
+            launchServerCreationForAttachment(event, attachmentFromMessage, minecraftVersion, memoryLimitStr);
+        } catch (Exception e) {
+            log.error("Error reading the attachment of message {}: {}", messageWithAttachment.getId(), e.getMessage(), e);
+            event.getHook().editOriginal("Could not retrieve the attachment from message ID: " + messageWithAttachment.getId()).queue();
         }
     }
 
@@ -301,8 +404,8 @@ public class TestServerCommand extends AbstractCommand {
             }
 
             log.debug("Initializing DockerHandler for serverId: {} with source: {}", serverId, downloadedFile.getAbsolutePath());
-            handler = new DockerHandler(downloadedFile, serverId, minecraftVersion, logChannel, memoryLimitStr);
-            servers.put(serverId, handler);
+            handler = new DockerHandler(downloadedFile, serverId, minecraftVersion, getLogChannel(), memoryLimitStr);
+            addServer(serverId, handler, userFriendlySourceName);
             log.debug("DockerHandler created and stored for serverId: {}", serverId);
 
             handler.createServer();
@@ -310,7 +413,7 @@ public class TestServerCommand extends AbstractCommand {
 
             int assignedPort = handler.getAssignedPort();
             int debugPort = handler.getDebugPort();
-            String connectAddr = connectAddressBase + ":" + assignedPort;
+            String connectAddr = config.get().connectAddressBase() + ":" + assignedPort;
             log.info("Server {} created successfully. Connect: {}, Debug Port: {}. serverId: {}", serverId, connectAddr, debugPort, serverId);
             event.getHook().sendMessage("Server **" + serverId + "** created!\nConnect: `" + connectAddr + "`\nDebug (host port): `" + debugPort + "`").setEphemeral(false).queue();
 
@@ -351,7 +454,7 @@ public class TestServerCommand extends AbstractCommand {
             return;
         }
 
-        DockerHandler handler = servers.remove(serverUuid);
+        DockerHandler handler = removeServer(serverUuid);
         if (handler == null) {
             log.warn("No server found with ID: {} for deletion.", serverUuid);
             event.getHook().editOriginal("No server found with ID: " + serverUuid).queue();
@@ -381,7 +484,7 @@ public class TestServerCommand extends AbstractCommand {
      * @param handler  The DockerHandler instance, if created.
      */
     private void cleanupFailedServerAttempt(UUID serverId, DockerHandler handler) {
-        DockerHandler removedHandler = servers.remove(serverId);
+        DockerHandler removedHandler = removeServer(serverId);
         if (removedHandler != null) {
             log.debug("Stopping and cleaning up server {} due to creation error.", serverId);
             removedHandler.stopServer(); // This might throw, ensure it's handled or logged
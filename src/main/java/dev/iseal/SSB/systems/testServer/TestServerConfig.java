@@ -0,0 +1,38 @@
+package dev.iseal.SSB.systems.testServer;
+
+import de.leonhard.storage.Yaml;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of {@code config/testServer/config.yml}.
+ *
+ * @param allowedUsers        The users allowed to use /testserver.
+ * @param logChannelID        The channel server logs are uploaded to.
+ * @param connectAddressBase  The address users connect to, without the port.
+ * @param versionRefreshHours How often the list of Minecraft versions is downloaded again.
+ */
+public record TestServerConfig(Set<Long> allowedUsers, long logChannelID, String connectAddressBase, long versionRefreshHours) {
+
+    private static final Logger log = JDALogger.getLog(TestServerConfig.class);
+
+    public static TestServerConfig fromYaml(Yaml yaml) {
+        Set<Long> allowedUsers = new HashSet<>();
+        yaml.getStringList("allowedUsers").forEach(userId -> {
+            try {
+                allowedUsers.add(Long.parseLong(userId));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid user ID format in config: {}", userId);
+            }
+        });
+        return new TestServerConfig(
+                Set.copyOf(allowedUsers),
+                Long.parseLong(yaml.getString("logChannel")),
+                yaml.getString("connectAddressBase"),
+                Math.max(1, yaml.getLong("versionRefreshHours"))
+        );
+    }
+}
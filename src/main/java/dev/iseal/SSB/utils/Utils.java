@@ -1,13 +1,11 @@
 package dev.iseal.SSB.utils;
 
-import de.leonhard.storage.Json;
-import dev.iseal.SSB.SSBMain;
+import dev.iseal.SSB.managers.DirectMessageService;
+import dev.iseal.SSB.managers.StorageManager;
+import dev.iseal.SSB.storage.KeyValueStore;
 import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.api.entities.IPermissionHolder;
-import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -20,13 +18,15 @@ import org.slf4j.Logger;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class Utils {
 
-    private static final Json tempData = new Json("tempData.json", System.getProperty("user.dir") + "/data/tempData");
+    private static final KeyValueStore tempData = StorageManager.getInstance().getBackend().getKeyValueStore("tempData");
     private static final Logger log = JDALogger.getLog(Utils.class);
 
     /**
@@ -42,23 +42,6 @@ public class Utils {
         return (Set<Class<?>>) reflections.getSubTypesOf(clazz);
     }
 
-    public static User getUserFromCacheOrFetch(long userID) {
-        JDA jda = SSBMain.getJDA();
-        User user = jda.getUserById(userID);
-        if (user == null) {
-            user = jda.retrieveUserById(userID).complete();
-        }
-        return user;
-    }
-
-    public static Member getGuildMemberFromCacheOrFetch(User user, Guild guild) {
-        Member member = guild.getMember(user);
-        if (member == null) {
-            member = guild.retrieveMember(user).complete();
-        }
-        return member;
-    }
-
     /**
      * A functional interface that represents a consumer that takes three arguments.
      *
@@ -71,16 +54,12 @@ public class Utils {
         void accept(T t, U u, V v);
     }
 
-    public static void sendMessage(long userId, String content) {
-        SSBMain.getJDA().openPrivateChannelById(userId)
-                .flatMap(channel -> channel.sendMessage(content))
-                .queue();
+    public static CompletableFuture<DirectMessageService.DeliveryResult> sendMessage(long userId, String content) {
+        return DirectMessageService.getInstance().send(userId, MessageCreateData.fromContent(content));
     }
 
-    public static void sendEmbed(long userId, EmbedBuilder embed) {
-        SSBMain.getJDA().openPrivateChannelById(userId)
-                .flatMap(channel -> channel.sendMessageEmbeds(embed.build()))
-                .queue();
+    public static CompletableFuture<DirectMessageService.DeliveryResult> sendEmbed(long userId, EmbedBuilder embed) {
+        return DirectMessageService.getInstance().send(userId, MessageCreateData.fromEmbeds(embed.build()));
     }
 
     public static String readFile(File file) {
@@ -105,6 +84,32 @@ public class Utils {
         tempData.remove(key);
     }
 
+    /**
+     * Shortens text to a maximum length, ending it with "..." if it was cut.
+     *
+     * @param text      The text.
+     * @param maxLength The maximum length, at least 3.
+     * @return The text, or its shortened form.
+     */
+    public static String truncate(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength - 3) + "...";
+    }
+
+    /**
+     * Formats suggestions for a name that wasn't found.
+     *
+     * @param suggestions The suggested names, best first.
+     * @return " Did you mean `a`, `b`?", or an empty string if there are no suggestions.
+     */
+    public static String didYouMean(List<String> suggestions) {
+        if (suggestions.isEmpty()) {
+            return "";
+        }
+        return " Did you mean `" + String.join("`, `", suggestions) + "`?";
+    }
 
     public static String getFileExtension(File file) {
         String name = file.getName();
@@ -1,10 +1,16 @@
 package dev.iseal.SSB.utils.abstracts;
 
 import dev.iseal.SSB.utils.interfaces.Feature;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract class representing a slash command.
@@ -24,6 +30,26 @@ public abstract class AbstractCommand extends Feature {
      * Flag indicating whether the command is ephemeral by default.
      */
     private final boolean isEphemeralByDefault;
+    /**
+     * The autocomplete sources of this command, keyed by {@link #autocompleteKey(String, String)}.
+     */
+    private final Map<String, AutocompleteSource> autocompleteSources = new HashMap<>();
+
+    /**
+     * Provides the choices shown while a user types an autocomplete option.
+     * <p>
+     * Discord drops the response after 3 seconds and the lookup runs on the event thread,
+     * so a source must only read data that is already in memory. Never make requests from one.
+     */
+    @FunctionalInterface
+    public interface AutocompleteSource {
+        /**
+         * @param input The value typed so far, possibly empty.
+         * @param limit The most choices Discord accepts.
+         * @return The choices, best first.
+         */
+        List<Command.Choice> suggest(String input, int limit);
+    }
 
     /**
      * Constructs an AbstractCommand.
@@ -81,6 +107,50 @@ public abstract class AbstractCommand extends Feature {
         actuallyHandleCommand(event);
     }
 
+    /**
+     * Registers the source of choices for an option. The option must be created with autocomplete enabled.
+     *
+     * @param subcommandName The subcommand the option belongs to, or null if the command has no subcommands.
+     * @param optionName     The name of the option.
+     * @param source         The source of choices.
+     */
+    protected void registerAutocomplete(String subcommandName, String optionName, AutocompleteSource source) {
+        autocompleteSources.put(autocompleteKey(subcommandName, optionName), source);
+    }
+
+    /**
+     * Handles an autocomplete interaction for one of this command's options.
+     * Replies with no choices if no source is registered for the option.
+     *
+     * @param event The {@link CommandAutoCompleteInteractionEvent} to handle.
+     */
+    public void handleAutocomplete(CommandAutoCompleteInteractionEvent event) {
+        AutocompleteSource source = autocompleteSources.get(autocompleteKey(event.getSubcommandName(), event.getFocusedOption().getName()));
+        if (source == null) {
+            event.replyChoices().queue();
+            return;
+        }
+        List<Command.Choice> choices = source.suggest(event.getFocusedOption().getValue(), OptionData.MAX_CHOICES);
+        event.replyChoices(choices.size() > OptionData.MAX_CHOICES ? choices.subList(0, OptionData.MAX_CHOICES) : choices).queue();
+    }
+
+    /**
+     * Turns values into choices that show the value itself.
+     *
+     * @param values The values.
+     * @return The choices, without values too long to be sent as a choice.
+     */
+    protected static List<Command.Choice> toChoices(List<String> values) {
+        return values.stream()
+                .filter(value -> value.length() <= OptionData.MAX_CHOICE_VALUE_LENGTH)
+                .map(value -> new Command.Choice(value, value))
+                .toList();
+    }
+
+    private static String autocompleteKey(String subcommandName, String optionName) {
+        return subcommandName == null ? optionName : subcommandName + " " + optionName;
+    }
+
     /**
      * Abstract method to be implemented by subclasses to define the actual command logic.
      *
@@ -0,0 +1,128 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files without ever leaving a truncated version behind.
+ * <p>
+ * The new content is written to a temp file next to the target and then renamed over it,
+ * so a crash at any point leaves either the complete old file or the complete new one.
+ * With fsync enabled the temp file is flushed to disk before the rename and the directory after it,
+ * so the new content also survives a power loss once the write returns.
+ */
+public class AtomicFileWriter {
+
+    /**
+     * The suffix of temp files, so leftovers from a crash can be recognized and removed.
+     */
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Atomically replaces a file.
+     *
+     * @param target The file to write. Parent directories are created if needed.
+     * @param data   The new content.
+     * @param fsync  Whether to flush the content to disk before returning.
+     * @throws IOException if the file can't be written. The old file is left untouched in that case.
+     */
+    public static void write(Path target, byte[] data, boolean fsync) throws IOException {
+        Path temp = writeTemp(target, data, fsync);
+        commit(temp, target);
+        if (fsync) {
+            syncDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Writes the content to a new temp file in the directory of the target.
+     *
+     * @param target The file that will be replaced.
+     * @param data   The new content.
+     * @param fsync  Whether to flush the temp file to disk.
+     * @return The temp file, to be passed to {@link #commit(Path, Path)}.
+     * @throws IOException if the temp file can't be written. Nothing is left behind in that case.
+     */
+    public static Path writeTemp(Path target, byte[] data, boolean fsync) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString() + ".", TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * Renames a temp file written by {@link #writeTemp(Path, byte[], boolean)} over its target.
+     *
+     * @param temp   The temp file.
+     * @param target The file to replace.
+     * @throws IOException if the rename fails. The temp file is removed in that case.
+     */
+    public static void commit(Path temp, Path target) throws IOException {
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // only happens on odd file systems, a plain replace is still far better than rewriting in place
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Flushes a directory entry to disk, making earlier renames in it durable.
+     * Silently does nothing on platforms that can't open directories (Windows).
+     *
+     * @param directory The directory to flush.
+     */
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on this platform, the rename itself is still atomic
+        }
+    }
+
+    /**
+     * Removes temp files a crash left behind next to a file.
+     *
+     * @param target The file whose temp files should be removed.
+     */
+    public static void removeLeftoverTempFiles(Path target) {
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        String prefix = target.getFileName().toString() + ".";
+        try (var files = Files.newDirectoryStream(directory, file -> {
+            String name = file.getFileName().toString();
+            return name.startsWith(prefix) && name.endsWith(TEMP_SUFFIX);
+        })) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // harmless, they only take up space
+        }
+    }
+}
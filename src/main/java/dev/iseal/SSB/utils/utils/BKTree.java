@@ -0,0 +1,137 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.util.*;
+
+/**
+ * A BK-tree over case-insensitive edit distance, for "did you mean" lookups of names.
+ * <p>
+ * Every child is stored under its distance to the parent, so by the triangle inequality a search with
+ * limit {@code k} only has to descend into children whose distance lies within {@code k} of the
+ * parent's distance to the query. For short, distinct names that is a small part of the tree.
+ * Several values may share a key, for example a full name and its short form pointing to the same thing.
+ * Not thread safe while being built.
+ *
+ * @param <V> the type of the values found by a search.
+ */
+public class BKTree<V> {
+
+    private Node<V> root;
+    private int size;
+
+    private static final class Node<V> {
+        private final String key;
+        private final List<V> values = new ArrayList<>(1);
+        private final Map<Integer, Node<V>> children = new HashMap<>();
+
+        private Node(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A value found by {@link #search(String, int)}.
+     *
+     * @param value    The value.
+     * @param key      The key it was found under.
+     * @param distance The edit distance between the key and the query.
+     */
+    public record Match<V>(V value, String key, int distance) {}
+
+    /**
+     * Adds a value under a key.
+     *
+     * @param key   The key, compared case-insensitively.
+     * @param value The value.
+     */
+    public void add(String key, V value) {
+        size++;
+        if (root == null) {
+            root = new Node<>(key);
+            root.values.add(value);
+            return;
+        }
+        Node<V> node = root;
+        while (true) {
+            int distance = StringSimilarity.editDistance(key, node.key);
+            if (distance == 0) {
+                node.values.add(value);
+                return;
+            }
+            Node<V> child = node.children.get(distance);
+            if (child == null) {
+                child = new Node<>(key);
+                child.values.add(value);
+                node.children.put(distance, child);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds every value whose key is within a distance of the query.
+     *
+     * @param query       The query.
+     * @param maxDistance The largest edit distance that counts.
+     * @return The matches, closest first, ties broken by key.
+     */
+    public List<Match<V>> search(String query, int maxDistance) {
+        List<Match<V>> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node<V>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<V> node = pending.pop();
+            int distance = StringSimilarity.editDistance(query, node.key);
+            if (distance <= maxDistance) {
+                for (V value : node.values) {
+                    matches.add(new Match<>(value, node.key, distance));
+                }
+            }
+            for (Map.Entry<Integer, Node<V>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        matches.sort(Comparator.<Match<V>>comparingInt(Match::distance).thenComparing(Match::key));
+        return matches;
+    }
+
+    /**
+     * Suggests values for a query that didn't match anything exactly.
+     * Each value is only suggested once, under its closest key.
+     *
+     * @param query       The query.
+     * @param maxDistance The largest edit distance that counts.
+     * @param limit       The most suggestions to return.
+     * @return The suggested values, best first.
+     */
+    public List<V> suggest(String query, int maxDistance, int limit) {
+        Set<V> suggestions = new LinkedHashSet<>();
+        for (Match<V> match : search(query, maxDistance)) {
+            if (suggestions.size() >= limit) {
+                break;
+            }
+            suggestions.add(match.value());
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    /**
+     * Suggests values for a query, allowing about one typo per three characters of the query.
+     *
+     * @param query The query.
+     * @param limit The most suggestions to return.
+     * @return The suggested values, best first.
+     */
+    public List<V> suggest(String query, int limit) {
+        return suggest(query, Math.max(1, query.length() / 3), limit);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,5 +1,6 @@
 package dev.iseal.SSB.utils.utils;
 
+import dev.iseal.SSB.managers.RestScheduler;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import org.slf4j.Logger;
@@ -7,7 +8,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 public class DownloadUtils {
@@ -15,10 +21,15 @@ public class DownloadUtils {
     private static final Logger log = LoggerFactory.getLogger(DownloadUtils.class);
 
     private static final String TEMP_DOWNLOAD_DIR_NAME = "discord_ssb_downloads";
-    private static final int DOWNLOAD_BUFFER_SIZE = 4096; // 4KB
-    private static final long DOWNLOAD_PROGRESS_UPDATE_INTERVAL_MS = 1500; // 1.5 seconds
+    // the HTTP streams hand out what they have buffered, a large read buffer means far fewer reads and writes
+    private static final int DOWNLOAD_BUFFER_SIZE = 256 * 1024; // 256KB
+    // progress is reported every 5% of the download, or every PROGRESS_MIN_STEP_BYTES if the size is unknown
+    private static final long PROGRESS_STEPS = 20;
+    private static final long PROGRESS_MIN_STEP_BYTES = 1024 * 1024; // 1MB
+    private static final long ATTACHMENT_CONNECT_TIMEOUT_SECONDS = 30; // until the response starts, not the whole download
     private static final int MAX_NAME_LENGTH = 40;
     private static final String ELLIPSIS = "...";
+    private static final String PROGRESS_COALESCE_KEY = "downloadProgress";
 
     /**
      * Downloads a JDA Message.Attachment to a specified temporary directory structure
@@ -52,13 +63,15 @@ public class DownloadUtils {
                 progressMessage = "Downloading " + userFriendlyName + " (" + (downloadedBytes / 1024) + " KB)...";
             }
 
-            event.getHook().editOriginal(progressMessage).queue(
-                    null, // success
-                    error -> log.warn("Failed to send download progress update for '{}': {}", userFriendlyName, error.getMessage())
-            );
+            sendProgress(event, progressMessage, userFriendlyName);
         };
 
-        return downloadAttachmentToTempDir(attachment, uniqueFilePrefix, eventProgressReporter);
+        try {
+            return downloadAttachmentToTempDir(attachment, uniqueFilePrefix, eventProgressReporter);
+        } finally {
+            // a late progress edit would overwrite whatever the caller replies with next
+            RestScheduler.getInstance().discard(RestScheduler.interactionBucket(event.getIdLong()), PROGRESS_COALESCE_KEY);
+        }
     }
 
     /**
@@ -91,9 +104,8 @@ public class DownloadUtils {
         String userFriendlyName = getUserFriendlyName(originalFileName);
         log.debug("Attempting to download attachment '{}' to '{}'. Total size: {} bytes.", userFriendlyName, destinationFile.getAbsolutePath(), totalSize);
 
-        try (InputStream inputStream = attachment.getProxy().download().join();
-             FileOutputStream fos = new FileOutputStream(destinationFile)) {
-            transferStreamWithProgress(inputStream, fos, totalSize, userFriendlyName, progressCallback);
+        try (InputStream inputStream = attachment.getProxy().download().orTimeout(ATTACHMENT_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS).join()) {
+            transferStreamWithProgress(inputStream, destinationFile, totalSize, userFriendlyName, progressCallback);
         } catch (UncheckedIOException | CompletionException e) {
             Throwable cause = e.getCause();
             if (cause instanceof IOException) {
@@ -158,12 +170,24 @@ public class DownloadUtils {
             } else {
                 progressMessage = "Downloading " + userFriendlyName + " (" + (downloadedBytes / 1024) + " KB)...";
             }
-            event.getHook().editOriginal(progressMessage).queue(
-                    null,
-                    error -> log.warn("Failed to send download progress update for '{}': {}", userFriendlyName, error.getMessage())
-            );
+            sendProgress(event, progressMessage, userFriendlyName);
         };
-        return downloadUrlToTempDirInternal(url, urlString, uniqueFilePrefix, eventProgressReporter);
+        try {
+            return downloadUrlToTempDirInternal(url, urlString, uniqueFilePrefix, eventProgressReporter);
+        } finally {
+            RestScheduler.getInstance().discard(RestScheduler.interactionBucket(event.getIdLong()), PROGRESS_COALESCE_KEY);
+        }
+    }
+
+    // progress edits are coalesced, only the latest one is sent if the previous one is still queued
+    private static void sendProgress(SlashCommandInteractionEvent event, String progressMessage, String userFriendlyName) {
+        RestScheduler.getInstance().submit(event.getHook().editOriginal(progressMessage), RestScheduler.Priority.PROGRESS,
+                RestScheduler.interactionBucket(event.getIdLong()), PROGRESS_COALESCE_KEY
+        ).whenComplete((success, error) -> {
+            if (error != null && !(error instanceof CancellationException)) {
+                log.warn("Failed to send download progress update for '{}': {}", userFriendlyName, error.getMessage());
+            }
+        });
     }
 
     /**
@@ -212,9 +236,8 @@ public class DownloadUtils {
         String userFriendlyName = getUserFriendlyName(derivedFileName);
         log.debug("Attempting to download from URL '{}' to '{}'. Total size: {} bytes.", originalUrlString, destinationFile.getAbsolutePath(), totalSize);
 
-        try (InputStream inputStream = connection.getInputStream();
-             FileOutputStream fos = new FileOutputStream(destinationFile)) {
-            transferStreamWithProgress(inputStream, fos, totalSize, userFriendlyName, progressCallback);
+        try (InputStream inputStream = connection.getInputStream()) {
+            transferStreamWithProgress(inputStream, destinationFile, totalSize, userFriendlyName, progressCallback);
         } catch (IOException e) {
             log.error("Failed to download from URL '{}' (derived name: {}): {}", originalUrlString, userFriendlyName, e.getMessage(), e);
             throw new IOException("Failed to download '" + userFriendlyName + "' from URL: " + e.getMessage(), e);
@@ -225,36 +248,44 @@ public class DownloadUtils {
 
 
     /**
-     * Transfers data from an InputStream to an OutputStream, providing progress updates
+     * Transfers data from an InputStream into a file, providing progress updates
      * via a BiConsumer callback.
+     * <p>
+     * The file is written through a FileChannel from a large buffer instead of a small one through a
+     * FileOutputStream. Progress is sampled by bytes transferred, once per progress step, so the copy loop
+     * itself doesn't look at the clock.
      *
      * @param source           The InputStream to read from.
-     * @param destination      The OutputStream to write to.
+     * @param destination      The file to write to. Created, or truncated if it exists.
      * @param totalSize        The total size of the content, or -1 if unknown.
      * @param userFriendlyName The name of the content being transferred for display in logs.
      * @param progressCallback A BiConsumer that accepts (bytesDownloaded, totalBytes). Called initially,
-     *                         periodically during transfer, and finally upon completion. Can be null.
+     *                         after every progress step, and finally upon completion. Can be null.
      * @throws IOException If an I/O error occurs.
      */
-    private static void transferStreamWithProgress(InputStream source, OutputStream destination, long totalSize, String userFriendlyName, BiConsumer<Long, Long> progressCallback) throws IOException {
+    private static void transferStreamWithProgress(InputStream source, File destination, long totalSize, String userFriendlyName, BiConsumer<Long, Long> progressCallback) throws IOException {
         if (progressCallback != null) {
             progressCallback.accept(0L, totalSize);
         }
 
-        byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
-        int bytesRead;
+        long step = totalSize > 0 ? Math.max(PROGRESS_MIN_STEP_BYTES, totalSize / PROGRESS_STEPS) : PROGRESS_MIN_STEP_BYTES;
+        long nextProgressAt = step;
         long downloadedBytes = 0;
-        long lastProgressCallbackTime = System.currentTimeMillis();
-
-        while ((bytesRead = source.read(buffer)) != -1) {
-            destination.write(buffer, 0, bytesRead);
-            downloadedBytes += bytesRead;
+        byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        try (FileChannel fileChannel = FileChannel.open(destination.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int bytesRead;
+            while ((bytesRead = source.read(buffer)) != -1) {
+                byteBuffer.clear().limit(bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    fileChannel.write(byteBuffer);
+                }
+                downloadedBytes += bytesRead;
 
-            if (progressCallback != null) {
-                long currentTime = System.currentTimeMillis();
-                if (currentTime - lastProgressCallbackTime > DOWNLOAD_PROGRESS_UPDATE_INTERVAL_MS || downloadedBytes == totalSize) {
+                if (progressCallback != null && downloadedBytes >= nextProgressAt) {
                     progressCallback.accept(downloadedBytes, totalSize);
-                    lastProgressCallbackTime = currentTime;
+                    nextProgressAt = downloadedBytes + step;
                 }
             }
         }
@@ -263,7 +294,6 @@ public class DownloadUtils {
             progressCallback.accept(downloadedBytes, totalSize); // Final call
         }
 
-        destination.flush();
         log.debug("Download of '{}' complete. Total bytes transferred: {}.", userFriendlyName, downloadedBytes);
     }
 
@@ -0,0 +1,176 @@
+package dev.iseal.SSB.utils.utils;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Writes files atomically from a single background thread, batching writes together.
+ * <p>
+ * Callers only hand over a path and a way to produce its content. Writes queued for the same path
+ * before the writer gets to them are coalesced into one, and everything queued within
+ * {@link #COMMIT_DELAY_MS} is committed as one batch: all temp files are written first, then renamed,
+ * then each touched directory is synced once. A burst of small updates therefore costs one write and
+ * one fsync per file instead of one per update.
+ * <p>
+ * The content supplier is called on the writer thread, so it has to be thread safe,
+ * and it sees the latest state instead of the state at the time of the call.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    // how long the writer waits for more writes to join a batch
+    private static final long COMMIT_DELAY_MS = 20;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final String name;
+    private final boolean fsync;
+    private final Map<Path, PendingWrite> pending = new LinkedHashMap<>();
+    private final Thread writerThread;
+    private boolean running = true;
+    private long submittedWrites;
+    private long committedWrites;
+    private long committedBatches;
+
+    private record PendingWrite(Supplier<byte[]> content, CompletableFuture<Void> future) {}
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param name  Used for the thread name and logging.
+     * @param fsync Whether committed files should be flushed to disk.
+     */
+    public GroupCommitWriter(String name, boolean fsync) {
+        this.name = name;
+        this.fsync = fsync;
+        writerThread = new Thread(this::writeLoop, "SSB-GroupCommit-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a write. If a write for the same path is still queued, it is replaced by this one.
+     *
+     * @param path    The file to write.
+     * @param content Produces the content when the write is committed.
+     * @return A future completed once the content is on disk, or completed exceptionally if the write failed.
+     * @throws IllegalStateException if the writer was closed.
+     */
+    public synchronized CompletableFuture<Void> submit(Path path, Supplier<byte[]> content) {
+        if (!running) {
+            throw new IllegalStateException("Group commit writer " + name + " is closed");
+        }
+        submittedWrites++;
+        PendingWrite previous = pending.get(path);
+        // the new content supersedes the queued one, so both callers wait on the same write
+        CompletableFuture<Void> future = previous == null ? new CompletableFuture<>() : previous.future();
+        pending.put(path, new PendingWrite(content, future));
+        notifyAll();
+        return future;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping;
+            synchronized (this) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                stopping = !running;
+            }
+
+            if (!stopping) {
+                try {
+                    Thread.sleep(COMMIT_DELAY_MS);
+                } catch (InterruptedException e) {
+                    // commit what we have right away
+                }
+            }
+
+            Map<Path, PendingWrite> batch;
+            synchronized (this) {
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            commit(batch);
+        }
+    }
+
+    private void commit(Map<Path, PendingWrite> batch) {
+        Map<Path, Path> tempFiles = new LinkedHashMap<>();
+        batch.forEach((path, write) -> {
+            try {
+                tempFiles.put(path, AtomicFileWriter.writeTemp(path, write.content().get(), fsync));
+            } catch (IOException | RuntimeException e) {
+                fail(path, write, e);
+            }
+        });
+
+        Set<Path> directories = new HashSet<>();
+        tempFiles.forEach((path, temp) -> {
+            try {
+                AtomicFileWriter.commit(temp, path);
+                directories.add(path.toAbsolutePath().getParent());
+            } catch (IOException e) {
+                fail(path, batch.get(path), e);
+            }
+        });
+        if (fsync) {
+            directories.forEach(AtomicFileWriter::syncDirectory);
+        }
+
+        // a no-op for the writes that already failed
+        batch.values().forEach(write -> write.future().complete(null));
+        synchronized (this) {
+            committedWrites += tempFiles.size();
+            committedBatches++;
+        }
+    }
+
+    private void fail(Path path, PendingWrite write, Exception e) {
+        log.error("Failed to write {}, the previous version was kept: {}", path, e.getMessage());
+        write.future().completeExceptionally(e);
+    }
+
+    /**
+     * Commits every queued write and stops the writer thread.
+     * Later calls do nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            notifyAll();
+        }
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                log.error("Group commit writer {} did not finish in time, {} files were not written.", name, pending.size());
+            }
+            log.info("Group commit writer {} closed: {} updates were written as {} file writes in {} batches.",
+                    name, submittedWrites, committedWrites, committedBatches);
+        }
+    }
+}
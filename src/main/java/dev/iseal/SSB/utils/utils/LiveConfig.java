@@ -0,0 +1,97 @@
+package dev.iseal.SSB.utils.utils;
+
+import de.leonhard.storage.Yaml;
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds an immutable, typed snapshot of a YAML config file.
+ * <p>
+ * The snapshot is parsed once and published through a volatile reference, so hot paths
+ * can call {@link #get()} on every event without touching the underlying file.
+ * When the file changes on disk, {@link dev.iseal.SSB.managers.ConfigManager} calls {@link #reload()},
+ * which parses a fresh snapshot and swaps it in. If parsing fails, the previous snapshot is kept.
+ *
+ * @param <T> the type of the parsed snapshot, usually a record.
+ */
+public class LiveConfig<T> {
+
+    private static final Logger log = JDALogger.getLog(LiveConfig.class);
+
+    private final Yaml yaml;
+    private final Function<Yaml, T> parser;
+    private final List<Consumer<T>> reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile T snapshot;
+
+    /**
+     * Creates a live config and parses the initial snapshot.
+     * Defaults should already be set on the {@link Yaml} before calling this.
+     *
+     * @param yaml   The backing Simplix file.
+     * @param parser Converts the file into an immutable snapshot.
+     */
+    public LiveConfig(Yaml yaml, Function<Yaml, T> parser) {
+        this.yaml = yaml;
+        this.parser = parser;
+        this.snapshot = parser.apply(yaml);
+    }
+
+    /**
+     * Gets the current snapshot. Cheap enough to call on every message.
+     *
+     * @return The latest successfully parsed snapshot.
+     */
+    public T get() {
+        return snapshot;
+    }
+
+    /**
+     * Registers a listener that is called with the new snapshot after every successful reload.
+     *
+     * @param listener The listener to call.
+     */
+    public void onReload(Consumer<T> listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Gets the normalized absolute path of the backing file.
+     *
+     * @return The path of the config file.
+     */
+    public Path getPath() {
+        return yaml.getFile().toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Re-reads the backing file and swaps in a new snapshot.
+     *
+     * @return true if the new snapshot was published, false if parsing failed and the old one was kept.
+     */
+    public boolean reload() {
+        T newSnapshot;
+        try {
+            yaml.forceReload();
+            newSnapshot = parser.apply(yaml);
+        } catch (Exception e) {
+            log.warn("Failed to reload config {}, keeping the previous values: {}", getPath(), e.getMessage());
+            return false;
+        }
+        snapshot = newSnapshot;
+        reloadListeners.forEach(listener -> {
+            try {
+                listener.accept(newSnapshot);
+            } catch (Exception e) {
+                log.error("Config reload listener for {} failed: {}", getPath(), e.getMessage());
+            }
+        });
+        log.info("Reloaded config {}", getPath());
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A set of primitive longs, for ID lookups on hot paths without boxing every lookup key.
+ * <p>
+ * Open addressing with linear probing over a power of two table. Snowflakes share most of their
+ * low bits, so keys are spread with a multiplicative hash before probing.
+ * Not thread safe while being filled. Meant to be built once, for example while parsing a config
+ * snapshot, and only read afterwards, which is safe from any thread once the set is published.
+ */
+public class LongHashSet {
+
+    private static final LongHashSet EMPTY = new LongHashSet(0);
+    private static final long FREE = 0L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] table;
+    private int shift;
+    private int size;
+    // 0 marks free slots, so it is tracked on its own
+    private boolean containsFree;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    /**
+     * @param expectedSize How many values the set will hold, to avoid resizing while filling it.
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(Math.max(2, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1));
+    }
+
+    /**
+     * @return A shared empty set. It must not be modified.
+     */
+    public static LongHashSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a set from boxed numbers or numeric strings, as they come out of a parsed config file.
+     * Null entries are skipped.
+     *
+     * @param values The values.
+     * @return The new set.
+     * @throws NumberFormatException If a value is not a number.
+     */
+    public static LongHashSet of(Collection<?> values) {
+        LongHashSet set = new LongHashSet(values.size());
+        for (Object value : values) {
+            if (value instanceof Number number) {
+                set.add(number.longValue());
+            } else if (value != null) {
+                set.add(Long.parseLong(value.toString().trim()));
+            }
+        }
+        return set;
+    }
+
+    /**
+     * @param value The value to add.
+     * @return true if the value was not in the set yet.
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == value) {
+                return false;
+            }
+            if (current == FREE) {
+                table[i] = value;
+                if (++size * 2 > table.length) {
+                    rehash(table.length << 1);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param value The value to look up.
+     * @return true if the set contains the value.
+     */
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        long[] current = table;
+        int mask = current.length - 1;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            long entry = current[i];
+            if (entry == value) {
+                return true;
+            }
+            if (entry == FREE) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The values in no particular order.
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int index = 0;
+        if (containsFree) {
+            values[index++] = FREE;
+        }
+        for (long entry : table) {
+            if (entry != FREE) {
+                values[index++] = entry;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        long[] values = toArray();
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+
+    private int slot(long value) {
+        return (int) ((value * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (long entry : old) {
+            if (entry == FREE) {
+                continue;
+            }
+            int i = slot(entry);
+            while (table[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            table[i] = entry;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Finds near-duplicate texts among many, without comparing against each of them.
+ * <p>
+ * Every text is cut into overlapping {@code SHINGLE_LENGTH} character shingles, after case folding and
+ * collapsing everything that isn't a letter or digit into single spaces, so reformatting doesn't hide a copy.
+ * The shingle set is reduced to a MinHash signature of {@code SIGNATURE_LENGTH} values, where the share of
+ * equal values between two signatures estimates the Jaccard similarity of the shingle sets.
+ * <p>
+ * Signatures are indexed with locality sensitive hashing: {@code BANDS} bands of {@code ROWS} values each,
+ * and only texts that share at least one complete band are compared. With 32 bands of 4 rows, pairs above
+ * about 0.6 similarity are candidates 99% of the time and pairs below 0.2 only 5% of the time, so a lookup
+ * only touches a handful of entries no matter how many are indexed.
+ *
+ * @param <K> the key identifying an indexed text.
+ */
+public class MinHashIndex<K> {
+
+    private static final int SHINGLE_LENGTH = 5;
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    private static final long SHINGLE_BASE = 0x100000001B3L;
+    private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+
+    static {
+        // fixed, signatures are only compared within one process but this keeps them reproducible
+        SplittableRandom random = new SplittableRandom(0x5EA15EA1L);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private final Map<K, Entry> entries = new HashMap<>();
+    private final List<Map<Long, List<K>>> bands = new ArrayList<>(BANDS);
+
+    public MinHashIndex() {
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    private record Entry(long[] signature, long addedAt) {}
+
+    /**
+     * A near-duplicate found by {@link #findMostSimilar(long[], double)}.
+     *
+     * @param key        The key of the indexed text.
+     * @param similarity The estimated Jaccard similarity, within 0 and 1.
+     */
+    public record Match<K>(K key, double similarity) {}
+
+    /**
+     * Computes the MinHash signature of a text.
+     *
+     * @param text The text.
+     * @return The signature, to be passed to {@link #add} and {@link #findMostSimilar}.
+     */
+    public static long[] signature(String text) {
+        long[] signature = new long[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        // rolling polynomial hash over the normalized text, so no shingle strings are built
+        long power = 1;
+        for (int i = 0; i < SHINGLE_LENGTH; i++) {
+            power *= SHINGLE_BASE;
+        }
+        char[] window = new char[SHINGLE_LENGTH];
+        int length = 0;
+        long hash = 0;
+        boolean lastWasSpace = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = StringSimilarity.fold(text.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                if (lastWasSpace) {
+                    continue;
+                }
+                c = ' ';
+            }
+            lastWasSpace = c == ' ';
+            char dropped = window[length % SHINGLE_LENGTH];
+            window[length % SHINGLE_LENGTH] = c;
+            hash = hash * SHINGLE_BASE + c;
+            if (length >= SHINGLE_LENGTH) {
+                hash -= dropped * power;
+            }
+            length++;
+            if (length >= SHINGLE_LENGTH) {
+                addShingle(signature, hash);
+            }
+        }
+        if (length > 0 && length < SHINGLE_LENGTH) {
+            // too short for a full shingle, the whole text is the only one
+            addShingle(signature, hash);
+        }
+        return signature;
+    }
+
+    private static void addShingle(long[] signature, long shingle) {
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            long value = mix(shingle ^ SEEDS[i]);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    // the SplitMix64 finalizer, turns the shingle hash into an independent hash per seed
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    /**
+     * @param first  A signature.
+     * @param second Another signature.
+     * @return The estimated Jaccard similarity of the two texts, within 0 and 1.
+     */
+    public static double similarity(long[] first, long[] second) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) SIGNATURE_LENGTH;
+    }
+
+    /**
+     * Indexes a text, replacing an earlier one with the same key.
+     *
+     * @param key       The key.
+     * @param signature The text's signature.
+     * @param addedAt   When the text was written, in epoch millis, see {@link #removeOlderThan(long)}.
+     */
+    public synchronized void add(K key, long[] signature, long addedAt) {
+        remove(key);
+        entries.put(key, new Entry(signature, addedAt));
+        for (int band = 0; band < BANDS; band++) {
+            bands.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(key);
+        }
+    }
+
+    /**
+     * Removes a text from the index.
+     *
+     * @param key The key.
+     */
+    public synchronized void remove(K key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long bandKey = bandKey(entry.signature(), band);
+            List<K> bucket = bands.get(band).get(bandKey);
+            if (bucket != null) {
+                bucket.remove(key);
+                if (bucket.isEmpty()) {
+                    bands.get(band).remove(bandKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every text added before a point in time.
+     *
+     * @param cutoff The cutoff in epoch millis.
+     * @return The number of removed texts.
+     */
+    public synchronized int removeOlderThan(long cutoff) {
+        List<K> expired = new ArrayList<>();
+        entries.forEach((key, entry) -> {
+            if (entry.addedAt() < cutoff) {
+                expired.add(key);
+            }
+        });
+        expired.forEach(this::remove);
+        return expired.size();
+    }
+
+    /**
+     * Finds the most similar indexed text.
+     *
+     * @param signature     The signature to look up.
+     * @param minSimilarity The lowest similarity that counts.
+     * @return The best match at or above {@code minSimilarity}, if any.
+     */
+    public Optional<Match<K>> findMostSimilar(long[] signature, double minSimilarity) {
+        return findMostSimilar(signature, minSimilarity, key -> true);
+    }
+
+    /**
+     * Finds the most similar indexed text among the ones a filter accepts.
+     *
+     * @param signature     The signature to look up.
+     * @param minSimilarity The lowest similarity that counts.
+     * @param filter        Decides which keys count, only called for keys at or above {@code minSimilarity}.
+     * @return The best accepted match at or above {@code minSimilarity}, if any.
+     */
+    public synchronized Optional<Match<K>> findMostSimilar(long[] signature, double minSimilarity, Predicate<K> filter) {
+        Set<K> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            List<K> bucket = bands.get(band).get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Match<K> best = null;
+        for (K candidate : candidates) {
+            double similarity = similarity(signature, entries.get(candidate).signature());
+            if (similarity >= minSimilarity && (best == null || similarity > best.similarity()) && filter.test(candidate)) {
+                best = new Match<>(candidate, similarity);
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
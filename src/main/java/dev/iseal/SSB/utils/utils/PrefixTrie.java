@@ -0,0 +1,130 @@
+package dev.iseal.SSB.utils.utils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A case-insensitive prefix trie, for autocompleting names as they are typed.
+ * <p>
+ * A lookup only walks the characters of the prefix and then the subtree below it until enough values are
+ * found, so it doesn't depend on how many names are indexed. Children are kept sorted, so completions come
+ * back in alphabetical order of their keys. Several keys may point to the same value, and a value is only
+ * returned once per lookup.
+ *
+ * @param <V> the type of the values completed.
+ */
+public class PrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    private static final class Node<V> {
+        private final TreeMap<Character, Node<V>> children = new TreeMap<>();
+        private final List<V> values = new ArrayList<>(1);
+
+        private boolean isEmpty() {
+            return children.isEmpty() && values.isEmpty();
+        }
+    }
+
+    /**
+     * Adds a value under a key.
+     *
+     * @param key   The key, compared case-insensitively.
+     * @param value The value.
+     */
+    public synchronized void add(String key, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(StringSimilarity.fold(key.charAt(i)), c -> new Node<>());
+        }
+        if (!node.values.contains(value)) {
+            node.values.add(value);
+            size++;
+        }
+    }
+
+    /**
+     * Removes a value from under a key, dropping nodes that are no longer needed.
+     *
+     * @param key   The key it was added under.
+     * @param value The value.
+     * @return true if the value was found.
+     */
+    public synchronized boolean remove(String key, V value) {
+        Deque<Node<V>> path = new ArrayDeque<>(key.length() + 1);
+        Node<V> node = root;
+        path.push(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(StringSimilarity.fold(key.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+            path.push(node);
+        }
+        if (!node.values.remove(value)) {
+            return false;
+        }
+        size--;
+        for (int i = key.length() - 1; i >= 0; i--) {
+            Node<V> child = path.pop();
+            if (!child.isEmpty()) {
+                break;
+            }
+            path.peek().children.remove(StringSimilarity.fold(key.charAt(i)));
+        }
+        return true;
+    }
+
+    /**
+     * Completes a prefix.
+     *
+     * @param prefix The typed prefix, an empty one completes to everything.
+     * @param limit  The most values to return.
+     * @param filter Only values accepted by it are returned.
+     * @return The values under keys starting with the prefix, in order of their keys.
+     */
+    public synchronized List<V> complete(String prefix, int limit, Predicate<? super V> filter) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(StringSimilarity.fold(prefix.charAt(i)));
+        }
+        if (node == null || limit <= 0) {
+            return List.of();
+        }
+        Set<V> completions = new LinkedHashSet<>();
+        Deque<Node<V>> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node<V> current = pending.pop();
+            for (V value : current.values) {
+                if (filter.test(value) && completions.add(value) && completions.size() >= limit) {
+                    return new ArrayList<>(completions);
+                }
+            }
+            // pushed in reverse so the smallest child is visited first
+            for (Node<V> child : current.children.descendingMap().values()) {
+                pending.push(child);
+            }
+        }
+        return new ArrayList<>(completions);
+    }
+
+    /**
+     * Completes a prefix.
+     *
+     * @param prefix The typed prefix, an empty one completes to everything.
+     * @param limit  The most values to return.
+     * @return The values under keys starting with the prefix, in order of their keys.
+     */
+    public List<V> complete(String prefix, int limit) {
+        return complete(prefix, limit, value -> true);
+    }
+
+    /**
+     * @return The number of key and value pairs.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
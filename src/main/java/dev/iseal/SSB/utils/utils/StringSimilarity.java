@@ -1,47 +1,272 @@
 package dev.iseal.SSB.utils.utils;
 
+import java.util.Arrays;
+
+/**
+ * Case-insensitive Levenshtein distance and similarity.
+ * <p>
+ * Uses the bit-parallel algorithm by Myers, in Hyyro's formulation for edit distance: one machine word
+ * holds a whole column of the DP matrix, so a pattern of up to 64 characters costs a handful of
+ * operations per character of the text. Longer patterns are split into blocks of 64.
+ * Common prefixes and suffixes are skipped first, and the thresholded variants stop as soon as the
+ * distance can no longer end up within the limit.
+ * <p>
+ * Case is folded per character, nothing is allocated per call. The pattern tables are reused per thread.
+ */
 public class StringSimilarity {
 
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
     /**
      * Calculates the similarity (a number within 0 and 1) between two strings.
      */
     public static double similarity(String s1, String s2) {
-        String longer = s1, shorter = s2;
-        if (s1.length() < s2.length()) { // longer should always have greater length
-            longer = s2; shorter = s1;
-        }
-        int longerLength = longer.length();
+        int longerLength = Math.max(s1.length(), s2.length());
         if (longerLength == 0) { return 1.0; /* both strings are zero length */ }
-        return (longerLength - editDistance(longer, shorter)) / (double) longerLength;
+        return (longerLength - editDistance(s1, s2)) / (double) longerLength;
+    }
 
+    /**
+     * Checks if two strings are at least as similar as {@link #similarity(String, String)} would measure,
+     * without computing the exact distance when they are clearly not.
+     *
+     * @param s1            The first string.
+     * @param s2            The second string.
+     * @param minSimilarity The lowest similarity that counts, within 0 and 1.
+     * @return true if {@code similarity(s1, s2) >= minSimilarity}.
+     */
+    public static boolean isSimilar(String s1, String s2, double minSimilarity) {
+        int longerLength = Math.max(s1.length(), s2.length());
+        if (longerLength == 0) {
+            return true;
+        }
+        // small epsilon so 0.8 * 10 doesn't round down to 1.99999
+        int maxDistance = (int) Math.floor(longerLength * (1 - minSimilarity) + 1e-9);
+        if (maxDistance < 0) {
+            return false;
+        }
+        return editDistance(s1, s2, maxDistance) <= maxDistance;
     }
 
-    // Example implementation of the Levenshtein Edit Distance
-    // See http://rosettacode.org/wiki/Levenshtein_distance#Java
+    /**
+     * Calculates the case-insensitive Levenshtein distance between two strings.
+     */
     public static int editDistance(String s1, String s2) {
-        s1 = s1.toLowerCase();
-        s2 = s2.toLowerCase();
-
-        int[] costs = new int[s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) {
-            int lastValue = i;
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0)
-                    costs[j] = j;
-                else {
-                    if (j > 0) {
-                        int newValue = costs[j - 1];
-                        if (s1.charAt(i - 1) != s2.charAt(j - 1))
-                            newValue = Math.min(Math.min(newValue, lastValue),
-                                    costs[j]) + 1;
-                        costs[j - 1] = lastValue;
-                        lastValue = newValue;
+        return editDistance(s1, s2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Calculates the case-insensitive Levenshtein distance between two strings, up to a limit.
+     *
+     * @param s1          The first string.
+     * @param s2          The second string.
+     * @param maxDistance The largest distance the caller cares about.
+     * @return The distance, or {@code maxDistance + 1} if it is larger than {@code maxDistance}.
+     */
+    public static int editDistance(String s1, String s2, int maxDistance) {
+        int start = 0;
+        int end1 = s1.length();
+        int end2 = s2.length();
+        while (start < end1 && start < end2 && fold(s1.charAt(start)) == fold(s2.charAt(start))) {
+            start++;
+        }
+        while (end1 > start && end2 > start && fold(s1.charAt(end1 - 1)) == fold(s2.charAt(end2 - 1))) {
+            end1--;
+            end2--;
+        }
+        int length1 = end1 - start;
+        int length2 = end2 - start;
+        // every length difference costs an insertion
+        if (Math.abs(length1 - length2) > maxDistance) {
+            return exceeded(maxDistance);
+        }
+        if (length1 == 0 || length2 == 0) {
+            return Math.max(length1, length2);
+        }
+        // the shorter string is the pattern, so it needs fewer blocks
+        return length1 <= length2
+                ? bitParallelDistance(s1, start, length1, s2, start, length2, maxDistance)
+                : bitParallelDistance(s2, start, length2, s1, start, length1, maxDistance);
+    }
+
+    /**
+     * Folds a character to lower case, with a fast path for ASCII.
+     */
+    public static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static int exceeded(int maxDistance) {
+        return maxDistance == Integer.MAX_VALUE ? maxDistance : maxDistance + 1;
+    }
+
+    private static int bitParallelDistance(String pattern, int patternStart, int patternLength, String text, int textStart, int textLength, int maxDistance) {
+        Scratch tables = scratch.get();
+        int blocks = (patternLength + 63) >>> 6;
+        tables.build(pattern, patternStart, patternLength, blocks);
+        try {
+            return blocks == 1
+                    ? singleWord(tables, patternLength, text, textStart, textLength, maxDistance)
+                    : blocked(tables, patternLength, blocks, text, textStart, textLength, maxDistance);
+        } finally {
+            tables.clear(blocks);
+        }
+    }
+
+    // Myers/Hyyro for patterns of up to 64 characters, the score tracks the last row of the DP matrix
+    private static int singleWord(Scratch tables, int patternLength, String text, int textStart, int textLength, int maxDistance) {
+        long[] peq = tables.peq;
+        long pv = -1L;
+        long mv = 0L;
+        long last = 1L << (patternLength - 1);
+        int score = patternLength;
+        for (int i = 0; i < textLength; i++) {
+            long eq = peq[tables.slotOf(fold(text.charAt(textStart + i)))];
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // row 0 of the matrix grows by one per column
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // the score can drop by at most one per remaining column
+            if (score - (textLength - i - 1) > maxDistance) {
+                return exceeded(maxDistance);
+            }
+        }
+        return score <= maxDistance ? score : exceeded(maxDistance);
+    }
+
+    // the same per 64 character block, with the horizontal delta carried from block to block
+    private static int blocked(Scratch tables, int patternLength, int blocks, String text, int textStart, int textLength, int maxDistance) {
+        long[] peq = tables.peq;
+        long[] pvs = tables.pv;
+        long[] mvs = tables.mv;
+        Arrays.fill(pvs, 0, blocks, -1L);
+        Arrays.fill(mvs, 0, blocks, 0L);
+        long last = 1L << ((patternLength - 1) & 63);
+        int score = patternLength;
+        for (int i = 0; i < textLength; i++) {
+            int base = tables.slotOf(fold(text.charAt(textStart + i))) * blocks;
+            int carry = 1;
+            for (int block = 0; block < blocks; block++) {
+                long eq = peq[base + block];
+                long pv = pvs[block];
+                long mv = mvs[block];
+                long xv = eq | mv;
+                if (carry < 0) {
+                    eq |= 1L;
+                }
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                long high = block == blocks - 1 ? last : Long.MIN_VALUE;
+                int carryOut = (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+                ph <<= 1;
+                mh <<= 1;
+                if (carry < 0) {
+                    mh |= 1L;
+                } else if (carry > 0) {
+                    ph |= 1L;
+                }
+                pvs[block] = mh | ~(xv | ph);
+                mvs[block] = ph & xv;
+                carry = carryOut;
+            }
+            score += carry;
+            if (score - (textLength - i - 1) > maxDistance) {
+                return exceeded(maxDistance);
+            }
+        }
+        return score <= maxDistance ? score : exceeded(maxDistance);
+    }
+
+    /**
+     * Per-thread pattern tables. Every distinct pattern character gets a slot, slot 0 stands for every
+     * character not in the pattern and stays all zeros. {@code peq[slot * blocks + block]} has a bit set
+     * for every position of that character in the block.
+     */
+    private static final class Scratch {
+        private final int[] asciiSlots = new int[128];
+        private char[] otherChars = new char[16];
+        private int[] otherSlots = new int[16];
+        private int otherMask;
+        private boolean hasOther;
+        private int slots;
+        private long[] peq = new long[65];
+        private long[] pv = new long[2];
+        private long[] mv = new long[2];
+
+        private void build(String pattern, int start, int length, int blocks) {
+            int tableSize = Integer.highestOneBit(Math.max(1, length) * 2 - 1) << 1;
+            if (otherSlots.length < tableSize) {
+                otherChars = new char[tableSize];
+                otherSlots = new int[tableSize];
+            }
+            otherMask = tableSize - 1;
+            int peqSize = (length + 1) * blocks;
+            if (peq.length < peqSize) {
+                peq = new long[peqSize];
+            }
+            if (pv.length < blocks) {
+                pv = new long[blocks];
+                mv = new long[blocks];
+            }
+
+            slots = 1;
+            for (int i = 0; i < length; i++) {
+                char c = fold(pattern.charAt(start + i));
+                int slot = slotOf(c);
+                if (slot == 0) {
+                    slot = slots++;
+                    if (c < 128) {
+                        asciiSlots[c] = slot;
+                    } else {
+                        hasOther = true;
+                        int index = c & otherMask;
+                        while (otherSlots[index] != 0) {
+                            index = (index + 1) & otherMask;
+                        }
+                        otherChars[index] = c;
+                        otherSlots[index] = slot;
                     }
                 }
+                peq[slot * blocks + (i >>> 6)] |= 1L << (i & 63);
+            }
+        }
+
+        private int slotOf(char c) {
+            if (c < 128) {
+                return asciiSlots[c];
+            }
+            if (!hasOther) {
+                return 0;
+            }
+            for (int index = c & otherMask; ; index = (index + 1) & otherMask) {
+                int slot = otherSlots[index];
+                if (slot == 0 || otherChars[index] == c) {
+                    return slot;
+                }
+            }
+        }
+
+        private void clear(int blocks) {
+            Arrays.fill(asciiSlots, 0);
+            if (hasOther) {
+                Arrays.fill(otherSlots, 0, otherMask + 1, 0);
+                hasOther = false;
             }
-            if (i > 0)
-                costs[s2.length()] = lastValue;
+            Arrays.fill(peq, 0, slots * blocks, 0L);
         }
-        return costs[s2.length()];
     }
 }
@@ -0,0 +1,195 @@
+package dev.iseal.SSB.utils.utils;
+
+import net.dv8tion.jda.internal.utils.JDALogger;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel for debouncing, built for many timers that are pushed back far more often than they fire.
+ * <p>
+ * Pushing a timer back only writes its volatile deadline. A timer is handed to the wheel thread once,
+ * when it is first scheduled, and stays in its bucket until the wheel reaches it. The wheel then either
+ * moves it to the bucket of its current deadline or fires it. So a busy timer costs no allocation, no lock
+ * and no cancellation per update, unlike cancelling and recreating a {@code ScheduledFuture}.
+ * <p>
+ * Expired timers are collected per tick and passed to the handler as one batch, on the wheel thread.
+ * Deadlines are only as precise as the tick, and the handler must not block.
+ *
+ * @param <T> the timer type.
+ */
+public class TimingWheel<T extends TimingWheel.Timer> {
+
+    /**
+     * Something that can be scheduled on a {@link TimingWheel}. Meant to be extended by the per-key state
+     * that is being debounced, so no separate timer object is needed.
+     */
+    public static abstract class Timer {
+        // the deadline in epoch millis, or NOT_SCHEDULED
+        // package-private, private members can't be reached through the wheel's type variable
+        volatile long deadline = NOT_SCHEDULED;
+        // true while the timer is queued or sitting in a bucket
+        final AtomicBoolean inWheel = new AtomicBoolean();
+
+        /**
+         * @return The current deadline in epoch millis, or {@link Long#MAX_VALUE} if not scheduled.
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    private static final long NOT_SCHEDULED = Long.MAX_VALUE;
+
+    private final Logger log = JDALogger.getLog(getClass());
+    private final long tickMillis;
+    private final List<T>[] buckets;
+    private final Queue<T> newTimers = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> expiredHandler;
+    private final Thread wheelThread;
+    private long currentTick;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a wheel and starts its thread.
+     *
+     * @param name           Used for the thread name.
+     * @param tickMillis     The length of a tick, which is also the precision of deadlines.
+     * @param bucketCount    The number of buckets. Deadlines further out than {@code tickMillis * bucketCount}
+     *                       are simply revisited every rotation.
+     * @param expiredHandler Called on the wheel thread with every batch of expired timers.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(String name, long tickMillis, int bucketCount, Consumer<List<T>> expiredHandler) {
+        this.tickMillis = tickMillis;
+        this.expiredHandler = expiredHandler;
+        this.buckets = new List[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        wheelThread = new Thread(this::run, "SSB-TimingWheel-" + name);
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+    }
+
+    /**
+     * Schedules a timer, or moves its deadline if it is already scheduled.
+     * Safe to call from any thread, and constant time.
+     *
+     * @param timer    The timer.
+     * @param deadline The new deadline in epoch millis.
+     */
+    public void schedule(T timer, long deadline) {
+        timer.deadline = deadline;
+        if (timer.inWheel.compareAndSet(false, true)) {
+            newTimers.add(timer);
+        }
+    }
+
+    /**
+     * Unschedules a timer. It is dropped the next time the wheel reaches it.
+     *
+     * @param timer The timer.
+     */
+    public void cancel(T timer) {
+        timer.deadline = NOT_SCHEDULED;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timers never fire.
+     */
+    public void stop() {
+        running = false;
+        wheelThread.interrupt();
+    }
+
+    private void run() {
+        currentTick = System.currentTimeMillis() / tickMillis;
+        while (running) {
+            long nextTickAt = (currentTick + 1) * tickMillis;
+            long sleep = nextTickAt - System.currentTimeMillis();
+            if (sleep > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleep));
+                continue;
+            }
+            try {
+                tick();
+            } catch (Exception e) {
+                log.error("Timing wheel tick failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        currentTick++;
+
+        T added;
+        while ((added = newTimers.poll()) != null) {
+            place(added);
+        }
+
+        List<T> bucket = buckets[(int) (currentTick % buckets.length)];
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<T> due = new ArrayList<>(bucket);
+        bucket.clear();
+
+        List<T> expired = new ArrayList<>();
+        for (T timer : due) {
+            long deadline = timer.deadline;
+            if (deadline == NOT_SCHEDULED) {
+                release(timer, deadline);
+            } else if (deadline > now) {
+                // pushed back since it was placed, or more than a rotation out
+                place(timer);
+            } else if (release(timer, deadline)) {
+                expired.add(timer);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            try {
+                expiredHandler.accept(expired);
+            } catch (Exception e) {
+                log.error("Timing wheel handler failed for {} timers: {}", expired.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void place(T timer) {
+        long deadline = timer.deadline;
+        if (deadline == NOT_SCHEDULED) {
+            release(timer, deadline);
+            return;
+        }
+        // never place into the bucket that was just processed, the earliest is the next tick
+        long tick = Math.max(deadline / tickMillis, currentTick + 1);
+        buckets[(int) (tick % buckets.length)].add(timer);
+    }
+
+    /**
+     * Takes a timer out of the wheel.
+     *
+     * @param seenDeadline The deadline the decision was based on.
+     * @return true if the timer was released as seen, false if it was rescheduled concurrently and stays in the wheel.
+     */
+    private boolean release(T timer, long seenDeadline) {
+        timer.inWheel.set(false);
+        // a schedule() between reading the deadline and clearing the flag saw the timer as still in the wheel
+        // and didn't queue it, so it has to be picked up again here
+        if (timer.deadline != seenDeadline && timer.deadline != NOT_SCHEDULED && timer.inWheel.compareAndSet(false, true)) {
+            place(timer);
+            return false;
+        }
+        return true;
+    }
+}